@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.jline.terminal.Terminal;
+import org.jline.utils.AttributedString;
+import org.jline.utils.AttributedStringBuilder;
+import org.jline.utils.AttributedStyle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link AttributedString#fromAnsi(String)} and
+ * {@link AttributedString#toAnsi(Terminal)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AttributedStringBenchmark {
+
+    @Param({"xterm", "xterm-256color"})
+    public String terminalType;
+
+    @Param({"16", "256", "truecolor"})
+    public String colors;
+
+    private Terminal terminal;
+    private AttributedString string;
+    private String ansi;
+
+    @Setup
+    public void setup() throws IOException {
+        terminal = Terminals.create(Terminals.LINE_DISCIPLINE, terminalType, 160, 50);
+        AttributedStringBuilder sb = new AttributedStringBuilder();
+        for (int i = 0; i < 40; i++) {
+            AttributedStyle style;
+            if ("16".equals(colors)) {
+                style = AttributedStyle.DEFAULT.foreground(i % 16);
+            } else if ("256".equals(colors)) {
+                style = AttributedStyle.DEFAULT.foreground((i * 37) % 256);
+            } else {
+                style = AttributedStyle.DEFAULT.foreground((i * 53) % 256, (i * 97) % 256, (i * 13) % 256);
+            }
+            if (i % 5 == 0) {
+                style = style.bold();
+            }
+            sb.style(style).append("token").append(Integer.toString(i)).style(AttributedStyle.DEFAULT).append(' ');
+        }
+        string = sb.toAttributedString();
+        ansi = string.toAnsi(terminal);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        terminal.close();
+    }
+
+    @Benchmark
+    public AttributedString fromAnsi() {
+        return AttributedString.fromAnsi(ansi);
+    }
+
+    @Benchmark
+    public String toAnsi() {
+        return string.toAnsi(terminal);
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.jline.utils.ColorPalette;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks rounding of true colors to the 256 colors palette,
+ * which goes through {@code Colors.roundColor}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ColorsBenchmark {
+
+    @Param({"rgb", "cie76", "cie94", "cie00", "cam02"})
+    public String distance;
+
+    /**
+     * Number of distinct colors rounded, a small number mimics
+     * a syntax highlighted screen where the same colors are reused.
+     */
+    @Param({"16", "4096"})
+    public int distinct;
+
+    private ColorPalette palette;
+    private int[] colors;
+    private int index;
+
+    @Setup
+    public void setup() {
+        palette = new ColorPalette();
+        palette.setDistance(distance);
+        Random random = new Random(0);
+        colors = new int[distinct];
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = random.nextInt(0x1000000);
+        }
+    }
+
+    @Benchmark
+    public int roundColor() {
+        int color = colors[index++ % colors.length];
+        return palette.round((color >> 16) & 0xFF, (color >> 8) & 0xFF, color & 0xFF);
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jline.reader.Candidate;
+import org.jline.reader.CompletingParsedLine;
+import org.jline.reader.LineReader;
+import org.jline.reader.Parser;
+import org.jline.reader.impl.CompletionMatcherImpl;
+import org.jline.reader.impl.DefaultParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link CompletionMatcherImpl#matches(List)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CompletionMatcherBenchmark {
+
+    @Param({"100", "10000"})
+    public int candidates;
+
+    @Param({"com", "cmnd", "zzz"})
+    public String word;
+
+    @Param({"false", "true"})
+    public boolean caseInsensitive;
+
+    private CompletionMatcherImpl matcher;
+    private List<Candidate> list;
+
+    @Setup
+    public void setup() {
+        list = new ArrayList<>();
+        for (int i = 0; i < candidates; i++) {
+            String value = (i % 3 == 0 ? "command" : i % 3 == 1 ? "Compile" : "execute") + i;
+            list.add(new Candidate(value, value, null, null, null, null, true));
+        }
+        CompletingParsedLine line = (CompletingParsedLine) new DefaultParser()
+                .parse(word, word.length(), Parser.ParseContext.COMPLETE);
+        Map<LineReader.Option, Boolean> options = new HashMap<>();
+        options.put(LineReader.Option.COMPLETE_MATCHER_TYPO, true);
+        options.put(LineReader.Option.COMPLETE_MATCHER_CAMELCASE, true);
+        matcher = new CompletionMatcherImpl();
+        matcher.compile(options, true, line, caseInsensitive, 2, null);
+    }
+
+    @Benchmark
+    public List<Candidate> matches() {
+        return matcher.matches(list);
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.benchmarks;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.jline.terminal.Terminal;
+import org.jline.utils.Curses;
+import org.jline.utils.InfoCmp.Capability;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the evaluation of parameterized capabilities, as done
+ * for each cursor movement by full screen applications.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CursesBenchmark {
+
+    @Param({"xterm-256color", "screen-256color"})
+    public String type;
+
+    private Terminal terminal;
+    private String cursorAddress;
+    private String setForeground;
+    private StringWriter writer;
+    private int index;
+
+    @Setup
+    public void setup() throws IOException {
+        terminal = Terminals.create(Terminals.LINE_DISCIPLINE, type, 160, 50);
+        cursorAddress = terminal.getStringCapability(Capability.cursor_address);
+        setForeground = terminal.getStringCapability(Capability.set_a_foreground);
+        writer = new StringWriter();
+    }
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        writer.getBuffer().setLength(0);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        terminal.close();
+    }
+
+    @Benchmark
+    public boolean putsCursorAddress() {
+        int i = index++;
+        return terminal.puts(Capability.cursor_address, i % 50, i % 160);
+    }
+
+    @Benchmark
+    public boolean putsColumnAddress() {
+        return terminal.puts(Capability.column_address, index++ % 160);
+    }
+
+    @Benchmark
+    public int tputsCursorAddress() {
+        int i = index++;
+        writer.getBuffer().setLength(0);
+        Curses.tputs(writer, cursorAddress, i % 50, i % 160);
+        return writer.getBuffer().length();
+    }
+
+    @Benchmark
+    public int tputsSetForeground() {
+        writer.getBuffer().setLength(0);
+        Curses.tputs(writer, setForeground, index++ % 256);
+        return writer.getBuffer().length();
+    }
+
+}
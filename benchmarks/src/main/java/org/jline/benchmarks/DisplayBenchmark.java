@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jline.terminal.Terminal;
+import org.jline.terminal.impl.AbstractTerminal;
+import org.jline.utils.AttributedString;
+import org.jline.utils.AttributedStringBuilder;
+import org.jline.utils.AttributedStyle;
+import org.jline.utils.Display;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link Display#update(List, int)} on full screen
+ * and single line updates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DisplayBenchmark {
+
+    @Param({Terminals.LINE_DISCIPLINE, Terminals.EXTERNAL})
+    public String terminalKind;
+
+    @Param({"xterm-256color"})
+    public String terminalType;
+
+    @Param({"50", "200"})
+    public int rows;
+
+    @Param({"160"})
+    public int columns;
+
+    @Param({"false", "true"})
+    public boolean synchronizedOutput;
+
+    private Terminal terminal;
+    private Display display;
+    private Display lineDisplay;
+    private List<AttributedString> text;
+    private List<List<AttributedString>> scrolled;
+    private List<List<AttributedString>> typed;
+    private int frame;
+
+    @Setup
+    public void setup() throws IOException {
+        terminal = Terminals.create(terminalKind, terminalType, columns, rows);
+        if (synchronizedOutput) {
+            ((AbstractTerminal) terminal).setSynchronizedOutput(true);
+        }
+        display = new Display(terminal, true);
+        display.resize(rows, columns);
+        lineDisplay = new Display(terminal, false);
+        lineDisplay.resize(rows, columns);
+
+        text = new ArrayList<>();
+        for (int i = 0; i < rows * 4; i++) {
+            text.add(line(i));
+        }
+        // Successive windows over the text, as when scrolling in less or nano
+        scrolled = new ArrayList<>();
+        for (int i = 0; i < rows * 3; i++) {
+            scrolled.add(new ArrayList<>(text.subList(i, i + rows)));
+        }
+        // A single line being typed, as in the line reader
+        typed = new ArrayList<>();
+        String prompt = "prompt> ";
+        String command = "echo the quick brown fox jumps over the lazy dog";
+        for (int i = 0; i <= command.length(); i++) {
+            List<AttributedString> lines = new ArrayList<>();
+            lines.add(new AttributedStringBuilder()
+                    .append(prompt, AttributedStyle.BOLD)
+                    .append(command.substring(0, i))
+                    .toAttributedString());
+            typed.add(lines);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        terminal.close();
+    }
+
+    private AttributedString line(int i) {
+        AttributedStringBuilder sb = new AttributedStringBuilder();
+        sb.style(AttributedStyle.DEFAULT.foreground(AttributedStyle.YELLOW));
+        sb.append(String.format("%6d ", i));
+        sb.style(AttributedStyle.DEFAULT);
+        for (int j = 0; sb.length() < columns - 10; j++) {
+            sb.style(j % 3 == 0 ? AttributedStyle.BOLD : AttributedStyle.DEFAULT.foreground(j % 8));
+            sb.append("word").append(Integer.toString(i * 31 + j)).append(' ');
+        }
+        return sb.toAttributedString();
+    }
+
+    @Benchmark
+    public void scroll() {
+        List<AttributedString> lines = scrolled.get(frame++ % scrolled.size());
+        display.update(lines, 0);
+    }
+
+    @Benchmark
+    public void typing() {
+        List<AttributedString> lines = typed.get(frame++ % typed.size());
+        lineDisplay.update(lines, lines.get(0).columnLength());
+    }
+
+    @Benchmark
+    public void unchanged() {
+        display.update(scrolled.get(0), 0);
+    }
+
+}
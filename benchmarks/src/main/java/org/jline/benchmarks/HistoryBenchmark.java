@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.jline.reader.LineReader;
+import org.jline.reader.LineReaderBuilder;
+import org.jline.reader.impl.history.DefaultHistory;
+import org.jline.terminal.Terminal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link DefaultHistory} adding, navigating, loading, merging and saving.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HistoryBenchmark {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean ignoreDups;
+
+    private Terminal terminal;
+    private Path file;
+    private DefaultHistory history;
+    private String[] lines;
+    private int index;
+
+    @Setup
+    public void setup() throws IOException {
+        terminal = Terminals.create(Terminals.LINE_DISCIPLINE, "xterm-256color", 160, 50);
+        file = Files.createTempFile("jline-history", ".txt");
+        LineReader reader = LineReaderBuilder.builder()
+                .terminal(terminal)
+                .variable(LineReader.HISTORY_FILE, file)
+                .variable(LineReader.HISTORY_SIZE, size)
+                .variable(LineReader.HISTORY_FILE_SIZE, size)
+                .option(LineReader.Option.HISTORY_IGNORE_DUPS, ignoreDups)
+                .build();
+        lines = new String[size];
+        for (int i = 0; i < size; i++) {
+            lines[i] = "command --option=" + (i % 997) + " argument" + i;
+        }
+        history = new DefaultHistory(reader);
+        for (String line : lines) {
+            history.add(Instant.now(), line);
+        }
+        history.save();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        terminal.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public int add() {
+        history.add(Instant.now(), lines[index++ % lines.length]);
+        return history.size();
+    }
+
+    @Benchmark
+    public String get() {
+        // spread the accesses over the whole history
+        return history.get(history.first() + (int) ((index++ * 7919L) % history.size()));
+    }
+
+    @Benchmark
+    public String previous() {
+        // walk back the history, as the up-line-or-history widget
+        if (!history.previous()) {
+            history.moveToEnd();
+        }
+        return history.current();
+    }
+
+    @Benchmark
+    public int load() throws IOException {
+        history.load();
+        return history.size();
+    }
+
+    @Benchmark
+    public int readIncremental() throws IOException {
+        // all the lines of the file are already in the history
+        history.read(file, true);
+        return history.size();
+    }
+
+    @Benchmark
+    public int save() throws IOException {
+        history.add(Instant.now(), lines[index++ % lines.length]);
+        history.save();
+        return history.size();
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.jline.reader.LineReader;
+import org.jline.reader.LineReaderBuilder;
+import org.jline.reader.impl.history.DefaultHistory;
+import org.jline.terminal.Terminal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks loading the last entries of a large history file at startup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class HistoryLoadBenchmark {
+
+    @Param({"1000000"})
+    public int fileSize;
+
+    @Param({"500"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean journal;
+
+    private Terminal terminal;
+    private Path file;
+    private DefaultHistory history;
+
+    @Setup
+    public void setup() throws IOException {
+        terminal = Terminals.create(Terminals.LINE_DISCIPLINE, "xterm-256color", 160, 50);
+        file = Files.createTempFile("jline-history", ".txt");
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            for (int i = 0; i < fileSize; i++) {
+                writer.append(Long.toString(1600000000000L + i)).append(':')
+                        .append("command --option=").append(Integer.toString(i % 997))
+                        .append(" argument").append(Integer.toString(i)).append('\n');
+            }
+        }
+        LineReader reader = LineReaderBuilder.builder()
+                .terminal(terminal)
+                .variable(LineReader.HISTORY_FILE, file)
+                .variable(LineReader.HISTORY_SIZE, size)
+                .variable(LineReader.HISTORY_FILE_SIZE, fileSize)
+                .option(LineReader.Option.HISTORY_JOURNAL, journal)
+                .build();
+        history = new DefaultHistory(reader);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        terminal.close();
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".idx"));
+    }
+
+    @Benchmark
+    public int load() throws IOException {
+        history.load();
+        return history.last();
+    }
+
+}
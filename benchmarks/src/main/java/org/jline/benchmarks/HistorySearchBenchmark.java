@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.benchmarks;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.jline.reader.LineReader;
+import org.jline.reader.LineReaderBuilder;
+import org.jline.reader.impl.LineReaderImpl;
+import org.jline.reader.impl.history.DefaultHistory;
+import org.jline.terminal.Terminal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks searching a large history for a rarely used command,
+ * as each keystroke of an incremental search does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HistorySearchBenchmark {
+
+    @Param({"500000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean caseInsensitive;
+
+    @Param({"false", "true"})
+    public boolean searchIndex;
+
+    private Terminal terminal;
+    private LineReaderImpl reader;
+    private DefaultHistory history;
+
+    @Setup
+    public void setup() throws IOException {
+        terminal = Terminals.create(Terminals.LINE_DISCIPLINE, "xterm-256color", 160, 50);
+        reader = (LineReaderImpl) LineReaderBuilder.builder()
+                .terminal(terminal)
+                .variable(LineReader.HISTORY_SIZE, size)
+                .option(LineReader.Option.HISTORY_INCREMENTAL, false)
+                .option(LineReader.Option.CASE_INSENSITIVE_SEARCH, caseInsensitive)
+                .option(LineReader.Option.HISTORY_SEARCH_INDEX, searchIndex)
+                .build();
+        history = new DefaultHistory(reader);
+        reader.setHistory(history);
+        for (int i = 0; i < size; i++) {
+            history.add(Instant.now(), "git commit -m 'Fix issue #" + i + "' --author=someone" + (i % 997));
+            if (i % 50000 == 0) {
+                history.add(Instant.now(), "kubectl rollout restart deployment/api-" + i);
+            }
+        }
+        // build the index outside of the measurements
+        reader.searchBackwards("kubectl");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        terminal.close();
+    }
+
+    @Benchmark
+    public int searchRare() {
+        return reader.searchBackwards("rollout restart", history.last() + 1);
+    }
+
+    @Benchmark
+    public int searchMissing() {
+        return reader.searchBackwards("docker", history.last() + 1);
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.jline.terminal.Attributes;
+import org.jline.terminal.Attributes.LocalFlag;
+import org.jline.terminal.impl.LineDisciplineTerminal;
+import org.jline.utils.NonBlockingInputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the line discipline input processing of a large paste,
+ * received from the master side in packets of the given size, while
+ * the slave input is drained by another thread.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LineDisciplineBenchmark {
+
+    @Param({"65536"})
+    public int size;
+
+    @Param({"64", "4096"})
+    public int packet;
+
+    @Param({"true", "false"})
+    public boolean echo;
+
+    private LineDisciplineTerminal terminal;
+    private Thread consumer;
+    private byte[] paste;
+
+    @Setup
+    public void setup() throws IOException {
+        terminal = new LineDisciplineTerminal("benchmark", "xterm",
+                new Terminals.NullOutputStream(), StandardCharsets.UTF_8);
+        Attributes attributes = terminal.getAttributes();
+        attributes.setLocalFlag(LocalFlag.ECHO, echo);
+        terminal.setAttributes(attributes);
+
+        byte[] line = "    for (int i = 0; i < size; i++) { sum += data[i]; }\n"
+                .getBytes(StandardCharsets.UTF_8);
+        paste = new byte[size];
+        for (int i = 0; i < size; i++) {
+            paste[i] = line[i % line.length];
+        }
+
+        NonBlockingInputStream input = (NonBlockingInputStream) terminal.input();
+        consumer = new Thread(() -> {
+            byte[] buffer = new byte[4096];
+            try {
+                while (input.readBuffered(buffer) >= 0) {
+                    // discard
+                }
+            } catch (IOException e) {
+                // closed
+            }
+        });
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        terminal.close();
+        consumer.interrupt();
+    }
+
+    @Benchmark
+    public void paste() throws IOException {
+        for (int off = 0; off < size; off += packet) {
+            terminal.processInputBytes(paste, off, Math.min(packet, size - off));
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.jline.utils.NonBlocking;
+import org.jline.utils.NonBlockingInputStream;
+import org.jline.utils.NonBlockingReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks reading a large paste through the non blocking wrappers,
+ * peeking and reading each character with a timeout as the
+ * {@link org.jline.keymap.BindingReader} does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NonBlockingBenchmark {
+
+    @Param({"65536"})
+    public int size;
+
+    private NonBlockingInputStream stream;
+    private NonBlockingReader reader;
+    private char[] buffer;
+
+    @Setup
+    public void setup() {
+        stream = NonBlocking.nonBlocking("bench", new PasteInputStream());
+        reader = NonBlocking.nonBlocking("bench",
+                new InputStreamReader(new PasteInputStream(), StandardCharsets.UTF_8));
+        buffer = new char[4096];
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        stream.close();
+        reader.close();
+    }
+
+    @Benchmark
+    public int streamPeekAndRead() throws IOException {
+        int sum = 0;
+        for (int i = 0; i < size; i++) {
+            if (stream.peek(100L) >= 0) {
+                sum += stream.read(100L);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int readerPeekAndRead() throws IOException {
+        int sum = 0;
+        for (int i = 0; i < size; i++) {
+            if (reader.peek(100L) >= 0) {
+                sum += reader.read(100L);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int readerBuffered() throws IOException {
+        int sum = 0;
+        for (int nb = 0; nb < size; ) {
+            reader.peek(100L);
+            int l = reader.readBuffered(buffer);
+            nb += l;
+            sum += buffer[0];
+        }
+        return sum;
+    }
+
+    /**
+     * An endless stream of pasted text, returning at most one line per read
+     * as a terminal would.
+     */
+    static class PasteInputStream extends InputStream {
+
+        private final byte[] line = "    for (int i = 0; i < size; i++) { sum += data[i]; }\n"
+                .getBytes(StandardCharsets.UTF_8);
+        private int index;
+
+        @Override
+        public int read() {
+            int b = line[index];
+            index = (index + 1) % line.length;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            int nb = Math.min(len, line.length - index);
+            System.arraycopy(line, index, b, off, nb);
+            index = (index + nb) % line.length;
+            return nb;
+        }
+    }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.jline.reader.EndOfFileException;
+import org.jline.reader.LineReader;
+import org.jline.reader.LineReaderBuilder;
+import org.jline.terminal.Size;
+import org.jline.terminal.impl.LineDisciplineTerminal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks printing log lines above the prompt of a line reader
+ * waiting for input, until they have all been written to the terminal.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PrintAboveBenchmark {
+
+    @Param({"1000"})
+    public int lines;
+
+    @Param({"false", "true"})
+    public boolean async;
+
+    @Param({"false", "true"})
+    public boolean scrollRegion;
+
+    private LineDisciplineTerminal terminal;
+    private LineReader reader;
+    LineCountingOutputStream output;
+    private Thread thread;
+
+    @Setup
+    public void setup() throws Exception {
+        output = new LineCountingOutputStream();
+        terminal = new LineDisciplineTerminal("benchmark", "xterm", output, StandardCharsets.UTF_8);
+        terminal.setSize(new Size(160, 50));
+        reader = LineReaderBuilder.builder()
+                .terminal(terminal)
+                .option(LineReader.Option.ASYNC_PRINT_ABOVE, async)
+                .option(LineReader.Option.PRINT_ABOVE_SCROLL_REGION, scrollRegion)
+                .build();
+        thread = new Thread(() -> {
+            try {
+                reader.readLine("prompt> ", null, (Character) null, "some command being typed");
+            } catch (EndOfFileException e) {
+                // terminal closed
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        while (!reader.isReading()) {
+            Thread.sleep(1);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        terminal.close();
+        thread.join(1000);
+    }
+
+    @Benchmark
+    public long printAbove() throws InterruptedException {
+        long expected = output.getLines() + lines;
+        for (int i = 0; i < lines; i++) {
+            reader.printAbove("INFO  [worker-1] processed request " + i);
+        }
+        while (output.getLines() < expected) {
+            Thread.yield();
+        }
+        return output.getBytes();
+    }
+
+    /**
+     * Output stream discarding everything but the number of lines and bytes written.
+     */
+    static class LineCountingOutputStream extends OutputStream {
+
+        private volatile long lines;
+        private volatile long bytes;
+
+        @Override
+        public void write(int b) {
+            if (b == '\n') {
+                lines++;
+            }
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            long n = lines;
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    n++;
+                }
+            }
+            lines = n;
+            bytes += len;
+        }
+
+        long getLines() {
+            return lines;
+        }
+
+        long getBytes() {
+            return bytes;
+        }
+    }
+
+}
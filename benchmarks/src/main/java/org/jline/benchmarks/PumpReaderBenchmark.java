@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.benchmarks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.jline.utils.LockFreePumpReader;
+import org.jline.utils.NonBlocking;
+import org.jline.utils.NonBlockingPumpReader;
+import org.jline.utils.NonBlockingReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks handing characters over from a pump thread to a reader,
+ * comparing the lock based and the lock-free pump readers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PumpReaderBenchmark {
+
+    @Param({"locked", "lockFree"})
+    public String pump;
+
+    @Param({"65536"})
+    public int size;
+
+    private NonBlockingReader reader;
+    private Thread producer;
+    private char[] buffer;
+
+    @Setup
+    public void setup() {
+        Writer writer;
+        if ("lockFree".equals(pump)) {
+            LockFreePumpReader r = NonBlocking.lockFreePumpReader(1024);
+            writer = r.getWriter();
+            reader = r;
+        } else {
+            NonBlockingPumpReader r = NonBlocking.nonBlockingPumpReader(1024);
+            writer = r.getWriter();
+            reader = r;
+        }
+        buffer = new char[1024];
+        producer = new Thread(() -> {
+            char[] line = "    for (int i = 0; i < size; i++) { sum += data[i]; }\n".toCharArray();
+            try {
+                while (true) {
+                    writer.write(line, 0, line.length);
+                }
+            } catch (IOException e) {
+                // closed
+            }
+        });
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        reader.close();
+    }
+
+    @Benchmark
+    public int peekAndRead() throws IOException {
+        int sum = 0;
+        for (int i = 0; i < size; i++) {
+            if (reader.peek(100L) >= 0) {
+                sum += reader.read(100L);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int readBuffered() throws IOException {
+        int sum = 0;
+        for (int nb = 0; nb < size; ) {
+            nb += reader.readBuffered(buffer);
+            sum += buffer[0];
+        }
+        return sum;
+    }
+
+}
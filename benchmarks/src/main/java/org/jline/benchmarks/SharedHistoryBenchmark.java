@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.jline.reader.LineReader;
+import org.jline.reader.LineReaderBuilder;
+import org.jline.reader.impl.history.DefaultHistory;
+import org.jline.terminal.Terminal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks picking up the entry added by another session to a history file
+ * shared by two sessions, either by tailing the file in shared history mode
+ * or by incrementally re-reading the whole file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SharedHistoryBenchmark {
+
+    @Param({"10000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean shared;
+
+    private Terminal terminal;
+    private Path file;
+    private LineReader reader;
+    private DefaultHistory history;
+    private DefaultHistory other;
+    private int index;
+
+    @Setup
+    public void setup() throws IOException {
+        terminal = Terminals.create(Terminals.LINE_DISCIPLINE, "xterm-256color", 160, 50);
+        file = Files.createTempFile("jline-history", ".txt");
+        reader = LineReaderBuilder.builder()
+                .terminal(terminal)
+                .variable(LineReader.HISTORY_FILE, file)
+                .variable(LineReader.HISTORY_SIZE, size)
+                .variable(LineReader.HISTORY_FILE_SIZE, Integer.MAX_VALUE / 2)
+                .option(LineReader.Option.HISTORY_SHARED, shared)
+                .build();
+        other = new DefaultHistory(reader);
+        for (int i = 0; i < size; i++) {
+            other.add(Instant.now(), "command --option=" + (i % 997) + " argument" + i);
+        }
+        other.save();
+        history = new DefaultHistory(reader);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        terminal.close();
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".lock"));
+    }
+
+    @Benchmark
+    public int pickUp() throws IOException {
+        other.add(Instant.now(), "command from another session " + index++);
+        if (shared) {
+            // done by the line reader at each prompt
+            history.attach(reader);
+        } else {
+            history.read(file, true);
+        }
+        return history.size();
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.jline.terminal.Size;
+import org.jline.terminal.Terminal;
+import org.jline.terminal.impl.ExternalTerminal;
+import org.jline.terminal.impl.LineDisciplineTerminal;
+
+/**
+ * Headless terminals backed by in-memory streams, so that benchmarks
+ * do not depend on a real tty.
+ */
+public final class Terminals {
+
+    public static final String LINE_DISCIPLINE = "lineDiscipline";
+    public static final String EXTERNAL = "external";
+
+    private Terminals() {
+    }
+
+    public static Terminal create(String kind, String type, int columns, int rows) throws IOException {
+        Terminal terminal;
+        if (LINE_DISCIPLINE.equals(kind)) {
+            terminal = new LineDisciplineTerminal("benchmark", type, new NullOutputStream(), StandardCharsets.UTF_8);
+        } else if (EXTERNAL.equals(kind)) {
+            terminal = new ExternalTerminal("benchmark", type,
+                    new ByteArrayInputStream(new byte[0]), new NullOutputStream(), StandardCharsets.UTF_8);
+        } else {
+            throw new IllegalArgumentException("Unknown terminal kind: " + kind);
+        }
+        terminal.setSize(new Size(columns, rows));
+        return terminal;
+    }
+
+    /**
+     * Output stream discarding everything, while counting the bytes
+     * so that the JIT can not eliminate the writes.
+     */
+    public static class NullOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.jline.reader.LineReader;
+import org.jline.reader.LineReaderBuilder;
+import org.jline.terminal.Size;
+import org.jline.terminal.Terminal;
+import org.jline.terminal.impl.DumbTerminal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks reading a line pasted on a terminal without bracketed paste,
+ * so that the whole line is received as typeahead, with and without
+ * redisplay coalescing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TypeaheadBenchmark {
+
+    @Param({"4096", "65536"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean coalesce;
+
+    private Terminal terminal;
+    private LineReader reader;
+
+    @Setup
+    public void setup() throws IOException {
+        terminal = new DumbTerminal("benchmark", "xterm", new BurstInputStream(size),
+                new Terminals.NullOutputStream(), StandardCharsets.UTF_8);
+        terminal.setSize(new Size(160, 50));
+        reader = LineReaderBuilder.builder()
+                .terminal(terminal)
+                .variable(LineReader.DISABLE_HISTORY, true)
+                .option(LineReader.Option.BRACKETED_PASTE, false)
+                .option(LineReader.Option.COALESCE_REDISPLAY, coalesce)
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        terminal.close();
+    }
+
+    @Benchmark
+    public String paste() {
+        return reader.readLine("prompt> ");
+    }
+
+    /**
+     * An endless stream of lines of the given size, returned in
+     * packets as a terminal would.
+     */
+    static class BurstInputStream extends InputStream {
+
+        private final byte[] line;
+        private int index;
+
+        BurstInputStream(int size) {
+            String text = "    for (int i = 0; i < size; i++) { sum += data[i]; }";
+            StringBuilder sb = new StringBuilder();
+            while (sb.length() < size - 1) {
+                sb.append(text, 0, Math.min(text.length(), size - 1 - sb.length()));
+            }
+            sb.append('\n');
+            line = sb.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int read() {
+            int b = line[index];
+            index = (index + 1) % line.length;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            int nb = Math.min(Math.min(len, 4096), line.length - index);
+            System.arraycopy(line, index, b, off, nb);
+            index = (index + nb) % line.length;
+            return nb;
+        }
+    }
+
+}
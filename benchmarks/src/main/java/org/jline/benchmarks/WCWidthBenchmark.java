@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jline.utils.AttributedString;
+import org.jline.utils.WCWidth;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link WCWidth#wcwidth(int)}, both on raw code points
+ * and through {@link AttributedString#columnLength()}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WCWidthBenchmark {
+
+    @Param({"ascii", "latin", "cjk", "emoji", "combining", "mixed"})
+    public String text;
+
+    private int[] codePoints;
+    private AttributedString string;
+
+    @Setup
+    public void setup() {
+        String s;
+        switch (text) {
+            case "ascii":
+                s = "The quick brown fox jumps over the lazy dog 0123456789";
+                break;
+            case "latin":
+                s = "Le cœur déçu mais l'âme plutôt naïve, Louÿs rêva de crapaüter";
+                break;
+            case "cjk":
+                s = "日本語の文章と中文的句子以及한국어 문장을 섞어서 폭을 측정합니다";
+                break;
+            case "emoji":
+                s = "😀🚀🎉👍🔥 emoji 🌍🌟💩🤖🐱";
+                break;
+            case "combining":
+                s = "áèîõü ñ ç किष्त";
+                break;
+            case "mixed":
+                // a long line of CJK and emoji heavy text, as in a chat or log viewer
+                StringBuilder sb = new StringBuilder();
+                for (int i = 0; i < 20; i++) {
+                    sb.append("[12:00:").append(i).append("] 用户 ").append(i).append(": 你好世界 😀 テスト 🚀 완료 ");
+                }
+                s = sb.toString();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown text: " + text);
+        }
+        codePoints = s.codePoints().toArray();
+        string = new AttributedString(s);
+    }
+
+    @Benchmark
+    public int wcwidth() {
+        int width = 0;
+        for (int cp : codePoints) {
+            width += WCWidth.wcwidth(cp);
+        }
+        return width;
+    }
+
+    @Benchmark
+    public int columnLength() {
+        return string.columnLength();
+    }
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2002-2019, the original author or authors.
+ * Copyright (c) 2002-2021, the original author or authors.
  *
  * This software is distributable under the BSD license. See the terms of the
  * BSD license in the documentation provided with this software.
@@ -441,7 +441,7 @@ public class Tmux {
             activeWindow = 0;
             runner.accept(active().getConsole());
             // Start input loop
-            new Thread(this::inputLoop, "Mux input loop").start();
+            Threads.newThread(this::inputLoop, "Mux input loop").start();
             // Redraw loop
             redrawLoop();
         } catch (RuntimeException e) {
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2002-2018, the original author or authors.
+ * Copyright (c) 2002-2021, the original author or authors.
  *
  * This software is distributable under the BSD license. See the terms of the
  * BSD license in the documentation provided with this software.
@@ -11,7 +11,9 @@ package org.jline.keymap;
 import java.io.IOError;
 import java.io.IOException;
 import java.util.ArrayDeque;
+import java.util.Collections;
 import java.util.Deque;
+import java.util.Set;
 
 import org.jline.reader.EndOfFileException;
 import org.jline.utils.ClosedException;
@@ -117,6 +119,125 @@ public class BindingReader {
         return null;
     }
 
+    /**
+     * Read the characters which are immediately available and which
+     * are bound to the given binding in the key map, without ambiguity.
+     *
+     * This allows handling a burst of input, such as a paste on a terminal
+     * which does not support bracketed paste, in a single operation.
+     * Reading stops at the first character which is not bound to the binding,
+     * which is left unread, when no more input is available without waiting,
+     * or when the given maximum number of characters has been read.
+     *
+     * @param keys the KeyMap to use for decoding the input stream
+     * @param binding the binding
+     * @param max the maximum number of characters to read
+     * @param <T> the type of bindings
+     * @return the characters read, possibly empty
+     */
+    public <T> String readBurst(KeyMap<T> keys, T binding, int max) {
+        return readBurst(keys, binding, 1, max);
+    }
+
+    /**
+     * Read the characters which are immediately available and which
+     * are bound to the given binding in the key map, without ambiguity,
+     * if at least the given minimum number of characters, whatever their
+     * bindings, are available when the burst starts.
+     * Otherwise, nothing is read and an empty string is returned.
+     *
+     * @param keys the KeyMap to use for decoding the input stream
+     * @param binding the binding
+     * @param min the minimum number of characters available to start the burst
+     * @param max the maximum number of characters to read
+     * @param <T> the type of bindings
+     * @return the characters read, possibly empty
+     * @see #readBurst(KeyMap, Object, int)
+     */
+    public <T> String readBurst(KeyMap<T> keys, T binding, int min, int max) {
+        return readBurst(keys, binding, Collections.emptySet(), min, max);
+    }
+
+    /**
+     * Read the characters which are immediately available and which
+     * are bound to the given binding or to one of the inner bindings
+     * in the key map, without ambiguity, if at least the given minimum
+     * number of characters are available when the burst starts.
+     *
+     * A character bound to one of the inner bindings is only read when
+     * more input is available after it, so that it can be handled as
+     * part of the burst by callers for which those bindings behave like
+     * the given one in the middle of a typeahead.
+     *
+     * @param keys the KeyMap to use for decoding the input stream
+     * @param binding the binding
+     * @param inner the bindings which may be read inside the burst
+     * @param min the minimum number of characters available to start the burst
+     * @param max the maximum number of characters to read
+     * @param <T> the type of bindings
+     * @return the characters read, possibly empty
+     * @see #readBurst(KeyMap, Object, int, int)
+     */
+    public <T> String readBurst(KeyMap<T> keys, T binding, Set<T> inner, int min, int max) {
+        StringBuilder sb = new StringBuilder();
+        if (opBuffer.length() > 0 || pushBackChar.size() + reader.available() < min) {
+            return "";
+        }
+        int[] remaining = new int[1];
+        int nb = 0;
+        try {
+            while (nb < max) {
+                int c;
+                if (!pushBackChar.isEmpty()) {
+                    c = pushBackChar.peek();
+                } else if (reader.available() > 0) {
+                    c = reader.peek(1L);
+                    if (c < 0 || Character.isSurrogate((char) c)) {
+                        break;
+                    }
+                } else {
+                    break;
+                }
+                T o = getBound(keys, c, remaining);
+                boolean isInner = !binding.equals(o) && inner.contains(o);
+                if (remaining[0] != 0 || (!binding.equals(o) && !isInner)) {
+                    break;
+                }
+                if (!pushBackChar.isEmpty()) {
+                    pushBackChar.pop();
+                } else {
+                    reader.read(1L);
+                }
+                if (isInner && !hasTypeahead()) {
+                    pushBackChar.addFirst(c);
+                    break;
+                }
+                sb.appendCodePoint(c);
+                nb++;
+            }
+        } catch (IOException e) {
+            throw new IOError(e);
+        }
+        return sb.toString();
+    }
+
+    private <T> T getBound(KeyMap<T> keys, int c, int[] remaining) {
+        if (c >= KeyMap.KEYMAP_LENGTH) {
+            remaining[0] = 0;
+            return keys.getUnicode();
+        }
+        return keys.getBound(String.valueOf((char) c), remaining);
+    }
+
+    /**
+     * Check if some input can be read without waiting.
+     *
+     * @return <code>true</code> if some input is available
+     */
+    public boolean hasTypeahead() {
+        return !pushBackChar.isEmpty() || reader.available() > 0;
+    }
+
     public String readStringUntil(String sequence) {
         StringBuilder sb = new StringBuilder();
         if (!pushBackChar.isEmpty()) {
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2002-2018, the original author or authors.
+ * Copyright (c) 2002-2021, the original author or authors.
  *
  * This software is distributable under the BSD license. See the terms of the
  * BSD license in the documentation provided with this software.
@@ -147,6 +147,21 @@ public interface History extends Iterable<History.Entry>
         };
     }
 
+    /**
+     * Returns an iterator over the entries which may contain the given string,
+     * ignoring case, starting at the given index and going backward or forward.
+     * Implementations may use an index to skip the entries which can not contain
+     * the string, but the returned entries still need to be checked by the caller.
+     *
+     * @param term the searched string
+     * @param index the index of the first entry to return
+     * @param backward whether to iterate toward the oldest entries
+     * @return an iterator over the candidate entries
+     */
+    default Iterator<Entry> searchIterator(String term, int index, boolean backward) {
+        return backward ? reverseIterator(index) : iterator(index);
+    }
+
     //
     // Navigation
     //
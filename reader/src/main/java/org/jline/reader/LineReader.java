@@ -390,6 +390,37 @@ public interface LineReader {
      */
     String SUGGESTIONS_MIN_BUFFER_SIZE = "suggestions-min-buffer-size";
 
+    /**
+     * Latency tracer, an instance of {@link org.jline.reader.impl.LatencyTracer}
+     * recording the time taken to handle each key sequence, from the time it
+     * has been read to the time the display has been flushed.
+     * Tracing is disabled if not set.
+     */
+    String LATENCY_TRACER = "latency-tracer";
+
+    /**
+     * Maximum delay in milliseconds during which the redisplay is deferred
+     * while more input is available, when the {@link Option#COALESCE_REDISPLAY}
+     * option is set.
+     */
+    String REDISPLAY_MAX_DELAY = "redisplay-max-delay";
+
+    /**
+     * Minimum interval in milliseconds between two updates of the display
+     * by {@link #printAbove(String)}, when the {@link Option#ASYNC_PRINT_ABOVE}
+     * option is set.  The messages printed in the meantime are queued and
+     * printed together.  Defaults to <code>0</code>, i.e. no rate limit.
+     */
+    String PRINT_ABOVE_INTERVAL = "print-above-interval";
+
+    /**
+     * Minimum number of characters which must be typed ahead, such as when
+     * pasting on a terminal which does not support bracketed paste, to insert
+     * the ones bound to self-insert at once as a single undo step.
+     * Characters typed ahead in smaller numbers are inserted one at a time.
+     */
+    String BURST_MIN_LENGTH = "burst-min-length";
+
     Map<String, KeyMap<Binding>> defaultKeyMaps();
 
     enum Option {
@@ -467,6 +498,54 @@ public interface LineReader {
 
         /** Show command options tab completion candidates for zero length word */
         EMPTY_WORD_OPTIONS(true),
+
+        /**
+         * Do not redisplay the line after each key sequence while more input
+         * is already available, so that a burst of keys is displayed at once.
+         * The display is still updated at least every {@link #REDISPLAY_MAX_DELAY}
+         * milliseconds.
+         */
+        COALESCE_REDISPLAY,
+
+        /**
+         * Queue the messages given to {@link #printAbove(String)} instead of
+         * printing them immediately.  A background thread prints all the pending
+         * messages at once, erasing and redrawing the prompt a single time,
+         * so that the callers never wait for the line reader.
+         */
+        ASYNC_PRINT_ABOVE,
+
+        /**
+         * Once the messages printed above the prompt have filled the screen,
+         * pin the prompt at the bottom of the screen and let {@link #printAbove(String)}
+         * scroll only the rows above it, using the <code>change_scroll_region</code>
+         * capability, so that printing a message does not redraw the prompt.
+         * This is ignored on terminals not supporting scroll regions.
+         */
+        PRINT_ABOVE_SCROLL_REGION,
+
+        /**
+         * Keep an index of the history file so that loading the history only
+         * reads the last {@link #HISTORY_SIZE} lines of the file, and compact
+         * the file in a background thread when it grows over {@link #HISTORY_FILE_SIZE}.
+         */
+        HISTORY_JOURNAL,
+
+        /**
+         * Share the history file with the other sessions using it.  The file is
+         * locked while new entries are appended, and the entries appended by other
+         * sessions are read at each prompt, only reading the new part of the file.
+         * Entries are saved as soon as they are added, as with {@link #HISTORY_INCREMENTAL}.
+         */
+        HISTORY_SHARED,
+
+        /**
+         * Maintain a trigram index of the history lines, so that incremental
+         * history searches only check the entries which may match instead of
+         * scanning the whole history.  The index is built at the first search
+         * and takes a few bytes per character of history.
+         */
+        HISTORY_SEARCH_INDEX,
         ;
 
         private final boolean def;
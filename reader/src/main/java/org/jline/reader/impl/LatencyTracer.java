@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.reader.impl;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Traces the latency between the time a key sequence is read and the
+ * time the resulting screen update is flushed.
+ *
+ * <p>Tracing is enabled by setting an instance of this class as the
+ * {@link org.jline.reader.LineReader#LATENCY_TRACER} variable of a line reader,
+ * which then timestamps each key sequence when its binding has been read,
+ * when the bound widget has been applied, when the buffer has been
+ * highlighted and when the display has been updated and flushed.
+ * The durations of each {@link Stage} are recorded in histograms,
+ * per widget name.</p>
+ *
+ * <p>The widget name is the name of the widget for widget references,
+ * <code>macro</code> for macros and <code>widget</code> for widgets
+ * bound directly.  Key sequences which do not result in a screen update,
+ * for example because another key was already available, are only
+ * recorded in the {@link Stage#WIDGET} histogram.</p>
+ */
+public class LatencyTracer {
+
+    /**
+     * The stages of the handling of a key sequence.
+     */
+    public enum Stage {
+        /** From the key sequence read to the end of the widget */
+        WIDGET,
+        /** From the end of the widget to the end of the highlighting */
+        HIGHLIGHT,
+        /** From the end of the highlighting, or of the widget if the buffer has not been highlighted, to the end of the display flush */
+        DISPLAY,
+        /** From the key sequence read to the end of the display flush */
+        TOTAL
+    }
+
+    private final Map<String, Map<Stage, LatencyHistogram>> histograms = new ConcurrentHashMap<>();
+
+    // Current trace, only accessed by the reading thread
+    private String widget;
+    private long keyTime;
+    private long widgetTime;
+    private long highlightTime;
+
+    /**
+     * Called when the binding of a key sequence has been read.
+     */
+    public void keyRead() {
+        widget = null;
+        keyTime = System.nanoTime();
+        widgetTime = 0L;
+        highlightTime = 0L;
+    }
+
+    /**
+     * Called when the widget bound to the key sequence has been applied.
+     *
+     * @param name the widget name
+     */
+    public void widgetDone(String name) {
+        if (keyTime != 0L) {
+            widget = name;
+            widgetTime = System.nanoTime();
+            histogram(name, Stage.WIDGET).record(widgetTime - keyTime);
+        }
+    }
+
+    /**
+     * Called when the buffer has been highlighted.
+     */
+    public void highlightDone() {
+        if (widgetTime != 0L && highlightTime == 0L) {
+            highlightTime = System.nanoTime();
+        }
+    }
+
+    /**
+     * Called when the display has been updated and flushed.
+     * This ends the current trace.
+     */
+    public void displayDone() {
+        if (widgetTime != 0L) {
+            long now = System.nanoTime();
+            if (highlightTime != 0L) {
+                histogram(widget, Stage.HIGHLIGHT).record(highlightTime - widgetTime);
+                histogram(widget, Stage.DISPLAY).record(now - highlightTime);
+            } else {
+                histogram(widget, Stage.DISPLAY).record(now - widgetTime);
+            }
+            histogram(widget, Stage.TOTAL).record(now - keyTime);
+        }
+        keyTime = 0L;
+        widgetTime = 0L;
+        highlightTime = 0L;
+    }
+
+    /**
+     * Returns the names of the widgets for which latencies have been recorded.
+     *
+     * @return the sorted widget names
+     */
+    public Set<String> getWidgets() {
+        return Collections.unmodifiableSet(new TreeSet<>(histograms.keySet()));
+    }
+
+    /**
+     * Returns the histogram of a stage for the given widget.
+     *
+     * @param widget the widget name
+     * @param stage the stage
+     * @return the histogram, or <code>null</code> if nothing has been recorded
+     */
+    public LatencyHistogram getHistogram(String widget, Stage stage) {
+        Map<Stage, LatencyHistogram> stages = histograms.get(widget);
+        return stages != null ? stages.get(stage) : null;
+    }
+
+    /**
+     * Returns the histogram of a stage for all widgets.
+     *
+     * @param stage the stage
+     * @return a new histogram merging the histograms of all widgets
+     */
+    public LatencyHistogram getHistogram(Stage stage) {
+        LatencyHistogram total = new LatencyHistogram();
+        for (Map<Stage, LatencyHistogram> stages : histograms.values()) {
+            LatencyHistogram histogram = stages.get(stage);
+            if (histogram != null) {
+                total.add(histogram);
+            }
+        }
+        return total;
+    }
+
+    public void reset() {
+        histograms.clear();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (String widget : getWidgets()) {
+            sb.append(widget).append(":\n");
+            for (Stage stage : Stage.values()) {
+                LatencyHistogram histogram = getHistogram(widget, stage);
+                if (histogram != null) {
+                    sb.append("  ").append(stage.name().toLowerCase())
+                            .append(": ").append(histogram).append("\n");
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private LatencyHistogram histogram(String widget, Stage stage) {
+        return histograms.computeIfAbsent(widget, w -> Collections.synchronizedMap(new EnumMap<>(Stage.class)))
+                .computeIfAbsent(stage, s -> new LatencyHistogram());
+    }
+
+}
@@ -20,6 +20,8 @@ import java.io.InterruptedIOException;
 import java.lang.reflect.Constructor;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.*;
@@ -27,7 +29,6 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 
 import org.jline.keymap.BindingReader;
 import org.jline.keymap.KeyMap;
@@ -48,6 +49,7 @@ import org.jline.utils.InfoCmp.Capability;
 import org.jline.utils.Log;
 import org.jline.utils.Status;
 import org.jline.utils.StyleResolver;
+import org.jline.utils.Threads;
 import org.jline.utils.WCWidth;
 
 import static org.jline.keymap.KeyMap.alt;
@@ -83,6 +85,9 @@ public class LineReaderImpl implements LineReader, Flushable
     public static final int    DEFAULT_ERRORS = 2;
     public static final long   DEFAULT_BLINK_MATCHING_PAREN = 500L;
     public static final long   DEFAULT_AMBIGUOUS_BINDING = 1000L;
+    public static final long   DEFAULT_REDISPLAY_MAX_DELAY = 50L;
+    public static final long   DEFAULT_PRINT_ABOVE_INTERVAL = 0L;
+    public static final int    DEFAULT_BURST_MIN_LENGTH = 32;
     public static final String DEFAULT_SECONDARY_PROMPT_PATTERN = "%M> ";
     public static final String DEFAULT_OTHERS_GROUP_NAME = "others";
     public static final String DEFAULT_ORIGINAL_GROUP_NAME = "original";
@@ -260,6 +265,47 @@ public class LineReaderImpl implements LineReader, Flushable
     protected ParsedLine parsedLine;
 
     protected boolean skipRedisplay;
+
+    /**
+     * The latency tracer of the key sequence being handled, if any
+     */
+    protected LatencyTracer latencyTracer;
+    /**
+     * The thread which has read the key sequence being traced
+     */
+    protected Thread latencyTracerThread;
+
+    /**
+     * Whether a redisplay has been deferred because more input was available
+     */
+    protected boolean redisplayPending;
+    protected long lastRedisplay;
+    protected volatile long framesPainted;
+    protected volatile long framesSkipped;
+
+    /**
+     * Messages waiting to be printed when {@link Option#ASYNC_PRINT_ABOVE} is set
+     */
+    protected final Queue<String> printAboveQueue = new ConcurrentLinkedQueue<>();
+    protected final AtomicBoolean printAboveScheduled = new AtomicBoolean();
+    protected volatile long lastPrintAbove;
+
+    /**
+     * The screen row of the first line of the prompt when it has been pinned
+     * at the bottom of the screen by {@link Option#PRINT_ABOVE_SCROLL_REGION},
+     * or <code>-1</code>
+     */
+    protected int promptRow = -1;
+    /**
+     * The number of lines printed above the prompt by {@link Option#PRINT_ABOVE_SCROLL_REGION}
+     * while it was not pinned, which is the least number of rows it has moved down
+     */
+    protected int linesAbovePrompt;
+    /**
+     * The number of lines displayed by the last redisplay
+     */
+    protected int displayedLines;
+
     protected Display display;
 
     protected boolean overTyping = false;
@@ -304,7 +350,27 @@ public class LineReaderImpl implements LineReader, Flushable
 
         builtinWidgets = builtinWidgets();
         widgets = new HashMap<>(builtinWidgets);
-        bindingReader = new BindingReader(terminal.reader());
+        bindingReader = new BindingReader(terminal.reader()) {
+            @Override
+            public int readCharacter() {
+                redisplayIfPending();
+                return super.readCharacter();
+            }
+
+            @Override
+            public int peekCharacter(long timeout) {
+                // readBinding waits here for the rest of an ambiguous key sequence
+                redisplayIfPending();
+                return super.peekCharacter(timeout);
+            }
+
+            private void redisplayIfPending() {
+                // Do not leave a deferred redisplay pending while waiting for input
+                if (redisplayPending && !hasTypeahead()) {
+                    redisplay();
+                }
+            }
+        };
         doDisplay();
     }
 
@@ -607,6 +673,8 @@ public class LineReaderImpl implements LineReader, Flushable
                 lock.lock();
 
                 this.reading = true;
+                this.promptRow = -1;
+                this.linesAbovePrompt = 0;
 
                 previousIntrHandler = terminal.handle(Signal.INT, signal -> readLineThread.interrupt());
                 previousWinchHandler = terminal.handle(Signal.WINCH, this::handleSignal);
@@ -652,6 +720,11 @@ public class LineReaderImpl implements LineReader, Flushable
                 if (o == null) {
                     throw new EndOfFileException().partialLine(buf.length() > 0 ? buf.toString() : null);
                 }
+                latencyTracer = getLatencyTracer();
+                latencyTracerThread = readLineThread;
+                if (latencyTracer != null) {
+                    latencyTracer.keyRead();
+                }
                 Log.trace("Binding: ", o);
                 if (buf.length() == 0 && getLastBinding().charAt(0) == originalAttributes.getControlChar(ControlChar.VEOF)) {
                     throw new EndOfFileException();
@@ -678,6 +751,19 @@ public class LineReaderImpl implements LineReader, Flushable
                     Widget w = getWidget(o);
                     if (!w.apply()) {
                         beep();
+                    } else if (local == null && count == 1 && isBuiltinSelfInsert(o)) {
+                        // Insert the typeahead also bound to self-insert at once,
+                        // so that a paste does not need an undo state and a
+                        // redisplay for each character
+                        int min = getInt(BURST_MIN_LENGTH, DEFAULT_BURST_MIN_LENGTH);
+                        String burst = bindingReader.readBurst(getKeys(), o, getBurstInnerBindings(),
+                                Math.max(1, min - 1), Integer.MAX_VALUE);
+                        if (!burst.isEmpty()) {
+                            putString(burst);
+                        }
+                    }
+                    if (latencyTracer != null) {
+                        latencyTracer.widgetDone(getWidgetName(o));
                     }
                     if (!isUndo && copy != null && buf.length() <= getInt(FEATURES_MAX_BUFFER_SIZE, DEFAULT_FEATURES_MAX_BUFFER_SIZE)
                             && !copy.toString().equals(buf.toString())) {
@@ -705,7 +791,12 @@ public class LineReaderImpl implements LineReader, Flushable
                     }
 
                     if (!dumb) {
-                        redisplay();
+                        if (isRedisplayDeferred()) {
+                            redisplayPending = true;
+                            framesSkipped++;
+                        } else {
+                            redisplay();
+                        }
                     }
                 } finally {
                     lock.unlock();
@@ -762,25 +853,136 @@ public class LineReaderImpl implements LineReader, Flushable
 
     @Override
     public void printAbove(String str) {
+        if (isSet(Option.ASYNC_PRINT_ABOVE)) {
+            printAboveQueue.add(str);
+            if (printAboveScheduled.compareAndSet(false, true)) {
+                Threads.newDaemonThread(this::drainPrintAbove, "JLine printAbove").start();
+            }
+            return;
+        }
         try {
             lock.lock();
+            printAboveQueue.add(str);
+            flushPrintAbove();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Prints the queued messages, waiting for the print-above-interval
+     * between two updates, until no more messages are queued.
+     */
+    private void drainPrintAbove() {
+        while (true) {
+            long interval = TimeUnit.MILLISECONDS.toNanos(getLong(PRINT_ABOVE_INTERVAL, DEFAULT_PRINT_ABOVE_INTERVAL));
+            long wait = lastPrintAbove + interval - System.nanoTime();
+            if (interval > 0 && wait > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            try {
+                lock.lock();
+                flushPrintAbove();
+            } catch (Throwable t) {
+                Log.warn("Unable to print above the prompt", t);
+                return;
+            } finally {
+                lock.unlock();
+                printAboveScheduled.set(false);
+            }
+            // Messages may have been queued after the flush, while the thread
+            // was still marked as scheduled
+            if (printAboveQueue.isEmpty() || !printAboveScheduled.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
 
-            boolean reading = this.reading;
+    /**
+     * Prints all the queued messages above the prompt at once.
+     * Must be called with the lock held.
+     */
+    protected void flushPrintAbove() {
+        StringBuilder sb = new StringBuilder();
+        String str;
+        while ((str = printAboveQueue.poll()) != null) {
+            sb.append(str);
+            if (!(str.endsWith("\n") || str.endsWith("\n\033[m") || str.endsWith("\n\033[0m"))) {
+                sb.append(System.lineSeparator());
+            }
+        }
+        if (sb.length() == 0) {
+            return;
+        }
+        boolean reading = this.reading;
+        if (reading && isSet(Option.PRINT_ABOVE_SCROLL_REGION) && canUseScrollRegion()) {
+            printInScrollRegion(sb.toString());
+        } else {
             if (reading) {
                 display.update(Collections.emptyList(), 0);
             }
-            if (str.endsWith("\n") || str.endsWith("\n\033[m") || str.endsWith("\n\033[0m")) {
-                terminal.writer().print(str);
-            } else {
-                terminal.writer().println(str);
-            }
+            terminal.writer().print(sb);
             if (reading) {
                 redisplay(false);
             }
-            terminal.flush();
-        } finally {
-            lock.unlock();
         }
+        terminal.flush();
+        lastPrintAbove = System.nanoTime();
+    }
+
+    private boolean canUseScrollRegion() {
+        return !isTerminalDumb()
+                && size.getRows() >= MIN_ROWS
+                && displayedLines < displayRows()
+                && terminal.getStringCapability(Capability.change_scroll_region) != null
+                && terminal.getStringCapability(Capability.save_cursor) != null
+                && terminal.getStringCapability(Capability.restore_cursor) != null
+                && terminal.getStringCapability(Capability.cursor_address) != null
+                && terminal.getStringCapability(Capability.scroll_forward) != null
+                && terminal.getStringCapability(Capability.carriage_return) != null;
+    }
+
+    /**
+     * Prints the given lines in a scroll region made of the rows above the prompt.
+     * The row of the prompt is not known at first, so the messages are printed
+     * in place of the prompt, which is redrawn below them, until they have filled
+     * the screen. The prompt is then at the bottom of the screen, where it is pinned,
+     * so that the messages can be printed without redrawing it.
+     */
+    private void printInScrollRegion(String str) {
+        int bottom = displayRows();
+        if (promptRow <= 0) {
+            display.update(Collections.emptyList(), 0);
+            terminal.writer().print(str);
+            redisplay(false);
+            for (int i = str.indexOf('\n'); i >= 0; i = str.indexOf('\n', i + 1)) {
+                linesAbovePrompt++;
+            }
+            int lines = Math.max(displayedLines, 1);
+            if (linesAbovePrompt >= bottom - lines) {
+                promptRow = bottom - lines;
+            }
+            return;
+        }
+        terminal.puts(Capability.save_cursor);
+        terminal.puts(Capability.change_scroll_region, 0, promptRow - 1);
+        terminal.puts(Capability.cursor_address, promptRow - 1, 0);
+        int start = 0;
+        int end;
+        while ((end = str.indexOf('\n', start)) >= 0) {
+            terminal.puts(Capability.scroll_forward);
+            terminal.puts(Capability.carriage_return);
+            terminal.writer().write(str, start, end - start);
+            start = end + 1;
+        }
+        // Trailing attributes reset
+        terminal.writer().write(str, start, str.length() - start);
+        terminal.puts(Capability.change_scroll_region, 0, bottom - 1);
+        terminal.puts(Capability.restore_cursor);
     }
 
     @Override
@@ -1145,6 +1347,13 @@ public class LineReaderImpl implements LineReader, Flushable
     protected void handleSignal(Signal signal) {
         doAutosuggestion = false;
         if (signal == Signal.WINCH) {
+            try {
+                lock.lock();
+                promptRow = -1;
+                linesAbovePrompt = 0;
+            } finally {
+                lock.unlock();
+            }
             Status status = Status.getStatus(terminal, false);
             if (status != null) {
                 status.hardReset();
@@ -1165,6 +1374,87 @@ public class LineReaderImpl implements LineReader, Flushable
         }
     }
 
+    /**
+     * Returns the latency tracer set as the {@link #LATENCY_TRACER} variable.
+     *
+     * @return the latency tracer, or <code>null</code> if tracing is disabled
+     */
+    public LatencyTracer getLatencyTracer() {
+        Object tracer = getVariable(LATENCY_TRACER);
+        return tracer instanceof LatencyTracer ? (LatencyTracer) tracer : null;
+    }
+
+    /**
+     * Returns the number of times the display has been updated.
+     *
+     * @return the number of frames painted
+     */
+    public long getFramesPainted() {
+        return framesPainted;
+    }
+
+    /**
+     * Returns the number of times the display update following a key sequence
+     * has been deferred because more input was available.
+     *
+     * @return the number of frames skipped
+     * @see Option#COALESCE_REDISPLAY
+     */
+    public long getFramesSkipped() {
+        return framesSkipped;
+    }
+
+    private boolean isRedisplayDeferred() {
+        if (!isSet(Option.COALESCE_REDISPLAY) || !bindingReader.hasTypeahead()) {
+            return false;
+        }
+        long maxDelay = getLong(REDISPLAY_MAX_DELAY, DEFAULT_REDISPLAY_MAX_DELAY);
+        return System.nanoTime() - lastRedisplay < TimeUnit.MILLISECONDS.toNanos(maxDelay);
+    }
+
+    /**
+     * The latency is only traced on the thread reading the key sequences,
+     * a redisplay from another thread, such as on a resize, is not part of
+     * the handling of the current key sequence.
+     */
+    private boolean isTracingLatency() {
+        return latencyTracer != null && latencyTracerThread == Thread.currentThread();
+    }
+
+    private boolean isBuiltinSelfInsert(Binding binding) {
+        return binding instanceof Reference
+                && SELF_INSERT.equals(((Reference) binding).name())
+                && widgets.get(SELF_INSERT) == builtinWidgets.get(SELF_INSERT);
+    }
+
+    /**
+     * The built-in insert-close widgets only insert their character when
+     * more input is available and no indentation has to be removed,
+     * so they can be handled as part of a burst of self-insert.
+     */
+    private Set<Binding> getBurstInnerBindings() {
+        if (getInt(INDENTATION, DEFAULT_INDENTATION) > 0) {
+            return Collections.emptySet();
+        }
+        Set<Binding> inner = new HashSet<>();
+        for (String name : Arrays.asList(INSERT_CLOSE_CURLY, INSERT_CLOSE_PAREN, INSERT_CLOSE_SQUARE)) {
+            if (widgets.get(name) == builtinWidgets.get(name)) {
+                inner.add(new Reference(name));
+            }
+        }
+        return inner;
+    }
+
+    protected String getWidgetName(Object binding) {
+        if (binding instanceof Reference) {
+            return ((Reference) binding).name();
+        } else if (binding instanceof Macro) {
+            return "macro";
+        } else {
+            return "widget";
+        }
+    }
+
     @SuppressWarnings("unchecked")
     protected Widget getWidget(Object binding) {
         Widget w;
@@ -2165,9 +2455,12 @@ public class LineReaderImpl implements LineReader, Flushable
 
         buf.move(-1);
         doViMatchBracket();
-        redisplay();
-
-        peekCharacter(blink);
+        // No need to show the matching bracket if more input, such as
+        // the remaining of a paste, is already available
+        if (!bindingReader.hasTypeahead()) {
+            redisplay();
+            peekCharacter(blink);
+        }
         int blinkPosition = buf.cursor();
         buf.cursor(closePosition);
 
@@ -2639,11 +2932,7 @@ public class LineReaderImpl implements LineReader, Flushable
                                 .max(Comparator.comparing(Pair::getV))
                                 .orElse(null);
                         if (pair == null) {
-                            pair = StreamSupport.stream(
-                                    Spliterators.spliteratorUnknownSize(history.reverseIterator(searchIndex < 0 ? history.last() : searchIndex - 1), Spliterator.ORDERED), false)
-                                    .flatMap(e -> matches(pat, e.line(), e.index()).stream())
-                                    .findFirst()
-                                    .orElse(null);
+                            pair = searchHistory(pat, searchIndex < 0 ? history.last() : searchIndex - 1, true);
                         }
                     } else {
                         boolean nextOnly = next;
@@ -2652,11 +2941,7 @@ public class LineReaderImpl implements LineReader, Flushable
                                 .min(Comparator.comparing(Pair::getV))
                                 .orElse(null);
                         if (pair == null) {
-                            pair = StreamSupport.stream(
-                                    Spliterators.spliteratorUnknownSize(history.iterator((searchIndex < 0 ? history.last() : searchIndex) + 1), Spliterator.ORDERED), false)
-                                    .flatMap(e -> matches(pat, e.line(), e.index()).stream())
-                                    .findFirst()
-                                    .orElse(null);
+                            pair = searchHistory(pat, (searchIndex < 0 ? history.last() : searchIndex) + 1, false);
                             if (pair == null && searchIndex >= 0) {
                                 pair = matches(pat, originalBuffer.toString(), -1).stream()
                                         .min(Comparator.comparing(Pair::getV))
@@ -2694,6 +2979,22 @@ public class LineReaderImpl implements LineReader, Flushable
         }
     }
 
+    /**
+     * Find the first history entry matching the given pattern, only checking
+     * the entries the history reports as possibly containing the search term.
+     */
+    private Pair<Integer, Integer> searchHistory(Pattern pattern, int index, boolean backward) {
+        Matcher matcher = pattern.matcher("");
+        Iterator<History.Entry> it = history.searchIterator(searchTerm.toString(), index, backward);
+        while (it.hasNext()) {
+            History.Entry e = it.next();
+            if (matcher.reset(e.line()).find()) {
+                return new Pair<>(e.index(), matcher.start());
+            }
+        }
+        return null;
+    }
+
     private List<Pair<Integer, Integer>> matches(Pattern p, String line, int index) {
         List<Pair<Integer, Integer>> starts = new ArrayList<>();
         Matcher m = p.matcher(line);
@@ -2836,18 +3137,10 @@ public class LineReaderImpl implements LineReader, Flushable
 
     public int searchBackwards(String searchTerm, int startIndex, boolean startsWith) {
         boolean caseInsensitive = isSet(Option.CASE_INSENSITIVE_SEARCH);
-        if (caseInsensitive) {
-            searchTerm = searchTerm.toLowerCase();
-        }
-        ListIterator<History.Entry> it = history.iterator(startIndex);
-        while (it.hasPrevious()) {
-            History.Entry e = it.previous();
-            String line = e.line();
-            if (caseInsensitive) {
-                line = line.toLowerCase();
-            }
-            int idx = line.indexOf(searchTerm);
-            if ((startsWith && idx == 0) || (!startsWith && idx >= 0)) {
+        Iterator<History.Entry> it = history.searchIterator(searchTerm, startIndex - 1, true);
+        while (it.hasNext()) {
+            History.Entry e = it.next();
+            if (contains(e.line(), searchTerm, caseInsensitive, startsWith)) {
                 return e.index();
             }
         }
@@ -2856,30 +3149,47 @@ public class LineReaderImpl implements LineReader, Flushable
 
     public int searchForwards(String searchTerm, int startIndex, boolean startsWith) {
         boolean caseInsensitive = isSet(Option.CASE_INSENSITIVE_SEARCH);
-        if (caseInsensitive) {
-            searchTerm = searchTerm.toLowerCase();
-        }
         if (startIndex > history.last()) {
             startIndex = history.last();
         }
-        ListIterator<History.Entry> it = history.iterator(startIndex);
-        if (searchIndex != -1 && it.hasNext()) {
-            it.next();
+        if (searchIndex != -1 && startIndex >= history.first()) {
+            startIndex++;
         }
+        Iterator<History.Entry> it = history.searchIterator(searchTerm, startIndex, false);
         while (it.hasNext()) {
             History.Entry e = it.next();
-            String line = e.line();
-            if (caseInsensitive) {
-                line = line.toLowerCase();
-            }
-            int idx = line.indexOf(searchTerm);
-            if ((startsWith && idx == 0) || (!startsWith && idx >= 0)) {
+            if (contains(e.line(), searchTerm, caseInsensitive, startsWith)) {
                 return e.index();
             }
         }
         return -1;
     }
 
+    /**
+     * Check if the line contains the search term, without allocating
+     * when the comparison ignores case.
+     */
+    private static boolean contains(String line, String searchTerm, boolean caseInsensitive, boolean startsWith) {
+        if (startsWith || searchTerm.isEmpty()) {
+            return line.regionMatches(caseInsensitive, 0, searchTerm, 0, searchTerm.length());
+        } else if (!caseInsensitive) {
+            return line.contains(searchTerm);
+        }
+        char upper = Character.toUpperCase(searchTerm.charAt(0));
+        char lower = Character.toLowerCase(searchTerm.charAt(0));
+        boolean ascii = upper < 128 && lower < 128;
+        for (int i = 0; i + searchTerm.length() <= line.length(); i++) {
+            // only compare the whole term where its first character matches
+            char c = line.charAt(i);
+            if ((c == upper || c == lower
+                    || (!ascii || c >= 128) && (Character.toUpperCase(c) == upper || Character.toLowerCase(c) == lower))
+                    && line.regionMatches(true, i, searchTerm, 0, searchTerm.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Search forward in history from a given position.
      *
@@ -3786,11 +4096,14 @@ public class LineReaderImpl implements LineReader, Flushable
     }
 
     protected void redisplay(boolean flush) {
+        boolean skipped = false;
         try {
             lock.lock();
+            terminal.beginFrame();
 
             if (skipRedisplay) {
                 skipRedisplay = false;
+                skipped = true;
                 return;
             }
 
@@ -3841,6 +4154,7 @@ public class LineReaderImpl implements LineReader, Flushable
                 }
 
                 display.update(Collections.singletonList(full), cursor - smallTerminalOffset, flush);
+                displayed(status, 1);
                 return;
             }
 
@@ -3922,11 +4236,29 @@ public class LineReaderImpl implements LineReader, Flushable
                 newLinesToDisplay = newLines;
             }
             display.update(newLinesToDisplay, cursorPos, flush);
+            displayed(status, newLinesToDisplay.size());
         } finally {
+            terminal.endFrame();
+            if (!skipped) {
+                redisplayPending = false;
+                lastRedisplay = System.nanoTime();
+                framesPainted++;
+            }
+            if (flush && !skipped && isTracingLatency()) {
+                latencyTracer.displayDone();
+            }
             lock.unlock();
         }
     }
 
+    private void displayed(Status status, int lines) {
+        displayedLines = lines;
+        // Lines added at the bottom of the screen scroll the prompt up
+        if (promptRow >= 0) {
+            promptRow = Math.max(0, Math.min(promptRow, displayRows(status) - lines));
+        }
+    }
+
     private void concat(List<AttributedString> lines, AttributedStringBuilder sb) {
         if (lines.size() > 1) {
             for (int i = 0; i < lines.size() - 1; i++) {
@@ -4038,7 +4370,11 @@ public class LineReaderImpl implements LineReader, Flushable
         }
         if (highlighter != null && !isSet(Option.DISABLE_HIGHLIGHTER)
                 && buffer.length() < getInt(FEATURES_MAX_BUFFER_SIZE, DEFAULT_FEATURES_MAX_BUFFER_SIZE)) {
-            return highlighter.highlight(this, buffer);
+            AttributedString highlighted = highlighter.highlight(this, buffer);
+            if (isTracingLatency()) {
+                latencyTracer.highlightDone();
+            }
+            return highlighted;
         }
         return new AttributedString(buffer);
     }
@@ -5772,6 +6108,8 @@ public class LineReaderImpl implements LineReader, Flushable
      * @return <code>true</code>
      */
     public boolean clearScreen() {
+        promptRow = -1;
+        linesAbovePrompt = 0;
         if (terminal.puts(Capability.clear_screen)) {
             // ConEMU extended fonts support
             if (AbstractWindowsTerminal.TYPE_WINDOWS_CONEMU.equals(terminal.getType())
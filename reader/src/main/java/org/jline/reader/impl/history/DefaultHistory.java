@@ -9,14 +9,20 @@
 package org.jline.reader.impl.history;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.DateTimeException;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.jline.reader.History;
 import org.jline.reader.LineReader;
 import org.jline.utils.Log;
+import org.jline.utils.Threads;
 
 import static org.jline.reader.LineReader.HISTORY_IGNORE;
 import static org.jline.reader.impl.ReaderUtils.*;
@@ -33,7 +39,11 @@ public class DefaultHistory implements History {
     public static final int DEFAULT_HISTORY_SIZE = 500;
     public static final int DEFAULT_HISTORY_FILE_SIZE = 10000;
 
-    private final LinkedList<Entry> items = new LinkedList<>();
+    // File locks are held by the whole JVM, so the histories
+    // of a same JVM also need to exclude each other
+    private static final Object SHARED_LOCK = new Object();
+
+    private final RingBuffer<Entry> items = new RingBuffer<>();
 
     private LineReader reader;
 
@@ -41,6 +51,23 @@ public class DefaultHistory implements History {
     private int offset = 0;
     private int index = 0;
 
+    // Number of entries for each trimmed line, only built when duplicates are checked
+    private Map<String, Integer> trimmedLines;
+    private int trimmedLinesVersion;
+
+    // Trigram index of the lines, only built with the HISTORY_SEARCH_INDEX option
+    private HistorySearchIndex searchIndex;
+    private int searchIndexVersion;
+
+    // Index of the history file, only used with the HISTORY_JOURNAL option
+    private HistoryJournal journal;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    // Position up to which the history file has been read and the identity
+    // of the file, only used with the HISTORY_SHARED option
+    private long sharedOffset;
+    private Object sharedFileKey;
+
     public DefaultHistory() {
     }
 
@@ -61,6 +88,30 @@ public class DefaultHistory implements History {
         }
     }
 
+    /**
+     * Returns the journal of the given file if it is the history file
+     * of the line reader and the {@link LineReader.Option#HISTORY_JOURNAL}
+     * option is set, or <code>null</code>.
+     */
+    private HistoryJournal getJournal(Path path) {
+        if (!isSet(reader, LineReader.Option.HISTORY_JOURNAL) || !isHistoryFile(path)) {
+            return null;
+        }
+        if (journal == null || !journal.getPath().equals(path.toAbsolutePath())) {
+            journal = new HistoryJournal(path);
+        }
+        return journal;
+    }
+
+    private boolean isShared(Path path) {
+        return isSet(reader, LineReader.Option.HISTORY_SHARED) && isHistoryFile(path);
+    }
+
+    private boolean isHistoryFile(Path path) {
+        Path lrp = getPath();
+        return path != null && lrp != null && lrp.toAbsolutePath().equals(path.toAbsolutePath());
+    }
+
     @Override
     public void attach(LineReader reader) {
         if (this.reader != reader) {
@@ -71,28 +122,62 @@ public class DefaultHistory implements History {
             catch (IllegalArgumentException | IOException e) {
                 Log.warn("Failed to load history", e);
             }
+        } else if (isShared(getPath())) {
+            // pick up the entries added by other sessions at each prompt
+            try {
+                syncSharedHistory(getPath());
+            } catch (IllegalArgumentException | IOException e) {
+                Log.warn("Failed to synchronize shared history", e);
+            }
         }
     }
 
     @Override
     public void load() throws IOException {
         Path path = getPath();
-        if (path != null) {
-            try {
-                if (Files.exists(path)) {
-                    Log.trace("Loading history from: ", path);
-                    try (BufferedReader reader = Files.newBufferedReader(path)) {
-                        internalClear();
-                        reader.lines().forEach(line -> addHistoryLine(path, line));
-                        setHistoryFileData(path, new HistoryFileData(items.size(), offset + items.size()));
-                        maybeResize();
-                    }
+        if (isShared(path)) {
+            synchronized (SHARED_LOCK) {
+                FileChannel lock = lockHistoryFile(path);
+                try {
+                    doLoad(path);
+                    sharedOffset = Files.exists(path) ? Files.size(path) : 0;
+                    sharedFileKey = fileKey(path);
+                } finally {
+                    lock.close();
                 }
-            } catch (IllegalArgumentException | IOException e) {
-                Log.debug("Failed to load history; clearing", e);
+            }
+        } else if (path != null) {
+            doLoad(path);
+        }
+    }
+
+    private void doLoad(Path path) throws IOException {
+        try {
+            HistoryJournal journal = getJournal(path);
+            if (journal != null && Files.exists(path)) {
+                Log.trace("Loading history tail from: ", path);
                 internalClear();
-                throw e;
+                synchronized (journal) {
+                    List<String> lines = journal.readTail(getInt(reader, LineReader.HISTORY_SIZE, DEFAULT_HISTORY_SIZE));
+                    int entries = (int) journal.getEntries();
+                    offset = entries - lines.size();
+                    lines.forEach(line -> addHistoryLine(path, line));
+                    setHistoryFileData(path, new HistoryFileData(items.size(), entries));
+                }
+                maybeResize();
+            } else if (Files.exists(path)) {
+                Log.trace("Loading history from: ", path);
+                try (BufferedReader reader = Files.newBufferedReader(path)) {
+                    internalClear();
+                    reader.lines().forEach(line -> addHistoryLine(path, line));
+                    setHistoryFileData(path, new HistoryFileData(items.size(), offset + items.size()));
+                    maybeResize();
+                }
             }
+        } catch (IllegalArgumentException | IOException e) {
+            Log.debug("Failed to load history; clearing", e);
+            internalClear();
+            throw e;
         }
     }
 
@@ -196,6 +281,10 @@ public class DefaultHistory implements History {
         if (path != null) {
             Log.trace("Purging history from: ", path);
             Files.deleteIfExists(path);
+            HistoryJournal journal = getJournal(path);
+            if (journal != null) {
+                journal.invalidate();
+            }
         }
     }
 
@@ -204,6 +293,10 @@ public class DefaultHistory implements History {
         Path path = file != null ? file : getPath();
         if (path != null && Files.exists(path)) {
             path.toFile().delete();
+            HistoryJournal journal = getJournal(path);
+            if (journal != null) {
+                journal.invalidate();
+            }
         }
         internalWrite(path, incremental ? getLastLoaded(path) : 0);
     }
@@ -216,7 +309,148 @@ public class DefaultHistory implements History {
 
     @Override
     public void save() throws IOException {
-        internalWrite(getPath(), getLastLoaded(getPath()));
+        if (isShared(getPath())) {
+            syncSharedHistory(getPath());
+        } else {
+            internalWrite(getPath(), getLastLoaded(getPath()));
+        }
+    }
+
+    /**
+     * Synchronize the history with the history file shared with other sessions.
+     * While holding a lock on the file, the lines appended by other sessions
+     * since the last synchronization are read by tailing the file, and the
+     * new entries of this history are appended after them.
+     */
+    private void syncSharedHistory(Path path) throws IOException {
+        Log.trace("Synchronizing shared history: ", path);
+        synchronized (SHARED_LOCK) {
+            FileChannel lock = lockHistoryFile(path);
+            try (FileChannel channel = FileChannel.open(path.toAbsolutePath(),
+                    StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+                // Read the lines appended by other sessions, or the whole
+                // file if it has been trimmed or replaced
+                Object fileKey = fileKey(path);
+                boolean replaced = channel.size() < sharedOffset
+                        || (fileKey != null && !fileKey.equals(sharedFileKey));
+                if (replaced) {
+                    sharedOffset = 0;
+                }
+                List<String> lines = readNewLines(channel);
+                // Put aside the entries which have not been saved yet
+                int from = Math.min(getLastLoaded(path), items.size());
+                List<Entry> pending = new ArrayList<>(items.subList(from, items.size()));
+                while (items.size() > from) {
+                    items.remove(items.size() - 1);
+                }
+                try {
+                    for (String line : lines) {
+                        try {
+                            addHistoryLine(path, line, replaced);
+                        } catch (IllegalArgumentException e) {
+                            Log.warn("Skipping invalid line of shared history ", path, ": ", line);
+                        }
+                    }
+                } finally {
+                    // Put the pending entries back after them
+                    for (Entry entry : pending) {
+                        internalAdd(entry.time(), entry.line());
+                    }
+                }
+                // and append them to the file
+                StringBuilder sb = new StringBuilder();
+                for (Entry entry : pending) {
+                    if (isPersistable(entry)) {
+                        sb.append(format(entry));
+                    }
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+                long position = channel.size();
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+                sharedOffset = position;
+                sharedFileKey = fileKey;
+                HistoryJournal journal = getJournal(path);
+                if (journal != null) {
+                    setEntriesInFile(path, (int) journal.refresh());
+                } else if (replaced) {
+                    setEntriesInFile(path, lines.size() + pending.size());
+                } else {
+                    incEntriesInFile(path, lines.size() + pending.size());
+                }
+                setLastLoaded(path, items.size());
+                // Trim the file while still holding the lock
+                int max = getInt(reader, LineReader.HISTORY_FILE_SIZE, DEFAULT_HISTORY_FILE_SIZE);
+                if (getEntriesInFile(path) > max + max / 4) {
+                    trimHistory(path, max);
+                    if (journal != null) {
+                        journal.invalidate();
+                    }
+                    sharedOffset = Files.size(path);
+                    sharedFileKey = fileKey(path);
+                }
+            } finally {
+                lock.close();
+            }
+        }
+    }
+
+    /**
+     * Reads the complete lines appended to the history file since the last
+     * synchronization, advancing the remembered offset.
+     */
+    private List<String> readNewLines(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size <= sharedOffset) {
+            return Collections.emptyList();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size - sharedOffset, Integer.MAX_VALUE));
+        while (buffer.hasRemaining() && channel.read(buffer, sharedOffset + buffer.position()) > 0) {
+            // read the new bytes
+        }
+        byte[] bytes = buffer.array();
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < buffer.position(); i++) {
+            if (bytes[i] == '\n') {
+                int end = i > start && bytes[i - 1] == '\r' ? i - 1 : i;
+                lines.add(new String(bytes, start, end - start, StandardCharsets.UTF_8));
+                start = i + 1;
+            }
+        }
+        sharedOffset += start;
+        return lines;
+    }
+
+    /**
+     * Lock the history file, using a separate lock file which,
+     * unlike the history file, is never replaced.
+     * The lock is released when the returned channel is closed.
+     */
+    private static FileChannel lockHistoryFile(Path path) throws IOException {
+        Path file = path.toAbsolutePath();
+        Path parent = file.getParent();
+        if (!Files.exists(parent)) {
+            Files.createDirectories(parent);
+        }
+        Path lockFile = file.resolveSibling(file.getFileName() + ".lock");
+        FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        try {
+            channel.lock();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    private static Object fileKey(Path path) throws IOException {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
     }
 
     private void internalWrite(Path path, int from) throws IOException {
@@ -226,28 +460,95 @@ public class DefaultHistory implements History {
             if (!Files.exists(parent)) {
                 Files.createDirectories(parent);
             }
-            // Append new items to the history file
-            try (BufferedWriter writer = Files.newBufferedWriter(path.toAbsolutePath(),
-              StandardOpenOption.WRITE, StandardOpenOption.APPEND, StandardOpenOption.CREATE)) {
-                for (Entry entry : items.subList(from, items.size())) {
-                    if (isPersistable(entry)) {
-                        writer.append(format(entry));
-                    }
-                }
-            }
-            incEntriesInFile(path, items.size() - from);
+            HistoryJournal journal = getJournal(path);
             int max = getInt(reader, LineReader.HISTORY_FILE_SIZE, DEFAULT_HISTORY_FILE_SIZE);
-            if (getEntriesInFile(path) > max + max / 4) {
-                trimHistory(path, max);
+            if (journal != null) {
+                synchronized (journal) {
+                    appendEntries(path, from);
+                    setEntriesInFile(path, (int) journal.refresh());
+                }
+                if (getEntriesInFile(path) > max + max / 4) {
+                    compactHistory(journal, max);
+                }
+            } else {
+                appendEntries(path, from);
+                incEntriesInFile(path, items.size() - from);
+                if (getEntriesInFile(path) > max + max / 4) {
+                    trimHistory(path, max);
+                }
             }
         }
         setLastLoaded(path, items.size());
     }
 
+    private void appendEntries(Path path, int from) throws IOException {
+        // Append new items to the history file
+        try (BufferedWriter writer = Files.newBufferedWriter(path.toAbsolutePath(),
+          StandardOpenOption.WRITE, StandardOpenOption.APPEND, StandardOpenOption.CREATE)) {
+            for (Entry entry : items.subList(from, items.size())) {
+                if (isPersistable(entry)) {
+                    writer.append(format(entry));
+                }
+            }
+        }
+    }
+
+    /**
+     * Compact the journaled history file in a background thread.  The entries
+     * kept in memory are left untouched, and the entries appended while the
+     * file is being compacted are preserved.
+     */
+    private void compactHistory(HistoryJournal journal, int max) {
+        if (compacting.compareAndSet(false, true)) {
+            boolean timestamped = isSet(reader, LineReader.Option.HISTORY_TIMESTAMPED);
+            Threads.newDaemonThread(() -> {
+                try {
+                    doCompactHistory(journal, max, timestamped);
+                } catch (IOException | RuntimeException e) {
+                    Log.warn("Failed to compact history", e);
+                } finally {
+                    compacting.set(false);
+                }
+            }, "JLine history compaction").start();
+        }
+    }
+
+    private void doCompactHistory(HistoryJournal journal, int max, boolean timestamped) throws IOException {
+        Path path = journal.getPath();
+        Log.trace("Compacting history path: ", path);
+        long length;
+        synchronized (journal) {
+            journal.refresh();
+            length = journal.getLength();
+        }
+        List<Entry> allItems = new ArrayList<>();
+        for (String l : journal.readLines(length)) {
+            Instant time = Instant.EPOCH;
+            if (timestamped) {
+                int idx = l.indexOf(':');
+                time = Instant.ofEpochMilli(Long.parseLong(l.substring(0, idx)));
+                l = l.substring(idx + 1);
+            }
+            allItems.add(createEntry(allItems.size(), time, unescape(l)));
+        }
+        List<Entry> trimmedItems = doTrimHistory(allItems, max);
+        Path temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardOpenOption.WRITE)) {
+                for (Entry entry : trimmedItems) {
+                    writer.append(format(entry, timestamped));
+                }
+            }
+            journal.replace(temp, length);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
     protected void trimHistory(Path path, int max) throws IOException {
         Log.trace("Trimming history path: ", path);
         // Load all history entries
-        LinkedList<Entry> allItems = new LinkedList<>();
+        List<Entry> allItems = new ArrayList<>();
         try (BufferedReader reader = Files.newBufferedReader(path)) {
             reader.lines().forEach(l -> {
                 int idx = l.indexOf(':');
@@ -273,7 +574,7 @@ public class DefaultHistory implements History {
             items.addAll(trimmedItems);
             setHistoryFileData(path, new HistoryFileData(items.size(), items.size()));
         } else {
-            setEntriesInFile(path, allItems.size());
+            setEntriesInFile(path, trimmedItems.size());
         }
         maybeResize();
     }
@@ -294,28 +595,29 @@ public class DefaultHistory implements History {
         index = 0;
         historyFiles = new HashMap<>();
         items.clear();
+        trimmedLines = null;
+        searchIndex = null;
     }
 
     static List<Entry> doTrimHistory(List<Entry> allItems, int max) {
-        int idx = 0;
-        while (idx < allItems.size()) {
-            int ridx = allItems.size() - idx - 1;
-            String line = allItems.get(ridx).line().trim();
-            ListIterator<Entry> iterator = allItems.listIterator(ridx);
-            while (iterator.hasPrevious()) {
-                String l = iterator.previous().line();
-                if (line.equals(l.trim())) {
-                    iterator.remove();
-                }
+        // Keep the last occurrence of each line, walking backward
+        // until the maximum number of entries is reached
+        Set<String> lines = new HashSet<>();
+        List<Entry> kept = new ArrayList<>();
+        ListIterator<Entry> iterator = allItems.listIterator(allItems.size());
+        while (iterator.hasPrevious() && kept.size() < max) {
+            Entry entry = iterator.previous();
+            if (lines.add(entry.line().trim())) {
+                kept.add(entry);
             }
-            idx++;
         }
-        while (allItems.size() > max) {
-            allItems.remove(0);
+        if (kept.isEmpty()) {
+            return kept;
         }
-        int index = allItems.get(allItems.size() - 1).index() - allItems.size() + 1;
-        List<Entry> out = new ArrayList<>();
-        for (Entry e : allItems) {
+        Collections.reverse(kept);
+        int index = allItems.get(allItems.size() - 1).index() - kept.size() + 1;
+        List<Entry> out = new ArrayList<>(kept.size());
+        for (Entry e : kept) {
             out.add(new EntryImpl(index++, e.time(), e.line()));
         }
         return out;
@@ -342,7 +644,11 @@ public class DefaultHistory implements History {
     }
 
     private String format(Entry entry) {
-        if (reader.isSet(LineReader.Option.HISTORY_TIMESTAMPED)) {
+        return format(entry, reader.isSet(LineReader.Option.HISTORY_TIMESTAMPED));
+    }
+
+    private static String format(Entry entry, boolean timestamped) {
+        if (timestamped) {
             return entry.time().toEpochMilli() + ":" + escape(entry.line()) + "\n";
         }
         return escape(entry.line()) + "\n";
@@ -379,7 +685,8 @@ public class DefaultHistory implements History {
             return;
         }
         internalAdd(time, line);
-        if (isSet(reader, LineReader.Option.HISTORY_INCREMENTAL)) {
+        if (isSet(reader, LineReader.Option.HISTORY_INCREMENTAL)
+                || isSet(reader, LineReader.Option.HISTORY_SHARED)) {
             try {
                 save();
             }
@@ -416,20 +723,93 @@ public class DefaultHistory implements History {
     
     protected void internalAdd(Instant time, String line, boolean checkDuplicates) {
         Entry entry = new EntryImpl(offset + items.size(), time, line);
-        if (checkDuplicates) {
-            for (Entry e: items) {
-                if (e.line().trim().equals(line.trim())) {
-                    return;
-                }
-            }
+        if (checkDuplicates && trimmedLines().containsKey(line.trim())) {
+            return;
         }
+        boolean indexed = isTrimmedLinesValid();
+        boolean searchIndexed = isSearchIndexValid();
         items.add(entry);
+        if (indexed) {
+            trimmedLines.merge(line.trim(), 1, Integer::sum);
+            trimmedLinesVersion = items.getVersion();
+        }
+        if (searchIndexed) {
+            searchIndex.add(entry.index(), line);
+            searchIndexVersion = items.getVersion();
+        }
         maybeResize();
     }
 
+    /**
+     * Returns the index of the trimmed lines of the entries, building it
+     * if it has not been kept up to date with the entries.
+     */
+    private Map<String, Integer> trimmedLines() {
+        if (!isTrimmedLinesValid()) {
+            trimmedLines = new HashMap<>();
+            for (Entry e : items) {
+                trimmedLines.merge(e.line().trim(), 1, Integer::sum);
+            }
+            trimmedLinesVersion = items.getVersion();
+        }
+        return trimmedLines;
+    }
+
+    private boolean isTrimmedLinesValid() {
+        return trimmedLines != null && trimmedLinesVersion == items.getVersion();
+    }
+
+    @Override
+    public Iterator<Entry> searchIterator(String term, int index, boolean backward) {
+        if (!isSet(reader, LineReader.Option.HISTORY_SEARCH_INDEX) || !HistorySearchIndex.isIndexable(term)) {
+            return History.super.searchIterator(term, index, backward);
+        }
+        PrimitiveIterator.OfInt it = searchIndex().search(term, index, first(), last(), backward);
+        return new Iterator<Entry>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Entry next() {
+                return items.get(it.nextInt() - offset);
+            }
+        };
+    }
+
+    /**
+     * Returns the search index of the entries, building it if it has not been
+     * kept up to date with the entries or holds too many evicted entries.
+     */
+    private HistorySearchIndex searchIndex() {
+        if (!isSearchIndexValid() || offset - searchIndex.getFirst() > items.size()) {
+            searchIndex = new HistorySearchIndex(offset);
+            for (Entry e : items) {
+                searchIndex.add(e.index(), e.line());
+            }
+            searchIndexVersion = items.getVersion();
+        }
+        return searchIndex;
+    }
+
+    private boolean isSearchIndexValid() {
+        return searchIndex != null && searchIndexVersion == items.getVersion();
+    }
+
     private void maybeResize() {
         while (size() > getInt(reader, LineReader.HISTORY_SIZE, DEFAULT_HISTORY_SIZE)) {
-            items.removeFirst();
+            boolean indexed = isTrimmedLinesValid();
+            boolean searchIndexed = isSearchIndexValid();
+            Entry removed = items.removeFirst();
+            if (indexed) {
+                trimmedLines.computeIfPresent(removed.line().trim(), (l, n) -> n > 1 ? n - 1 : null);
+                trimmedLinesVersion = items.getVersion();
+            }
+            if (searchIndexed) {
+                // evicted entries are skipped by searches
+                searchIndexVersion = items.getVersion();
+            }
             for (HistoryFileData hfd: historyFiles.values()) {
                 hfd.decLastLoaded();
             }
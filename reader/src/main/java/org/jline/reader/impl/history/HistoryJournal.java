@@ -0,0 +1,343 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.reader.impl.history;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.jline.utils.Log;
+
+/**
+ * Index of an append-only history file.
+ * <p>
+ * The history file keeps its usual format, one entry per line.  A small
+ * index file, named after the history file with an <code>.idx</code> suffix,
+ * records the number of lines found up to a given length of the file, along
+ * with a checksum of the last indexed line to detect a file rewritten behind
+ * our back.  Only the lines appended after the indexed length need to be
+ * counted, and the last lines of the file are found by scanning it backward
+ * from its end, so that loading the history does not read the whole file.
+ * The file is read with positional reads rather than mapped in memory, as a
+ * mapped file can not be replaced or deleted on Windows until the mapping
+ * is garbage collected.
+ * </p>
+ * <p>
+ * Appending to the file and replacing it by a compacted copy must be done
+ * while holding the lock of this object.
+ * </p>
+ */
+final class HistoryJournal {
+
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final String INDEX_HEADER = "jline-history-index 1";
+    private static final int SCAN_SIZE = 64 * 1024;
+
+    private final Path path;
+    private final Path indexPath;
+
+    // Number of lines up to the indexed length, the start of the
+    // last indexed line and its checksum
+    private long entries;
+    private long length = -1;
+    private long lastLine;
+    private long lastLineCrc;
+
+    HistoryJournal(Path path) {
+        this.path = path.toAbsolutePath();
+        this.indexPath = this.path.resolveSibling(this.path.getFileName() + INDEX_SUFFIX);
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the number of entries of the history file.
+     * The lines appended since the last call are counted and the index
+     * file is updated.
+     *
+     * @return the number of entries
+     * @throws IOException if the file can not be read
+     */
+    synchronized long refresh() throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return refresh(channel);
+        } catch (NoSuchFileException e) {
+            reset();
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the length of the indexed part of the history file,
+     * which always ends with a complete line.
+     *
+     * @return the indexed length
+     */
+    synchronized long getLength() {
+        return Math.max(length, 0);
+    }
+
+    /**
+     * Returns the number of lines in the indexed part of the history file.
+     *
+     * @return the number of entries
+     */
+    synchronized long getEntries() {
+        return entries;
+    }
+
+    /**
+     * Reads the last lines of the history file, only decoding the
+     * lines which are returned.
+     *
+     * @param max the maximum number of lines to read
+     * @return the lines, the oldest one first
+     * @throws IOException if the file can not be read
+     */
+    synchronized List<String> readTail(int max) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            refresh(channel);
+            if (length == 0 || max <= 0) {
+                return Collections.emptyList();
+            }
+            List<String> lines = new ArrayList<>();
+            readLines(channel, tailStart(channel, length, max), length, lines);
+            return lines;
+        } catch (NoSuchFileException e) {
+            reset();
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Reads the lines of the history file up to the given length.
+     *
+     * @param length the length to read, as returned by {@link #getLength()}
+     * @return the lines
+     * @throws IOException if the file can not be read
+     */
+    List<String> readLines(long length) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            readLines(channel, 0, length, lines);
+        }
+        return lines;
+    }
+
+    /**
+     * Replaces the history file by a compacted copy of its first bytes.
+     * The lines appended to the history file after these bytes are copied
+     * to the end of the compacted file before it is moved.
+     *
+     * @param compacted the compacted file
+     * @param from the length of the history file which has been compacted
+     * @throws IOException if the file can not be replaced
+     */
+    synchronized void replace(Path compacted, long from) throws IOException {
+        try (FileChannel source = FileChannel.open(path, StandardOpenOption.READ);
+             FileChannel target = FileChannel.open(compacted, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            long size = source.size();
+            long pos = from;
+            while (pos < size) {
+                pos += source.transferTo(pos, size - pos, target);
+            }
+        }
+        try {
+            Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        invalidate();
+        refresh();
+    }
+
+    /**
+     * Discards the index, when the history file has been deleted or rewritten.
+     *
+     * @throws IOException if the index file can not be deleted
+     */
+    synchronized void invalidate() throws IOException {
+        reset();
+        Files.deleteIfExists(indexPath);
+    }
+
+    private void reset() {
+        entries = 0;
+        length = -1;
+        lastLine = 0;
+        lastLineCrc = 0;
+    }
+
+    private long refresh(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (length < 0 || length > size || crc(channel) != lastLineCrc) {
+            if (!readIndex(channel)) {
+                reset();
+                length = 0;
+            }
+        }
+        if (size > length) {
+            long indexed = length;
+            countLines(channel, size);
+            if (length > indexed) {
+                lastLineCrc = crc(channel);
+                writeIndex();
+            }
+        }
+        return entries;
+    }
+
+    private void countLines(FileChannel channel, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_SIZE);
+        long pos = length;
+        while (pos < size) {
+            buffer.clear();
+            int nb = channel.read(buffer, pos);
+            if (nb <= 0) {
+                break;
+            }
+            for (int i = 0; i < nb; i++) {
+                if (buffer.get(i) == '\n') {
+                    entries++;
+                    lastLine = length;
+                    length = pos + i + 1;
+                }
+            }
+            pos += nb;
+        }
+    }
+
+    private boolean readIndex(FileChannel channel) {
+        try {
+            List<String> lines = Files.readAllLines(indexPath, StandardCharsets.UTF_8);
+            if (lines.size() == 2 && INDEX_HEADER.equals(lines.get(0))) {
+                String[] values = lines.get(1).split(" ");
+                entries = Long.parseLong(values[0]);
+                length = Long.parseLong(values[1]);
+                lastLine = Long.parseLong(values[2]);
+                lastLineCrc = Long.parseLong(values[3]);
+                if (length <= channel.size() && crc(channel) == lastLineCrc) {
+                    return true;
+                }
+            }
+            Log.debug("Ignoring stale history index ", indexPath);
+        } catch (NoSuchFileException e) {
+            // not indexed yet
+        } catch (IOException | RuntimeException e) {
+            Log.debug("Ignoring invalid history index ", indexPath, e);
+        }
+        return false;
+    }
+
+    private void writeIndex() {
+        String content = INDEX_HEADER + "\n" + entries + " " + length + " " + lastLine + " " + lastLineCrc + "\n";
+        try {
+            Files.write(indexPath, content.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            Log.debug("Unable to write history index ", indexPath, e);
+        }
+    }
+
+    private long crc(FileChannel channel) throws IOException {
+        CRC32 crc = new CRC32();
+        if (length > lastLine) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) (length - lastLine));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, lastLine + buffer.position()) < 0) {
+                    return -1;
+                }
+            }
+            buffer.flip();
+            crc.update(buffer);
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Returns the start of the given number of lines before the given end,
+     * scanning the file backward.
+     */
+    private static long tailStart(FileChannel channel, long end, int max) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_SIZE);
+        // the indexed part of the file ends with a new line
+        long pos = end - 1;
+        int count = 0;
+        while (pos > 0) {
+            long start = Math.max(0, pos - SCAN_SIZE);
+            buffer.clear();
+            buffer.limit((int) (pos - start));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, start + buffer.position()) < 0) {
+                    throw new EOFException();
+                }
+            }
+            for (int i = buffer.limit() - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n' && ++count == max) {
+                    return start + i + 1;
+                }
+            }
+            pos = start;
+        }
+        return 0;
+    }
+
+    /**
+     * Reads the complete lines between the given positions of the file.
+     */
+    private static void readLines(FileChannel channel, long from, long to, List<String> lines) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_SIZE);
+        long pos = from;
+        while (pos < to) {
+            if (!buffer.hasRemaining()) {
+                // a line longer than the buffer
+                buffer.flip();
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer);
+            }
+            int scanned = buffer.position();
+            buffer.limit((int) Math.min(buffer.capacity(), scanned + (to - pos)));
+            int nb = channel.read(buffer, pos);
+            if (nb < 0) {
+                break;
+            }
+            pos += nb;
+            int lineStart = 0;
+            for (int i = scanned; i < buffer.position(); i++) {
+                if (buffer.get(i) == '\n') {
+                    lines.add(decode(buffer, lineStart, i));
+                    lineStart = i + 1;
+                }
+            }
+            buffer.flip();
+            buffer.position(lineStart);
+            buffer.compact();
+        }
+    }
+
+    private static String decode(ByteBuffer buffer, int start, int end) {
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        return new String(buffer.array(), buffer.arrayOffset() + start, end - start, StandardCharsets.UTF_8);
+    }
+
+}
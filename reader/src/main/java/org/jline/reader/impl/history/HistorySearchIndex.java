@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.reader.impl.history;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Trigram index of the history lines.
+ * <p>
+ * For each sequence of three characters, folded to the same case, the index
+ * keeps the sorted list of the indices of the entries containing it.  The
+ * entries which may contain a string are the ones found in the lists of all
+ * the trigrams of the string, so that a search only needs to check these
+ * entries instead of the whole history.  Entries must be added in increasing
+ * index order, and evicted entries are not removed from the lists but simply
+ * skipped by searches.
+ * </p>
+ */
+final class HistorySearchIndex {
+
+    private static final int[] EMPTY = new int[0];
+
+    // open addressing hash table from trigrams to the lists of entries
+    private long[] keys = new long[1024];
+    private int[][] postings = new int[1024][];
+    private int[] sizes = new int[1024];
+    private int count;
+
+    private final int first;
+
+    /**
+     * @param first the index of the first entry added to this index
+     */
+    HistorySearchIndex(int first) {
+        this.first = first;
+    }
+
+    int getFirst() {
+        return first;
+    }
+
+    /**
+     * Returns whether the index can be used to search the given string,
+     * which needs to contain at least one trigram.
+     */
+    static boolean isIndexable(String term) {
+        return term.length() >= 3;
+    }
+
+    void add(int index, String line) {
+        for (int i = 0; i + 2 < line.length(); i++) {
+            long key = key(line.charAt(i), line.charAt(i + 1), line.charAt(i + 2));
+            int slot = slot(key);
+            if (keys[slot] == 0) {
+                keys[slot] = key;
+                postings[slot] = new int[4];
+                if (++count * 2 > keys.length) {
+                    rehash();
+                    slot = slot(key);
+                }
+            }
+            int size = sizes[slot];
+            int[] list = postings[slot];
+            // a trigram occurring several times in the same line is only recorded once
+            if (size > 0 && list[size - 1] == index) {
+                continue;
+            }
+            if (size == list.length) {
+                list = postings[slot] = Arrays.copyOf(list, size * 2);
+            }
+            list[size] = index;
+            sizes[slot] = size + 1;
+        }
+    }
+
+    /**
+     * Returns the indices of the entries which may contain the given string,
+     * ignoring case, from the given index and in the given direction.
+     *
+     * @param term the searched string, which must be indexable
+     * @param from the index of the first entry to consider
+     * @param min the index of the first entry still in the history
+     * @param max the index of the last entry of the history
+     * @param backward whether to return the indices in decreasing order
+     * @return the candidate indices
+     */
+    PrimitiveIterator.OfInt search(String term, int from, int min, int max, boolean backward) {
+        int nb = term.length() - 2;
+        int[][] lists = new int[nb][];
+        int[] lengths = new int[nb];
+        for (int i = 0; i < nb; i++) {
+            int slot = slot(key(term.charAt(i), term.charAt(i + 1), term.charAt(i + 2)));
+            lists[i] = keys[slot] != 0 ? postings[slot] : EMPTY;
+            lengths[i] = keys[slot] != 0 ? sizes[slot] : 0;
+        }
+        // walk the shortest list and look up the others
+        int shortest = 0;
+        for (int i = 1; i < nb; i++) {
+            if (lengths[i] < lengths[shortest]) {
+                shortest = i;
+            }
+        }
+        int[] driver = lists[shortest];
+        int length = lengths[shortest];
+        int lo = Math.max(min, backward ? min : from);
+        int hi = Math.min(max, backward ? from : max);
+        return new PrimitiveIterator.OfInt() {
+            int pos = backward ? upperBound(driver, length, hi) - 1 : lowerBound(driver, length, lo);
+            int next = advance();
+
+            private int advance() {
+                while (pos >= 0 && pos < length) {
+                    int index = driver[pos];
+                    pos += backward ? -1 : 1;
+                    if (index < lo || index > hi) {
+                        break;
+                    }
+                    if (containedInAll(index)) {
+                        return index;
+                    }
+                }
+                pos = -1;
+                return -1;
+            }
+
+            private boolean containedInAll(int index) {
+                for (int i = 0; i < nb; i++) {
+                    if (lists[i] != driver && Arrays.binarySearch(lists[i], 0, lengths[i], index) < 0) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public int nextInt() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                int index = next;
+                next = advance();
+                return index;
+            }
+        };
+    }
+
+    private static int lowerBound(int[] list, int length, int value) {
+        int idx = Arrays.binarySearch(list, 0, length, value);
+        return idx >= 0 ? idx : -idx - 1;
+    }
+
+    private static int upperBound(int[] list, int length, int value) {
+        int idx = Arrays.binarySearch(list, 0, length, value);
+        return idx >= 0 ? idx + 1 : -idx - 1;
+    }
+
+    private static long key(char c0, char c1, char c2) {
+        // the high bit distinguishes trigrams from empty slots
+        return 1L << 48 | (long) fold(c0) << 32 | (long) fold(c1) << 16 | fold(c2);
+    }
+
+    static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[][] oldPostings = postings;
+        int[] oldSizes = sizes;
+        keys = new long[oldKeys.length * 2];
+        postings = new int[keys.length][];
+        sizes = new int[keys.length];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                postings[slot] = oldPostings[i];
+                sizes[slot] = oldSizes[i];
+            }
+        }
+    }
+
+}
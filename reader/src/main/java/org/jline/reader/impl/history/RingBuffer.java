@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.reader.impl.history;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * A list backed by a circular array, giving constant time random access
+ * and constant time insertion and removal at both ends, so that the oldest
+ * history entries can be evicted cheaply.
+ *
+ * @param <E> the type of elements
+ */
+final class RingBuffer<E> extends AbstractList<E> implements RandomAccess {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private Object[] elements = new Object[MIN_CAPACITY];
+    private int head;
+    private int size;
+    private int version;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        checkIndex(index, size);
+        return (E) elements[slot(index)];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E set(int index, E element) {
+        checkIndex(index, size);
+        int slot = slot(index);
+        E old = (E) elements[slot];
+        elements[slot] = element;
+        version++;
+        return old;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        checkIndex(index, size + 1);
+        ensureCapacity(size + 1);
+        if (index == size) {
+            elements[slot(size)] = element;
+        } else if (index == 0) {
+            head = (head - 1) & (elements.length - 1);
+            elements[head] = element;
+        } else {
+            for (int i = size; i > index; i--) {
+                elements[slot(i)] = elements[slot(i - 1)];
+            }
+            elements[slot(index)] = element;
+        }
+        size++;
+        modCount++;
+        version++;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E remove(int index) {
+        checkIndex(index, size);
+        E old = (E) elements[slot(index)];
+        if (index == 0) {
+            elements[head] = null;
+            head = (head + 1) & (elements.length - 1);
+        } else {
+            for (int i = index; i < size - 1; i++) {
+                elements[slot(i)] = elements[slot(i + 1)];
+            }
+            elements[slot(size - 1)] = null;
+        }
+        size--;
+        modCount++;
+        version++;
+        return old;
+    }
+
+    public E getLast() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return get(size - 1);
+    }
+
+    public E removeFirst() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return remove(0);
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(elements, null);
+        head = 0;
+        size = 0;
+        modCount++;
+        version++;
+    }
+
+    /**
+     * Returns the number of modifications of this list, including
+     * replacements, allowing to detect changes made through iterators.
+     */
+    int getVersion() {
+        return version;
+    }
+
+    private int slot(int index) {
+        // the capacity is a power of two
+        return (head + index) & (elements.length - 1);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > elements.length) {
+            Object[] newElements = new Object[Integer.highestOneBit(capacity - 1) << 1];
+            int first = Math.min(size, elements.length - head);
+            System.arraycopy(elements, head, newElements, 0, first);
+            System.arraycopy(elements, 0, newElements, first, size - first);
+            elements = newElements;
+            head = 0;
+        }
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2002-2016, the original author or authors.
+ * Copyright (c) 2002-2021, the original author or authors.
  *
  * This software is distributable under the BSD license. See the terms of the
  * BSD license in the documentation provided with this software.
@@ -8,7 +8,10 @@
  */
 package org.jline.reader.impl;
 
+import java.io.InputStream;
+
 import org.jline.keymap.KeyMap;
+import org.jline.reader.EndOfFileException;
 import org.jline.reader.LineReader;
 import org.jline.reader.Reference;
 import org.junit.Test;
@@ -22,6 +25,10 @@ import static org.jline.reader.LineReader.EMACS_FORWARD_WORD;
 import static org.jline.reader.LineReader.END_OF_LINE;
 import static org.jline.reader.LineReader.FORWARD_WORD;
 import static org.jline.reader.LineReader.KILL_WORD;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Tests various features of editing lines.
@@ -337,4 +344,90 @@ public class EditLineTest
             ((DefaultParser) reader.getParser()).setEofOnEscapedNewLine(prev);
         }
     }
+
+    @Test
+    public void testTypeaheadBurst() throws Exception {
+        StringBuilder paste = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            paste.append("abcd\u00e9\u4e2d ");
+        }
+        // the burst stops at the first char not bound to self-insert
+        assertLine(paste + "X", new TestBuffer(paste.toString()).append("Y").ctrl('B').append("X")
+                .ctrl('F').ctrl('H').enter());
+        // the whole burst is undone at once
+        String burst = paste.substring(0, LineReaderImpl.DEFAULT_BURST_MIN_LENGTH);
+        assertLine("z", new TestBuffer(burst).ctrl('_').append("z").enter());
+        // a shorter typeahead is inserted one char at a time
+        assertLine("abc dez", new TestBuffer("abc def").ctrl('_').append("z").enter());
+        // the minimum applies to the whole typeahead available when the burst starts
+        reader.setVariable(LineReader.BURST_MIN_LENGTH, 8);
+        assertLine("z", new TestBuffer("abcdef").ctrl('_').append("z").enter());
+        assertLine("abcz", new TestBuffer("abcd").ctrl('_').append("z").enter());
+    }
+
+    @Test
+    public void testTypeaheadBurstWithBrackets() throws Exception {
+        String code = "for (int i = 0; i < n; i++) {  s += a[i];  }";
+        // the closing brackets followed by more input do not end the burst
+        assertLine("z", new TestBuffer(code).ctrl('_').append("z").enter());
+        assertLine(code, new TestBuffer(code).enter());
+        // but they still remove the indentation when it is enabled
+        reader.setVariable(LineReader.INDENTATION, 2);
+        assertLine("for (int i = 0; i < n; i++) {  s += a[i];}", new TestBuffer(code).enter());
+    }
+
+    @Test
+    public void testCoalesceRedisplay() throws Exception {
+        long painted = reader.getFramesPainted();
+        assertLine("xabc", new TestBuffer("abc").ctrl('A').append("x").enter());
+        long frames = reader.getFramesPainted() - painted;
+        assertEquals(0, reader.getFramesSkipped());
+
+        // the whole input is available, so the line is not painted
+        // after each key sequence but the last one
+        reader.setOpt(LineReader.Option.COALESCE_REDISPLAY);
+        reader.setVariable(LineReader.REDISPLAY_MAX_DELAY, 60000L);
+        painted = reader.getFramesPainted();
+        assertLine("xabc", new TestBuffer("abc").ctrl('A').append("x").enter());
+        assertEquals(5, reader.getFramesSkipped());
+        assertEquals(frames - 5, reader.getFramesPainted() - painted);
+
+        // the display is updated when the deadline has passed
+        reader.setVariable(LineReader.REDISPLAY_MAX_DELAY, 0L);
+        assertLine("xabc", new TestBuffer("abc").ctrl('A').append("x").enter());
+        assertEquals(5, reader.getFramesSkipped());
+    }
+
+    @Test
+    public void testCoalesceRedisplayBeforeAmbiguousWait() throws Exception {
+        reader.getKeyMaps().put(LineReader.MAIN, reader.getKeyMaps().get(LineReader.VIINS));
+        reader.setOpt(LineReader.Option.COALESCE_REDISPLAY);
+        reader.setVariable(LineReader.REDISPLAY_MAX_DELAY, 60000L);
+        // the escape key is ambiguous in vi insert mode, so the reader
+        // waits for more input once it has been read
+        boolean[] pendingWhileWaiting = new boolean[1];
+        in.setIn(new InputStream() {
+            final byte[] input = { 'a', 'b', 'c', 27 };
+            int pos;
+
+            @Override
+            public int read() {
+                if (pos < input.length) {
+                    return input[pos++];
+                } else if (pos++ == input.length + 1) {
+                    // the reader is waiting for the rest of the key sequence
+                    pendingWhileWaiting[0] = reader.redisplayPending;
+                }
+                return -1;
+            }
+        });
+        try {
+            reader.readLine();
+            fail("Expected an end of file");
+        } catch (EndOfFileException e) {
+            // expected
+        }
+        assertTrue(reader.getFramesSkipped() > 0);
+        assertFalse(pendingWhileWaiting[0]);
+    }
 }
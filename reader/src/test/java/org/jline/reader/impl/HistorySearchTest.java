@@ -36,6 +36,28 @@ public class HistorySearchTest extends ReaderTestSupport {
         }
     }
 
+    @Test
+    public void testIndexedHistorySearch() throws Exception {
+        DefaultHistory history = setupHistory();
+        reader.setOpt(LineReader.Option.HISTORY_SEARCH_INDEX);
+        history.add("Fiddle sticks");
+        history.add("fad");
+
+        assertEquals(3, reader.searchBackwards("Fiddle", history.last() + 1));
+        assertEquals(-1, reader.searchBackwards("Fiddle", 3));
+        reader.setOpt(LineReader.Option.CASE_INSENSITIVE_SEARCH);
+        assertEquals(1, reader.searchBackwards("FIDDLE", 3));
+        assertEquals(3, reader.searchForwards("FIDDLE", 2));
+        reader.unsetOpt(LineReader.Option.CASE_INSENSITIVE_SEARCH);
+
+        // the accepted lines are added to the history
+        assertLine("Fiddle sticks", new TestBuffer().ctrl('R').append("fid").enter(), false);
+        assertLine("fiddle", new TestBuffer().ctrl('R').append("fid").ctrl('R').ctrl('R').enter(), false);
+        // upper case letters only match themselves
+        assertLine("Fiddle sticks", new TestBuffer().ctrl('R').append("Fid").enter(), false);
+        assertLine("faddle", new TestBuffer().ctrl('R').append("addl").enter(), false);
+    }
+
     @Test
     public void testReverseHistorySearch() throws Exception {
         DefaultHistory history = setupHistory();
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.reader.impl;
+
+import org.jline.reader.LineReader;
+import org.jline.reader.impl.LatencyTracer.Stage;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyTracerTest extends ReaderTestSupport {
+
+    @Test
+    public void testTracer() {
+        LatencyTracer tracer = new LatencyTracer();
+        reader.setVariable(LineReader.LATENCY_TRACER, tracer);
+        reader.setHighlighter(new DefaultHighlighter());
+
+        assertLine("abc", new TestBuffer("abcd").back().enter());
+
+        assertTrue(tracer.getWidgets().contains(LineReader.SELF_INSERT));
+        assertTrue(tracer.getWidgets().contains(LineReader.BACKWARD_DELETE_CHAR));
+        // the typed chars are too few to be inserted at once, so each one is traced
+        LatencyHistogram widget = tracer.getHistogram(LineReader.SELF_INSERT, Stage.WIDGET);
+        assertEquals(4, widget.getCount());
+        assertEquals(4, tracer.getHistogram(LineReader.SELF_INSERT, Stage.HIGHLIGHT).getCount());
+        assertEquals(4, tracer.getHistogram(LineReader.SELF_INSERT, Stage.DISPLAY).getCount());
+        LatencyHistogram total = tracer.getHistogram(LineReader.SELF_INSERT, Stage.TOTAL);
+        assertEquals(4, total.getCount());
+        assertTrue(total.getMax() >= widget.getMax());
+        // the final screen update of accept-line is traced too
+        assertEquals(1, tracer.getHistogram(LineReader.ACCEPT_LINE, Stage.TOTAL).getCount());
+        assertEquals(6, tracer.getHistogram(Stage.TOTAL).getCount());
+
+        tracer.reset();
+        assertTrue(tracer.getWidgets().isEmpty());
+    }
+
+    @Test
+    public void testTracerIgnoresOtherThreads() throws Exception {
+        assertLine("abc", new TestBuffer("abc").enter());
+        LatencyTracer tracer = new LatencyTracer();
+        reader.latencyTracer = tracer;
+        reader.latencyTracerThread = Thread.currentThread();
+        tracer.keyRead();
+        tracer.widgetDone(LineReader.SELF_INSERT);
+
+        // a redisplay from another thread does not end the trace
+        Thread thread = new Thread(reader::redisplay);
+        thread.start();
+        thread.join();
+        assertTrue(tracer.getWidgets().contains(LineReader.SELF_INSERT));
+        assertNull(tracer.getHistogram(LineReader.SELF_INSERT, Stage.TOTAL));
+
+        reader.redisplay();
+        assertEquals(1, tracer.getHistogram(LineReader.SELF_INSERT, Stage.TOTAL).getCount());
+    }
+
+    @Test
+    public void testHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000L, histogram.getMin());
+        assertEquals(1000000L, histogram.getMax());
+        assertEquals(500500.0, histogram.getMean(), 0.001);
+        assertEquals(500000.0, histogram.getValueAtPercentile(50), 500000.0 * 0.03);
+        assertEquals(990000.0, histogram.getValueAtPercentile(99), 990000.0 * 0.03);
+        assertEquals(1000000L, histogram.getValueAtPercentile(100));
+
+        for (long v : new long[] { 0, 1, 63, 64, 65, 1000, 123456789, 1L << 39 }) {
+            int index = LatencyHistogram.index(v);
+            assertTrue(LatencyHistogram.highestEquivalentValue(index) >= v);
+            assertTrue(index == 0 || LatencyHistogram.highestEquivalentValue(index - 1) < v);
+        }
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.reader.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jline.reader.LineReader;
+import org.jline.terminal.Size;
+import org.jline.terminal.impl.AbstractTerminal;
+import org.jline.terminal.impl.InMemoryTerminalMetrics;
+import org.jline.terminal.impl.LineDisciplineTerminal;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PrintAboveTest extends ReaderTestSupport {
+
+    @Test
+    public void testPrintAbove() {
+        reader.printAbove("a");
+        reader.printAbove("b\n");
+        assertEquals("a" + System.lineSeparator() + "b\n", output());
+    }
+
+    @Test
+    public void testAsyncPrintAbove() throws Exception {
+        InMemoryTerminalMetrics metrics = new InMemoryTerminalMetrics();
+        ((AbstractTerminal) terminal).setMetrics(metrics);
+        reader.setOpt(LineReader.Option.ASYNC_PRINT_ABOVE);
+
+        String expected = "a" + System.lineSeparator() + "b\nc" + System.lineSeparator();
+        reader.lock.lock();
+        try {
+            // the messages are queued without waiting for the reader
+            reader.printAbove("a");
+            reader.printAbove("b\n");
+            reader.printAbove("c");
+            Thread.sleep(50);
+            assertEquals("", output());
+        } finally {
+            reader.lock.unlock();
+        }
+        waitForOutput(expected);
+        // the output may be seen before the end of the flush
+        long end = System.currentTimeMillis() + 5000;
+        while (reader.printAboveScheduled.get() && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        // all the messages are printed at once
+        assertEquals(1, metrics.getFlushes());
+    }
+
+    @Test
+    public void testAsyncPrintAboveInterval() throws Exception {
+        reader.setOpt(LineReader.Option.ASYNC_PRINT_ABOVE);
+        reader.setVariable(LineReader.PRINT_ABOVE_INTERVAL, 500L);
+
+        reader.printAbove("a\n");
+        waitForOutput("a\n");
+        reader.printAbove("b\n");
+        Thread.sleep(100);
+        assertFalse(output().contains("b"));
+        waitForOutput("a\nb\n");
+    }
+
+    @Test
+    public void testAsyncPrintAboveFailure() throws Exception {
+        AtomicBoolean fail = new AtomicBoolean(true);
+        LineReaderImpl reader = new LineReaderImpl(terminal) {
+            @Override
+            protected void flushPrintAbove() {
+                if (fail.getAndSet(false)) {
+                    throw new IllegalStateException("test failure");
+                }
+                super.flushPrintAbove();
+            }
+        };
+        reader.setOpt(LineReader.Option.ASYNC_PRINT_ABOVE);
+
+        reader.printAbove("a\n");
+        long end = System.currentTimeMillis() + 5000;
+        while (reader.printAboveScheduled.get() && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertFalse(reader.printAboveScheduled.get());
+        // the messages are still printed after a failure
+        reader.printAbove("b\n");
+        waitForOutput("a\nb\n");
+    }
+
+    @Test
+    public void testPrintAboveScrollRegion() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        LineDisciplineTerminal terminal = new LineDisciplineTerminal("test", "xterm", output, StandardCharsets.UTF_8);
+        terminal.setSize(new Size(80, 24));
+        LineReaderImpl reader = new LineReaderImpl(terminal);
+        reader.setOpt(LineReader.Option.PRINT_ABOVE_SCROLL_REGION);
+        AtomicReference<String> line = new AtomicReference<>();
+        Thread thread = new Thread(() -> line.set(reader.readLine("prompt> ")));
+        thread.setDaemon(true);
+        thread.start();
+        while (!reader.isReading()) {
+            Thread.sleep(1);
+        }
+
+        // the messages are printed in place of the prompt
+        // until they have filled the screen
+        reader.printAbove("first");
+        String out = output.toString("UTF-8");
+        assertTrue(out.endsWith("first\r\nprompt> "));
+        for (int i = 2; i < 23; i++) {
+            reader.printAbove("line " + i);
+        }
+        output.reset();
+        reader.printAbove("line 23");
+        out = output.toString("UTF-8");
+        assertTrue(out.endsWith("line 23\r\nprompt> "));
+        assertFalse(out.contains("\033[24;1H"));
+
+        // then the prompt is pinned at the bottom of the screen and the messages
+        // are printed in a scroll region above it, the line discipline
+        // translating the scroll_forward new line to CR LF
+        output.reset();
+        reader.printAbove("second");
+        reader.printAbove("third\n");
+        out = output.toString("UTF-8");
+        assertEquals("\0337\033[1;23r\033[23;1H\r\n\rsecond\033[1;24r\0338"
+                + "\0337\033[1;23r\033[23;1H\r\n\rthird\033[1;24r\0338", out);
+
+        terminal.processInputBytes("abc\r".getBytes(StandardCharsets.UTF_8));
+        thread.join(5000);
+        assertEquals("abc", line.get());
+    }
+
+    private void waitForOutput(String expected) throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        while (!expected.equals(output()) && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, output());
+    }
+
+    private String output() {
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+}
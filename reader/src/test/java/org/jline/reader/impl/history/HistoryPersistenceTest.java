@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2002-2016, the original author or authors.
+ * Copyright (c) 2002-2021, the original author or authors.
  *
  * This software is distributable under the BSD license. See the terms of the
  * BSD license in the documentation provided with this software.
@@ -11,6 +11,9 @@ package org.jline.reader.impl.history;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.CyclicBarrier;
@@ -24,6 +27,7 @@ import org.junit.Test;
 
 import static java.util.stream.Collectors.toList;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Tests file history.
@@ -41,6 +45,7 @@ public class HistoryPersistenceTest extends ReaderTestSupport {
     @After
     public void tearDown() throws IOException {
         Files.deleteIfExists(Paths.get("test"));
+        Files.deleteIfExists(Paths.get("test.lock"));
     }
 
 
@@ -102,4 +107,89 @@ public class HistoryPersistenceTest extends ReaderTestSupport {
         lines = Files.readAllLines(Paths.get("test"));
         assertEquals(cmdsPerThread * (nbThreads + 1), lines.size());
     }
+
+    @Test
+    public void testSharedHistory() throws Exception {
+        reader.setVariable(LineReader.HISTORY_FILE, Paths.get("test"));
+        reader.setOpt(LineReader.Option.HISTORY_SHARED);
+
+        DefaultHistory session1 = new DefaultHistory(reader);
+        DefaultHistory session2 = new DefaultHistory(reader);
+        session1.add("a");
+        session2.add("b");
+        session1.add("c");
+        assertEquals(Arrays.asList("a", "b", "c"), lines(session1));
+        assertEquals(Arrays.asList("a", "b"), lines(session2));
+
+        // the new entries are picked up at the next prompt
+        session2.attach(reader);
+        assertEquals(Arrays.asList("a", "b", "c"), lines(session2));
+        assertEquals(3, Files.readAllLines(Paths.get("test")).size());
+
+        // only the entries missing from a replaced file are added
+        Files.write(Paths.get("test"), Arrays.asList("0:c", "0:d"));
+        session1.attach(reader);
+        assertEquals(Arrays.asList("a", "b", "c", "d"), lines(session1));
+    }
+
+    @Test
+    public void testSharedHistoryInvalidLine() throws Exception {
+        reader.setVariable(LineReader.HISTORY_FILE, Paths.get("test"));
+        reader.setOpt(LineReader.Option.HISTORY_SHARED);
+
+        DefaultHistory session = new DefaultHistory(reader);
+        session.add("a");
+        // a line without timestamp is appended by another program
+        Files.write(Paths.get("test"), Arrays.asList("bogus", "0:b"), StandardOpenOption.APPEND);
+
+        // the invalid line is skipped
+        session.attach(reader);
+        assertEquals(Arrays.asList("a", "b"), lines(session));
+
+        // and is not read again
+        session.add("c");
+        assertEquals(Arrays.asList("a", "b", "c"), lines(session));
+        List<String> lines = Files.readAllLines(Paths.get("test"));
+        assertEquals(4, lines.size());
+        assertTrue(lines.get(3).endsWith(":c"));
+    }
+
+    @Test
+    public void testSharedHistoryConcurrent() throws Exception {
+        reader.setVariable(LineReader.HISTORY_FILE, Paths.get("test"));
+        reader.setOpt(LineReader.Option.HISTORY_SHARED);
+
+        int cmdsPerThread = 50;
+        int nbThreads = 4;
+        final CyclicBarrier barrier = new CyclicBarrier(nbThreads);
+        List<Thread> ts = IntStream.range(0, nbThreads)
+                .mapToObj(i -> new Thread(() -> {
+                    DefaultHistory history = new DefaultHistory(reader);
+                    try {
+                        barrier.await();
+                    } catch (InterruptedException | BrokenBarrierException e) {
+                        throw new RuntimeException(e);
+                    }
+                    IntStream.range(0, cmdsPerThread)
+                            .forEach(j -> history.add("cmd" + i + "-" + j));
+                }))
+                .collect(toList());
+        ts.forEach(Thread::start);
+        for (Thread t : ts) {
+            t.join();
+        }
+
+        // no entry is lost without synchronizing the callers
+        List<String> lines = Files.readAllLines(Paths.get("test"));
+        assertEquals(cmdsPerThread * nbThreads, lines.size());
+        DefaultHistory history = new DefaultHistory(reader);
+        assertEquals(cmdsPerThread * nbThreads, history.size());
+        assertTrue(lines(history).contains("cmd3-49"));
+    }
+
+    private static List<String> lines(DefaultHistory history) {
+        List<String> lines = new ArrayList<>();
+        history.forEach(e -> lines.add(e.line()));
+        return lines;
+    }
 }
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.reader.impl.history;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HistorySearchIndexTest {
+
+    @Test
+    public void testCandidates() {
+        Random random = new Random(0);
+        String[] words = { "git", "GIT", "status", "commit", "log", "mvn", "clean", "install", "ls", "-la", "cd", "Src" };
+        List<String> lines = new ArrayList<>();
+        HistorySearchIndex index = new HistorySearchIndex(100);
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int j = random.nextInt(4); j >= 0; j--) {
+                sb.append(words[random.nextInt(words.length)]).append(' ');
+            }
+            lines.add(sb.toString());
+            index.add(100 + i, sb.toString());
+        }
+        for (String term : new String[] { "git", "Git st", "it co", "mvn clean", "src", "xyz", "lsls" }) {
+            // all the matching entries are found, the most recent first
+            List<Integer> expected = new ArrayList<>();
+            for (int i = lines.size() - 1; i >= 0; i--) {
+                if (lines.get(i).toLowerCase().contains(term.toLowerCase())) {
+                    expected.add(100 + i);
+                }
+            }
+            List<Integer> actual = new ArrayList<>();
+            PrimitiveIterator.OfInt it = index.search(term, 2099, 100, 2099, true);
+            while (it.hasNext()) {
+                int idx = it.nextInt();
+                if (lines.get(idx - 100).toLowerCase().contains(term.toLowerCase())) {
+                    actual.add(idx);
+                }
+            }
+            assertEquals(term, expected, actual);
+        }
+    }
+
+    @Test
+    public void testBounds() {
+        HistorySearchIndex index = new HistorySearchIndex(0);
+        for (int i = 0; i < 10; i++) {
+            index.add(i, "echo abc" + i + " abc");
+        }
+        assertEquals(5, index.search("ABC", 5, 0, 9, true).nextInt());
+        assertEquals(5, index.search("abc", 5, 0, 9, false).nextInt());
+        assertEquals(8, index.search("abc8", 9, 0, 9, true).nextInt());
+        assertFalse(index.search("abc8", 7, 0, 9, true).hasNext());
+        assertFalse(index.search("abc8", 9, 0, 7, true).hasNext());
+        // evicted entries are skipped
+        PrimitiveIterator.OfInt it = index.search("echo", 0, 3, 9, false);
+        assertEquals(3, it.nextInt());
+        assertFalse(index.search("echo", 2, 3, 9, true).hasNext());
+        assertTrue(HistorySearchIndex.isIndexable("abc"));
+        assertFalse(HistorySearchIndex.isIndexable("ab"));
+    }
+
+}
@@ -21,6 +21,8 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
@@ -151,6 +153,151 @@ public class HistoryTest extends ReaderTestSupport
         assertEquals("a", trimmed.get(2).line());
     }
 
+    @Test
+    public void testTrimKeepsLastOccurrence() {
+        List<History.Entry> entries = new ArrayList<>();
+        String[] lines = { "a", "b ", "c", " a", "b", "d", "c" };
+        for (int i = 0; i < lines.length; i++) {
+            entries.add(new DefaultHistory.EntryImpl(10 + i, Instant.now(), lines[i]));
+        }
+        List<History.Entry> trimmed = DefaultHistory.doTrimHistory(entries, 10);
+        assertEquals(4, trimmed.size());
+        assertEquals(" a", trimmed.get(0).line());
+        assertEquals("b", trimmed.get(1).line());
+        assertEquals("d", trimmed.get(2).line());
+        assertEquals("c", trimmed.get(3).line());
+        assertEquals(13, trimmed.get(0).index());
+        assertEquals(16, trimmed.get(3).index());
+        // the input is left untouched
+        assertEquals(lines.length, entries.size());
+    }
+
+    @Test
+    public void testReadIncrementalSkipsDuplicates() throws IOException {
+        Path histFile = Files.createTempFile(null, null);
+        try {
+            reader.setVariable(LineReader.HISTORY_SIZE, 3);
+            history.add("a");
+            history.add("b");
+            Files.write(histFile, Arrays.asList("0:a ", "0:c", "0:c", "0:b"));
+            history.read(histFile, true);
+            assertHistoryContains(0, "a", "b", "c");
+
+            // evicted lines are not considered as duplicates anymore
+            history.add("d");
+            Files.write(histFile, Arrays.asList("0:a", "0:d"));
+            history.read(histFile, true);
+            assertHistoryContains(2, "c", "d", "a");
+        } finally {
+            Files.deleteIfExists(histFile);
+            reader.getVariables().remove(LineReader.HISTORY_SIZE);
+        }
+    }
+
+    @Test
+    public void testJournalLoadsTail() throws IOException {
+        Path histFile = Files.createTempFile(null, null);
+        Path indexFile = histFile.resolveSibling(histFile.getFileName() + ".idx");
+        try {
+            List<String> lines = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                lines.add("0:cmd" + i);
+            }
+            Files.write(histFile, lines);
+            reader.setOpt(LineReader.Option.HISTORY_JOURNAL);
+            reader.setVariable(LineReader.HISTORY_SIZE, 3);
+            reader.setVariable(LineReader.HISTORY_FILE, histFile);
+            history.load();
+            assertHistoryContains(997, "cmd997", "cmd998", "cmd999");
+            assertTrue(Files.exists(indexFile));
+
+            history.add("cmd1000");
+            assertEquals(1001, Files.readAllLines(histFile).size());
+
+            // the entries appended by another history are picked up
+            DefaultHistory other = new DefaultHistory(reader);
+            other.add("cmd1001");
+            history.load();
+            assertHistoryContains(999, "cmd999", "cmd1000", "cmd1001");
+
+            // a rewritten file is detected
+            Files.write(histFile, Arrays.asList("0:a", "0:b"));
+            history.load();
+            assertHistoryContains(0, "a", "b");
+        } finally {
+            reader.getVariables().remove(LineReader.HISTORY_FILE);
+            reader.getVariables().remove(LineReader.HISTORY_SIZE);
+            reader.unsetOpt(LineReader.Option.HISTORY_JOURNAL);
+            Files.deleteIfExists(histFile);
+            Files.deleteIfExists(indexFile);
+        }
+    }
+
+    @Test
+    public void testJournalCompaction() throws Exception {
+        Path histFile = Files.createTempFile(null, null);
+        Path indexFile = histFile.resolveSibling(histFile.getFileName() + ".idx");
+        try {
+            reader.setOpt(LineReader.Option.HISTORY_JOURNAL);
+            reader.setVariable(LineReader.HISTORY_FILE_SIZE, 8);
+            reader.setVariable(LineReader.HISTORY_FILE, histFile);
+            history.load();
+            for (int i = 0; i < 11; i++) {
+                history.add("cmd" + (i % 6));
+            }
+            // the file is compacted in the background
+            long end = System.currentTimeMillis() + 5000;
+            while (Files.readAllLines(histFile).size() > 6 && System.currentTimeMillis() < end) {
+                Thread.sleep(10);
+            }
+            List<String> lines = new ArrayList<>();
+            for (String line : Files.readAllLines(histFile)) {
+                lines.add(line.substring(line.indexOf(':') + 1));
+            }
+            assertEquals(Arrays.asList("cmd5", "cmd0", "cmd1", "cmd2", "cmd3", "cmd4"), lines);
+            assertEquals(11, history.size());
+
+            history.add("cmd6");
+            history.load();
+            assertEquals(7, history.size());
+            assertEquals("cmd6", history.get(history.last()));
+        } finally {
+            reader.getVariables().remove(LineReader.HISTORY_FILE);
+            reader.getVariables().remove(LineReader.HISTORY_FILE_SIZE);
+            reader.unsetOpt(LineReader.Option.HISTORY_JOURNAL);
+            Files.deleteIfExists(histFile);
+            Files.deleteIfExists(indexFile);
+        }
+    }
+
+    @Test
+    public void testJournalReadAcrossBuffers() throws Exception {
+        Path histFile = Files.createTempFile(null, null);
+        HistoryJournal journal = new HistoryJournal(histFile);
+        try {
+            // lines spanning several scan buffers, one of them longer than a buffer
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 100000; i++) {
+                sb.append('x');
+            }
+            String longLine = sb.toString();
+            List<String> lines = new ArrayList<>();
+            for (int i = 0; i < 20000; i++) {
+                lines.add(i == 15000 ? longLine : "cmd" + i);
+            }
+            Files.write(histFile, lines);
+
+            assertEquals(20000, journal.refresh());
+            assertEquals(lines, journal.readLines(journal.getLength()));
+            assertEquals(lines.subList(14000, 20000), journal.readTail(6000));
+            assertEquals(lines, journal.readTail(30000));
+            assertEquals(Collections.singletonList("cmd19999"), journal.readTail(1));
+        } finally {
+            journal.invalidate();
+            Files.deleteIfExists(histFile);
+        }
+    }
+
     @Test
     public void testAddHistoryLine() throws IOException {
         final Path histFile = Files.createTempFile(null, null);
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.reader.impl.history;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.ListIterator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RingBufferTest {
+
+    @Test
+    public void testEviction() {
+        RingBuffer<Integer> buffer = new RingBuffer<>();
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            buffer.add(i);
+            expected.add(i);
+            if (buffer.size() > 37) {
+                assertEquals(expected.remove(0), buffer.removeFirst());
+            }
+            assertEquals(expected, buffer);
+        }
+        assertEquals(Integer.valueOf(999), buffer.getLast());
+        assertEquals(Integer.valueOf(963), buffer.get(0));
+        assertEquals(expected.subList(10, 20), buffer.subList(10, 20));
+    }
+
+    @Test
+    public void testListIterator() {
+        RingBuffer<String> buffer = new RingBuffer<>();
+        // make the content wrap around the end of the array
+        for (int i = 0; i < 10; i++) {
+            buffer.add("x");
+            buffer.removeFirst();
+        }
+        buffer.addAll(Arrays.asList("a", "b", "c", "d", "e", "f", "g", "h", "i", "j"));
+        ListIterator<String> it = buffer.listIterator(5);
+        assertTrue(it.hasPrevious());
+        assertEquals("e", it.previous());
+        assertEquals("d", it.previous());
+        it.remove();
+        assertEquals("e", it.next());
+        assertEquals("f", it.next());
+        it.set("F");
+        assertEquals(Arrays.asList("a", "b", "c", "e", "F", "g", "h", "i", "j"), buffer);
+
+        buffer.add(0, "0");
+        buffer.add(2, "1");
+        assertEquals(Arrays.asList("0", "a", "1", "b", "c", "e", "F", "g", "h", "i", "j"), buffer);
+
+        buffer.clear();
+        assertTrue(buffer.isEmpty());
+        assertFalse(buffer.iterator().hasNext());
+    }
+
+}
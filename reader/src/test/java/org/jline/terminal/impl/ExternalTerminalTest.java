@@ -49,6 +49,31 @@ public class ExternalTerminalTest {
         testConsole(outIn, out, console);
     }
 
+    @Test
+    public void testInputLockFreePump() throws IOException, InterruptedException {
+        PipedInputStream in = new PipedInputStream();
+        PipedOutputStream outIn = new PipedOutputStream(in);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Terminal console = TerminalBuilder.builder().system(false).streams(in, out)
+                .encoding(StandardCharsets.UTF_8).lockFreePump(true).build();
+
+        testConsole(outIn, out, console);
+
+        outIn.write("\n中\033[2;3R".getBytes(StandardCharsets.UTF_8));
+        outIn.flush();
+        assertEquals('a', console.reader().read(1000));
+        assertEquals('\n', console.reader().read(1000));
+        assertEquals('b', console.reader().read(1000));
+        assertEquals('\n', console.reader().peek(1000));
+        assertEquals('\n', console.reader().read(1000));
+        assertEquals('中', console.reader().read(1000));
+        Cursor cursor = console.getCursorPosition(c -> fail());
+        assertNotNull(cursor);
+        assertEquals(2, cursor.getX());
+        assertEquals(1, cursor.getY());
+        assertEquals(-2, console.reader().read(10));
+    }
+
     /* SANDBOX JANSI
     @Test
     public void testPosix() throws IOException, InterruptedException {
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2002-2017, the original author or authors.
+ * Copyright (c) 2002-2021, the original author or authors.
  *
  * This software is distributable under the BSD license. See the terms of the
  * BSD license in the documentation provided with this software.
@@ -11,6 +11,7 @@ package org.jline.builtins.ssh;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.ThreadFactory;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -20,6 +21,7 @@ import org.apache.sshd.server.ExitCallback;
 import org.apache.sshd.server.SessionAware;
 import org.apache.sshd.server.command.Command;
 import org.apache.sshd.server.session.ServerSession;
+import org.jline.utils.Threads;
 
 public class ShellCommand implements Command, SessionAware {
 
@@ -27,6 +29,7 @@ public class ShellCommand implements Command, SessionAware {
 
     private final Consumer<Ssh.ExecuteParams> execute;
     private final String command;
+    private final ThreadFactory threadFactory;
     private InputStream in;
     private OutputStream out;
     private OutputStream err;
@@ -35,8 +38,13 @@ public class ShellCommand implements Command, SessionAware {
     private Environment env;
 
     public ShellCommand(Consumer<Ssh.ExecuteParams> execute, String command) {
+        this(execute, command, null);
+    }
+
+    public ShellCommand(Consumer<Ssh.ExecuteParams> execute, String command, ThreadFactory threadFactory) {
         this.execute = execute;
         this.command = command;
+        this.threadFactory = threadFactory;
     }
 
     public void setInputStream(InputStream in) {
@@ -61,7 +69,7 @@ public class ShellCommand implements Command, SessionAware {
 
     public void start(final Environment env) throws IOException {
         this.env = env;
-        new Thread(this::run).start();
+        Threads.newThread(threadFactory, this::run, null).start();
     }
 
     private void run() {
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2002-2017, the original author or authors.
+ * Copyright (c) 2002-2021, the original author or authors.
  *
  * This software is distributable under the BSD license. See the terms of the
  * BSD license in the documentation provided with this software.
@@ -13,6 +13,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Map;
+import java.util.concurrent.ThreadFactory;
 import java.util.function.Consumer;
 
 import org.apache.sshd.common.Factory;
@@ -31,6 +32,7 @@ import org.jline.terminal.Attributes.OutputFlag;
 import org.jline.terminal.Size;
 import org.jline.terminal.Terminal;
 import org.jline.terminal.TerminalBuilder;
+import org.jline.utils.Threads;
 
 /**
  * SSHD {@link org.apache.sshd.server.command.Command} factory which provides access to
@@ -38,9 +40,22 @@ import org.jline.terminal.TerminalBuilder;
  */
 public class ShellFactoryImpl implements Factory<Command> {
     private final Consumer<Ssh.ShellParams> shell;
+    private final ThreadFactory threadFactory;
 
     public ShellFactoryImpl(Consumer<Ssh.ShellParams> shell) {
+        this(shell, null);
+    }
+
+    /**
+     * Creates a shell factory.
+     *
+     * @param shell the shell to run
+     * @param threadFactory the factory used to create the shell threads,
+     *                      or <code>null</code> to use the one configured in {@link Threads}
+     */
+    public ShellFactoryImpl(Consumer<Ssh.ShellParams> shell, ThreadFactory threadFactory) {
         this.shell = shell;
+        this.threadFactory = threadFactory;
     }
 
     private static void flush(OutputStream... streams) {
@@ -102,13 +117,13 @@ public class ShellFactoryImpl implements Factory<Command> {
 
         public void start(final Environment env) throws IOException {
             try {
-                new Thread(() -> {
+                Threads.newThread(threadFactory, () -> {
                     try {
                         ShellImpl.this.run(env);
                     } catch (Throwable t) {
                         t.printStackTrace();
                     }
-                }).start();
+                }, null).start();
             } catch (Exception e) {
                 throw new IOException("Unable to start shell", e);
             }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2002-2017, the original author or authors.
+ * Copyright (c) 2002-2021, the original author or authors.
  *
  * This software is distributable under the BSD license. See the terms of the
  * BSD license in the documentation provided with this software.
@@ -10,6 +10,7 @@ package org.jline.builtins.ssh;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ThreadFactory;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
@@ -35,6 +36,7 @@ import org.jline.reader.LineReader;
 import org.jline.terminal.Attributes;
 import org.jline.terminal.Size;
 import org.jline.terminal.Terminal;
+import org.jline.utils.Threads;
 
 public class Ssh {
 
@@ -109,6 +111,7 @@ public class Ssh {
     private SshServer server;
     private int port;
     private String ip;
+    private ThreadFactory threadFactory;
 
     public Ssh(Consumer<ShellParams> shell,
                Consumer<ExecuteParams> execute,
@@ -120,6 +123,17 @@ public class Ssh {
         this.clientBuilder = clientBuilder;
     }
 
+    /**
+     * Sets the factory used to create the threads running the sessions
+     * of the ssh server.  When not set, the factory configured in
+     * {@link Threads} is used.
+     *
+     * @param threadFactory the thread factory
+     */
+    public void setThreadFactory(ThreadFactory threadFactory) {
+        this.threadFactory = threadFactory;
+    }
+
     public void ssh(Terminal terminal,
                     LineReader reader,
                     String user,
@@ -360,9 +374,9 @@ public class Ssh {
         server = serverBuilder.get();
         server.setPort(port);
         server.setHost(ip);
-        server.setShellFactory(new ShellFactoryImpl(shell));
+        server.setShellFactory(new ShellFactoryImpl(shell, threadFactory));
         server.setCommandFactory(new ScpCommandFactory.Builder()
-                .withDelegate(command -> new ShellCommand(execute, command)).build());
+                .withDelegate(command -> new ShellCommand(execute, command, threadFactory)).build());
         server.setSubsystemFactories(Collections.singletonList(
                 new SftpSubsystemFactory.Builder().build()
         ));
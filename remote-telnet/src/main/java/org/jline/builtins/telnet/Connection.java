@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2002-2018, the original author or authors.
+ * Copyright (c) 2002-2021, the original author or authors.
  *
  * This software is distributable under the BSD license. See the terms of the
  * BSD license in the documentation provided with this software.
@@ -42,9 +42,12 @@ package org.jline.builtins.telnet;
 
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.jline.utils.Threads;
+
 /**
  * Class that implements a connection with this telnet daemon.
  * <p>
@@ -74,6 +77,7 @@ public abstract class Connection
     private static final Logger LOG = Logger.getLogger(Connection.class.getName());
     private static int number;            //unique number for a thread in the thread group
     private boolean dead;
+    private Thread runner;                 //thread running this connection if not itself
     private List<ConnectionListener> listeners;
 
     //Associations
@@ -100,6 +104,39 @@ public abstract class Connection
         dead = false;
     }//constructor
 
+    /**
+     * Starts this connection.  If a thread factory is set on the
+     * ConnectionManager or in {@link Threads}, the connection
+     * is run by a thread created by this factory, which may be
+     * a virtual thread, instead of this thread.
+     */
+    @Override
+    public synchronized void start() {
+        ThreadFactory factory = connectionData.getManager().getThreadFactory();
+        if (factory == null) {
+            factory = Threads.getThreadFactory();
+        }
+        if (factory == null) {
+            super.start();
+        } else {
+            runner = Threads.newThread(factory, this, getName());
+            runner.start();
+        }
+    }//start
+
+    /**
+     * Interrupts the thread running this connection.
+     */
+    @Override
+    public void interrupt() {
+        Thread runner = this.runner;
+        if (runner != null) {
+            runner.interrupt();
+        } else {
+            super.interrupt();
+        }
+    }//interrupt
+
     /**
      * Method overloaded to implement following behaviour:
      * <ol>
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2002-2018, the original author or authors.
+ * Copyright (c) 2002-2021, the original author or authors.
  *
  * This software is distributable under the BSD license. See the terms of the
  * BSD license in the documentation provided with this software.
@@ -48,9 +48,12 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Stack;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.jline.utils.Threads;
+
 /**
  * Class that takes care for active and queued connection.
  * Housekeeping is done also for connections that were just broken
@@ -74,6 +77,7 @@ public abstract class ConnectionManager implements Runnable {
     private String loginShell;
     private boolean lineMode = false;
     private boolean stopping = false;
+    private ThreadFactory threadFactory;
 
     public ConnectionManager() {
         threadGroup = new ThreadGroup(toString() + "Connections");
@@ -113,6 +117,27 @@ public abstract class ConnectionManager implements Runnable {
         connectionFilter = filter;
     }//setConnectionFilter
 
+    /**
+     * Gets the factory used to create the threads of the
+     * connections or returns null if no factory is set.
+     *
+     * @return the managers ThreadFactory.
+     */
+    public ThreadFactory getThreadFactory() {
+        return threadFactory;
+    }//getThreadFactory
+
+    /**
+     * Set the factory used to create the threads of this manager and
+     * of its connections.  When not set, the factory configured in
+     * {@link Threads} is used.
+     *
+     * @param factory ThreadFactory instance.
+     */
+    public void setThreadFactory(ThreadFactory factory) {
+        threadFactory = factory;
+    }//setThreadFactory
+
     /**
      * Returns the number of open connections.
      * @return the number of open connections as <tt>int</tt>.
@@ -157,7 +182,7 @@ public abstract class ConnectionManager implements Runnable {
      * Starts this <tt>ConnectionManager</tt>.
      */
     public void start() {
-        thread = new Thread(this);
+        thread = Threads.newThread(threadFactory, this, null);
         thread.start();
     }//start
 
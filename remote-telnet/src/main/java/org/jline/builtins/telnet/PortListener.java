@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2002-2018, the original author or authors.
+ * Copyright (c) 2002-2021, the original author or authors.
  *
  * This software is distributable under the BSD license. See the terms of the
  * BSD license in the documentation provided with this software.
@@ -48,6 +48,8 @@ import java.text.MessageFormat;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.jline.utils.Threads;
+
 /**
  * Class that implements a <tt>PortListener</tt>.<br>
  * If available, it accepts incoming connections and passes them
@@ -118,7 +120,7 @@ public class PortListener
      */
     public void start() {
         LOG.log(Level.FINE, "start()");
-        thread = new Thread(this);
+        thread = Threads.newThread(connectionManager != null ? connectionManager.getThreadFactory() : null, this, null);
         thread.start();
         available = true;
     }//start
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2002-2017, the original author or authors.
+ * Copyright (c) 2002-2021, the original author or authors.
  *
  * This software is distributable under the BSD license. See the terms of the
  * BSD license in the documentation provided with this software.
@@ -14,6 +14,7 @@ import java.io.OutputStream;
 import java.io.PrintStream;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ThreadFactory;
 
 import org.jline.builtins.Options.HelpException;
 import org.jline.builtins.Options;
@@ -43,12 +44,24 @@ public class Telnet {
     private PortListener portListener;
     private int port;
     private String ip;
+    private ThreadFactory threadFactory;
 
     public Telnet(Terminal terminal, ShellProvider provider) {
         this.terminal = terminal;
         this.provider = provider;
     }
 
+    /**
+     * Sets the factory used to create the threads of the telnet server
+     * and of its connections.  When not set, the factory configured in
+     * {@link org.jline.utils.Threads} is used.
+     *
+     * @param threadFactory the thread factory
+     */
+    public void setThreadFactory(ThreadFactory threadFactory) {
+        this.threadFactory = threadFactory;
+    }
+
     public void telnetd(String[] argv) throws Exception {
         final String[] usage = {"telnetd - start simple telnet server",
                 "Usage: telnetd [-i ip] [-p port] start | stop | status",
@@ -162,6 +175,7 @@ public class Telnet {
                 };
             }
         };
+        connectionManager.setThreadFactory(threadFactory);
         portListener = new PortListener("gogo", port, 10);
         portListener.setConnectionManager(connectionManager);
         portListener.start();
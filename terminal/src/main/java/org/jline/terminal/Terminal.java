@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2002-2018, the original author or authors.
+ * Copyright (c) 2002-2021, the original author or authors.
  *
  * This software is distributable under the BSD license. See the terms of the
  * BSD license in the documentation provided with this software.
@@ -219,6 +219,25 @@ public interface Terminal extends Closeable, Flushable {
 
     void flush();
 
+    /**
+     * Start a frame, i.e. a logical screen update.  If the terminal has been
+     * built with frame output enabled, flushes requested until the matching
+     * {@link #endFrame()} are deferred, so that the whole update is written at once.
+     * Frames can be nested.
+     *
+     * @see TerminalBuilder#frameOutput(boolean)
+     */
+    default void beginFrame() {
+    }
+
+    /**
+     * End a frame started with {@link #beginFrame()}.  When frame output is
+     * enabled and a flush has been requested during the frame, the output
+     * is flushed at the end of the outermost frame.
+     */
+    default void endFrame() {
+    }
+
     //
     // Infocmp capabilities
     //
@@ -227,6 +246,33 @@ public interface Terminal extends Closeable, Flushable {
 
     boolean puts(Capability capability, Object... params);
 
+    /**
+     * Output the given capability with a single integer parameter.
+     * This avoids boxing the parameter for frequent operations
+     * such as cursor movements.
+     *
+     * @param capability the capability to output
+     * @param param the parameter
+     * @return <code>true</code> if the capability is supported
+     * @see #puts(Capability, Object...)
+     */
+    default boolean puts(Capability capability, int param) {
+        return puts(capability, new Object[] { param });
+    }
+
+    /**
+     * Output the given capability with two integer parameters.
+     *
+     * @param capability the capability to output
+     * @param param1 the first parameter
+     * @param param2 the second parameter
+     * @return <code>true</code> if the capability is supported
+     * @see #puts(Capability, Object...)
+     */
+    default boolean puts(Capability capability, int param1, int param2) {
+        return puts(capability, new Object[] { param1, param2 });
+    }
+
     boolean getBooleanCapability(Capability capability);
 
     Integer getNumericCapability(Capability capability);
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2002-2020, the original author or authors.
+ * Copyright (c) 2002-2021, the original author or authors.
  *
  * This software is distributable under the BSD license. See the terms of the
  * BSD license in the documentation provided with this software.
@@ -19,6 +19,7 @@ import java.nio.charset.Charset;
 import java.nio.charset.UnsupportedCharsetException;
 import java.util.Optional;
 import java.util.ServiceLoader;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.jline.terminal.impl.AbstractPosixTerminal;
@@ -31,8 +32,10 @@ import org.jline.terminal.impl.PosixSysTerminal;
 import org.jline.terminal.spi.JansiSupport;
 import org.jline.terminal.spi.JnaSupport;
 import org.jline.terminal.spi.Pty;
+import org.jline.terminal.spi.TerminalMetrics;
 import org.jline.utils.Log;
 import org.jline.utils.OSUtils;
+import org.jline.utils.Threads;
 
 /**
  * Builder class to create terminals.
@@ -51,6 +54,9 @@ public final class TerminalBuilder {
     public static final String PROP_EXEC = "org.jline.terminal.exec";
     public static final String PROP_DUMB = "org.jline.terminal.dumb";
     public static final String PROP_DUMB_COLOR = "org.jline.terminal.dumb.color";
+    public static final String PROP_FRAME_OUTPUT = "org.jline.terminal.frameOutput";
+    public static final String PROP_SYNCHRONIZED_OUTPUT = "org.jline.terminal.synchronizedOutput";
+    public static final String PROP_LOCK_FREE_PUMP = "org.jline.terminal.lockFreePump";
 
     //
     // Other system properties controlling various jline parts
@@ -59,6 +65,8 @@ public final class TerminalBuilder {
     public static final String PROP_NON_BLOCKING_READS = "org.jline.terminal.pty.nonBlockingReads";
     public static final String PROP_COLOR_DISTANCE = "org.jline.utils.colorDistance";
     public static final String PROP_DISABLE_ALTERNATE_CHARSET = "org.jline.utils.disableAlternateCharset";
+    public static final String PROP_INFOCMP_CACHE_DIR = "org.jline.utils.infocmpCacheDir";
+    public static final String PROP_VIRTUAL_THREADS = "org.jline.utils.virtualThreads";
 
     /**
      * Returns the default system terminal.
@@ -106,6 +114,10 @@ public final class TerminalBuilder {
     private boolean nativeSignals = false;
     private Terminal.SignalHandler signalHandler = Terminal.SignalHandler.SIG_DFL;
     private boolean paused = false;
+    private Boolean frameOutput;
+    private Boolean synchronizedOutput;
+    private Boolean lockFreePump;
+    private TerminalMetrics metrics;
 
     private TerminalBuilder() {
     }
@@ -266,11 +278,88 @@ public final class TerminalBuilder {
         return this;
     }
 
+    /**
+     * Enable frame output (defaults to false).
+     * When enabled, the terminal output is buffered and only written when
+     * the terminal is flushed, and flushes occurring between {@link Terminal#beginFrame()}
+     * and {@link Terminal#endFrame()}, such as during a line reader redisplay,
+     * are coalesced into a single write.  This reduces the number of system
+     * calls or network packets for each screen update.
+     * @param frameOutput whether to enable frame output
+     * @return The builder
+     */
+    public TerminalBuilder frameOutput(boolean frameOutput) {
+        this.frameOutput = frameOutput;
+        return this;
+    }
+
+    /**
+     * Enable synchronized output (defaults to the detected support).
+     * When enabled, frame output is enabled and each frame is wrapped in the
+     * begin / end synchronized update sequences (DEC private mode 2026), so that
+     * the terminal renders each screen update at once, without tearing.
+     * If not set, synchronized output is enabled for terminal types known
+     * to support it, such as <code>xterm-kitty</code>, <code>foot</code>
+     * or <code>wezterm</code>.
+     * @param synchronizedOutput whether to enable synchronized output
+     * @return The builder
+     */
+    public TerminalBuilder synchronizedOutput(boolean synchronizedOutput) {
+        this.synchronizedOutput = synchronizedOutput;
+        return this;
+    }
+
+    /**
+     * Use a lock-free pump to pass the input to terminals created on
+     * top of input / output streams (defaults to false).
+     * The input is then decoded once by the single thread pumping the input stream
+     * and read by the application without any lock, see {@link org.jline.utils.LockFreePumpReader}.
+     * @param lockFreePump whether to use a lock-free pump
+     * @return The builder
+     */
+    public TerminalBuilder lockFreePump(boolean lockFreePump) {
+        this.lockFreePump = lockFreePump;
+        return this;
+    }
+
+    /**
+     * Set the metrics receiving the I/O events of the terminal.
+     * Metrics are disabled by default.
+     * @param metrics the metrics
+     * @return The builder
+     * @see org.jline.terminal.impl.InMemoryTerminalMetrics
+     */
+    public TerminalBuilder metrics(TerminalMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
     public Terminal build() throws IOException {
         Terminal override = TERMINAL_OVERRIDE.get();
         Terminal terminal = override != null ? override : doBuild();
         if (override != null) {
             Log.debug(() -> "Overriding terminal with global value set by TerminalBuilder.setTerminalOverride");
+        } else {
+            Boolean frameOutput = this.frameOutput;
+            if (frameOutput == null) {
+                frameOutput = getBoolean(PROP_FRAME_OUTPUT, false);
+            }
+            if (frameOutput && terminal instanceof AbstractTerminal
+                    && !((AbstractTerminal) terminal).setFrameOutput(true)) {
+                Log.debug(() -> "Frame output is not supported by " + terminal.getClass().getSimpleName());
+            }
+            Boolean synchronizedOutput = this.synchronizedOutput;
+            if (synchronizedOutput == null) {
+                synchronizedOutput = getBoolean(PROP_SYNCHRONIZED_OUTPUT,
+                        isSynchronizedOutputSupported(terminal.getType()));
+            }
+            if (synchronizedOutput && terminal instanceof AbstractTerminal
+                    && !((AbstractTerminal) terminal).setSynchronizedOutput(true)) {
+                Log.debug(() -> "Synchronized output is not supported by " + terminal.getClass().getSimpleName());
+            }
+            if (metrics != null && terminal instanceof AbstractTerminal) {
+                ((AbstractTerminal) terminal).setMetrics(metrics);
+            }
         }
         Log.debug(() -> "Using terminal " + terminal.getClass().getSimpleName());
         if (terminal instanceof AbstractPosixTerminal) {
@@ -279,6 +368,19 @@ public final class TerminalBuilder {
         return terminal;
     }
 
+    /**
+     * Terminal types of emulators known to support synchronized output.
+     */
+    private static boolean isSynchronizedOutputSupported(String type) {
+        return type != null
+                && (type.startsWith("xterm-kitty")
+                    || type.startsWith("xterm-ghostty")
+                    || type.startsWith("foot")
+                    || type.startsWith("contour")
+                    || type.startsWith("wezterm")
+                    || type.startsWith("alacritty"));
+    }
+
     private Terminal doBuild() throws IOException {
         String name = this.name;
         if (name == null) {
@@ -470,7 +572,11 @@ public final class TerminalBuilder {
                     Log.debug("Error creating JANSI based terminal: ", t.getMessage(), t);
                 }
             }
-            return new ExternalTerminal(name, type, in, out, encoding, signalHandler, paused, attributes, size);
+            Boolean lockFreePump = this.lockFreePump;
+            if (lockFreePump == null) {
+                lockFreePump = getBoolean(PROP_LOCK_FREE_PUMP, false);
+            }
+            return new ExternalTerminal(name, type, in, out, encoding, signalHandler, paused, attributes, size, lockFreePump);
         }
     }
 
@@ -536,6 +642,21 @@ public final class TerminalBuilder {
         TERMINAL_OVERRIDE.set(terminal);
     }
 
+    /**
+     * Sets the factory used to create the background threads of JLine,
+     * such as the input pump threads of terminals.
+     * Use {@link Threads#virtualThreadFactory()} to create virtual threads,
+     * which is also done when the {@link #PROP_VIRTUAL_THREADS} system property
+     * is set to <code>true</code>.  When virtual threads are not supported
+     * or the factory is <code>null</code>, platform threads are created.
+     *
+     * @param factory the thread factory
+     * @see Threads#setThreadFactory(ThreadFactory)
+     */
+    public static void setThreadFactory(ThreadFactory factory) {
+        Threads.setThreadFactory(factory);
+    }
+
     private static class TerminalBuilderSupport {
         private JansiSupport jansiSupport = null;
         private JnaSupport jnaSupport = null;
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2002-2016, the original author or authors.
+ * Copyright (c) 2002-2021, the original author or authors.
  *
  * This software is distributable under the BSD license. See the terms of the
  * BSD license in the documentation provided with this software.
@@ -12,6 +12,7 @@ import java.io.IOError;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.IntConsumer;
 
 import org.jline.terminal.Attributes;
@@ -23,6 +24,13 @@ public abstract class AbstractPosixTerminal extends AbstractTerminal {
 
     protected final Pty pty;
     protected final Attributes originalAttributes;
+    // Querying an ExecPty forks a process, so its attributes and size are
+    // cached until they are changed through this terminal or a signal is raised
+    private final boolean cacheable;
+    private final AtomicLong cacheHits = new AtomicLong();
+    private volatile Attributes cachedAttributes;
+    private volatile Size cachedSize;
+    private volatile int generation;
 
     public AbstractPosixTerminal(String name, String type, Pty pty) throws IOException {
         this(name, type, pty, null, SignalHandler.SIG_DFL);
@@ -32,6 +40,7 @@ public abstract class AbstractPosixTerminal extends AbstractTerminal {
         super(name, type, encoding, signalHandler);
         Objects.requireNonNull(pty);
         this.pty = pty;
+        this.cacheable = pty instanceof ExecPty;
         this.originalAttributes = this.pty.getAttr();
     }
 
@@ -41,7 +50,22 @@ public abstract class AbstractPosixTerminal extends AbstractTerminal {
 
     public Attributes getAttributes() {
         try {
-            return pty.getAttr();
+            if (!cacheable) {
+                return pty.getAttr();
+            }
+            Attributes attr = cachedAttributes;
+            if (attr != null) {
+                cacheHits.incrementAndGet();
+            } else {
+                int gen = generation;
+                attr = pty.getAttr();
+                synchronized (this) {
+                    if (gen == generation) {
+                        cachedAttributes = new Attributes(attr);
+                    }
+                }
+            }
+            return new Attributes(attr);
         } catch (IOException e) {
             throw new IOError(e);
         }
@@ -52,12 +76,29 @@ public abstract class AbstractPosixTerminal extends AbstractTerminal {
             pty.setAttr(attr);
         } catch (IOException e) {
             throw new IOError(e);
+        } finally {
+            invalidateAttributes();
         }
     }
 
     public Size getSize() {
         try {
-            return pty.getSize();
+            if (!cacheable || !isSizeChangeSignaled()) {
+                return pty.getSize();
+            }
+            Size size = cachedSize;
+            if (size != null) {
+                cacheHits.incrementAndGet();
+            } else {
+                int gen = generation;
+                size = pty.getSize();
+                synchronized (this) {
+                    if (gen == generation) {
+                        cachedSize = new Size(size.getColumns(), size.getRows());
+                    }
+                }
+            }
+            return new Size(size.getColumns(), size.getRows());
         } catch (IOException e) {
             throw new IOError(e);
         }
@@ -68,9 +109,65 @@ public abstract class AbstractPosixTerminal extends AbstractTerminal {
             pty.setSize(size);
         } catch (IOException e) {
             throw new IOError(e);
+        } finally {
+            invalidateSize();
         }
     }
 
+    @Override
+    public SignalHandler handle(Signal signal, SignalHandler handler) {
+        SignalHandler prev = super.handle(signal, handler);
+        if (signal == Signal.WINCH) {
+            // resize notifications may have been missed while no handler was installed
+            invalidateSize();
+        }
+        return prev;
+    }
+
+    @Override
+    public void raise(Signal signal) {
+        if (signal == Signal.WINCH) {
+            invalidateSize();
+        } else if (signal == Signal.CONT) {
+            // the shell may have changed the tty settings while we were suspended
+            invalidateSize();
+            invalidateAttributes();
+        }
+        super.raise(signal);
+    }
+
+    /**
+     * Returns the number of {@link #getAttributes()} and {@link #getSize()} calls
+     * that were answered from the cache instead of querying the pty.  For an
+     * {@link ExecPty}, each of those would otherwise have forked an {@code stty} process.
+     *
+     * @return the number of pty queries avoided
+     */
+    public long getForksAvoided() {
+        return cacheHits.get();
+    }
+
+    /**
+     * Whether the size of the pty can be cached.  This is only the case if
+     * the terminal is notified of size changes through {@link #raise(Signal)}
+     * with a {@link Signal#WINCH} signal.
+     *
+     * @return <code>true</code> if size changes are signaled
+     */
+    protected boolean isSizeChangeSignaled() {
+        return false;
+    }
+
+    protected synchronized void invalidateSize() {
+        generation++;
+        cachedSize = null;
+    }
+
+    protected synchronized void invalidateAttributes() {
+        generation++;
+        cachedAttributes = null;
+    }
+
     protected void doClose() throws IOException {
         super.doClose();
         pty.setAttr(originalAttributes);
@@ -8,8 +8,14 @@
  */
 package org.jline.terminal.impl;
 
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOError;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 import java.util.EnumSet;
 import java.util.HashMap;
@@ -28,11 +34,15 @@ import org.jline.terminal.Attributes.LocalFlag;
 import org.jline.terminal.Cursor;
 import org.jline.terminal.MouseEvent;
 import org.jline.terminal.Terminal;
+import org.jline.terminal.spi.TerminalMetrics;
 import org.jline.utils.ColorPalette;
 import org.jline.utils.Curses;
+import org.jline.utils.FrameOutputStream;
 import org.jline.utils.InfoCmp;
 import org.jline.utils.InfoCmp.Capability;
 import org.jline.utils.Log;
+import org.jline.utils.NonBlockingInputStream;
+import org.jline.utils.NonBlockingReader;
 import org.jline.utils.Status;
 
 public abstract class AbstractTerminal implements Terminal {
@@ -44,9 +54,12 @@ public abstract class AbstractTerminal implements Terminal {
     protected final Set<Capability> bools = new HashSet<>();
     protected final Map<Capability, Integer> ints = new HashMap<>();
     protected final Map<Capability, String> strings = new HashMap<>();
+    protected final Map<Capability, Curses.Template> templates = new ConcurrentHashMap<>();
     protected final ColorPalette palette = new ColorPalette(this);
     protected Status status;
     protected Runnable onClose;
+    protected FrameOutputStream frameOutput;
+    protected volatile TerminalMetrics metrics = TerminalMetrics.NONE;
 
     public AbstractTerminal(String name, String type) throws IOException {
         this(name, type, null, SignalHandler.SIG_DFL);
@@ -88,8 +101,11 @@ public abstract class AbstractTerminal implements Terminal {
         if (handler != SignalHandler.SIG_DFL && handler != SignalHandler.SIG_IGN) {
             handler.handle(signal);
         }
-        if (status != null && signal == Signal.WINCH) {
-            status.resize();
+        if (signal == Signal.WINCH) {
+            metrics.resized();
+            if (status != null) {
+                status.resize();
+            }
         }
     }
 
@@ -177,15 +193,213 @@ public abstract class AbstractTerminal implements Terminal {
         writer().flush();
     }
 
+    @Override
+    public void beginFrame() {
+        if (frameOutput != null) {
+            try {
+                frameOutput.beginFrame();
+            } catch (IOException e) {
+                throw new IOError(e);
+            }
+        }
+    }
+
+    @Override
+    public void endFrame() {
+        if (frameOutput != null) {
+            if (frameOutput.isSynchronizedOutput() && frameOutput.getDepth() == 1) {
+                // make sure the frame content buffered by the writer
+                // is written before the end of the synchronized update
+                writer().flush();
+            }
+            try {
+                if (frameOutput.endFrame()) {
+                    writer().flush();
+                }
+            } catch (IOException e) {
+                throw new IOError(e);
+            }
+        }
+    }
+
+    /**
+     * Enable or disable frame output.
+     *
+     * @param enabled whether frame output should be enabled
+     * @return <code>true</code> if this terminal supports frame output
+     * @see org.jline.terminal.TerminalBuilder#frameOutput(boolean)
+     */
+    public boolean setFrameOutput(boolean enabled) {
+        if (frameOutput == null) {
+            return false;
+        }
+        try {
+            if (!enabled) {
+                writer().flush();
+            }
+            frameOutput.setEnabled(enabled);
+        } catch (IOException e) {
+            throw new IOError(e);
+        }
+        return true;
+    }
+
+    /**
+     * Enable or disable synchronized output, i.e. the wrapping of each frame
+     * in the begin / end synchronized update sequences (DEC private mode 2026),
+     * so that the terminal renders frames atomically.  Enabling synchronized
+     * output also enables frame output.
+     *
+     * @param enabled whether synchronized output should be enabled
+     * @return <code>true</code> if this terminal supports synchronized output
+     * @see org.jline.terminal.TerminalBuilder#synchronizedOutput(boolean)
+     */
+    public boolean setSynchronizedOutput(boolean enabled) {
+        if (frameOutput == null) {
+            return false;
+        }
+        if (enabled) {
+            setFrameOutput(true);
+        }
+        frameOutput.setSynchronizedOutput(enabled);
+        return true;
+    }
+
+    /**
+     * Returns the stream coalescing the output of this terminal,
+     * which gives access to the frame statistics.
+     *
+     * @return the frame output stream, or <code>null</code> if not supported
+     */
+    public FrameOutputStream getFrameOutput() {
+        return frameOutput;
+    }
+
+    /**
+     * Wrap the given stream, which the writer of the terminal writes to,
+     * so that it supports frame output.  This is called by subclasses
+     * when creating their output streams.
+     *
+     * @param output the stream to wrap
+     * @return the wrapping stream
+     */
+    protected OutputStream framed(OutputStream output) {
+        frameOutput = new FrameOutputStream(output);
+        return frameOutput;
+    }
+
+    /**
+     * Returns the metrics receiving the I/O events of this terminal.
+     *
+     * @return the metrics, {@link TerminalMetrics#NONE} if none have been set
+     */
+    public TerminalMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the metrics receiving the I/O events of this terminal.
+     *
+     * @param metrics the metrics, or <code>null</code> to disable them
+     * @see org.jline.terminal.TerminalBuilder#metrics(TerminalMetrics)
+     */
+    public void setMetrics(TerminalMetrics metrics) {
+        this.metrics = metrics != null ? metrics : TerminalMetrics.NONE;
+    }
+
+    /**
+     * Wrap the given stream, which the terminal output is written to,
+     * so that the bytes written and the flushes are reported to the metrics.
+     * This is called by subclasses when creating their output streams.
+     *
+     * @param output the stream to wrap
+     * @return the wrapping stream
+     */
+    protected OutputStream metered(OutputStream output) {
+        return new MeteredOutputStream(output);
+    }
+
+    /**
+     * Wrap the given stream, which the terminal input is read from,
+     * so that the bytes read are reported to the metrics.
+     * This is called by subclasses when creating their input streams.
+     * A {@link NonBlockingInputStream} is wrapped by a non blocking stream,
+     * so that timed reads are still delegated to it.
+     *
+     * @param input the stream to wrap
+     * @return the wrapping stream
+     */
+    protected InputStream metered(InputStream input) {
+        if (input instanceof NonBlockingInputStream) {
+            return new MeteredNonBlockingInputStream((NonBlockingInputStream) input);
+        }
+        return new MeteredInputStream(input);
+    }
+
+    /**
+     * Wrap the given reader, so that the time spent reading
+     * is reported to the metrics.
+     * This is called by subclasses when creating their readers.
+     *
+     * @param reader the reader to wrap
+     * @return the wrapping reader
+     */
+    protected NonBlockingReader metered(NonBlockingReader reader) {
+        return new MeteredReader(reader);
+    }
+
     public boolean puts(Capability capability, Object... params) {
-        String str = getStringCapability(capability);
-        if (str == null) {
+        Curses.Template template = getTemplate(capability);
+        if (template == null) {
             return false;
         }
-        Curses.tputs(writer(), str, params);
+        template.tputs(writer(), params);
+        metrics.capabilityUsed(capability);
         return true;
     }
 
+    @Override
+    public boolean puts(Capability capability, int param) {
+        Curses.Template template = getTemplate(capability);
+        if (template == null) {
+            return false;
+        }
+        template.tputs(writer(), param);
+        metrics.capabilityUsed(capability);
+        return true;
+    }
+
+    @Override
+    public boolean puts(Capability capability, int param1, int param2) {
+        Curses.Template template = getTemplate(capability);
+        if (template == null) {
+            return false;
+        }
+        template.tputs(writer(), param1, param2);
+        metrics.capabilityUsed(capability);
+        return true;
+    }
+
+    /**
+     * Returns the compiled form of the given capability.  Templates are
+     * compiled once and recompiled only if the capability string changes.
+     *
+     * @param capability the capability
+     * @return the compiled capability or <code>null</code> if the capability is not supported
+     */
+    protected Curses.Template getTemplate(Capability capability) {
+        String str = getStringCapability(capability);
+        if (str == null) {
+            return null;
+        }
+        Curses.Template template = templates.get(capability);
+        if (template == null || !str.equals(template.getSource())) {
+            template = Curses.compile(str);
+            templates.put(capability, template);
+        }
+        return template;
+    }
+
     public boolean getBooleanCapability(Capability capability) {
         return bools.contains(capability);
     }
@@ -288,4 +502,176 @@ public abstract class AbstractTerminal implements Terminal {
     public ColorPalette getPalette() {
         return palette;
     }
+
+    private class MeteredOutputStream extends FilterOutputStream {
+
+        MeteredOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            metrics.bytesWritten(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            metrics.bytesWritten(len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+            metrics.flushed();
+        }
+    }
+
+    private class MeteredInputStream extends FilterInputStream {
+
+        MeteredInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c = in.read();
+            if (c >= 0) {
+                metrics.bytesRead(1);
+            }
+            return c;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int nb = in.read(b, off, len);
+            if (nb > 0) {
+                metrics.bytesRead(nb);
+            }
+            return nb;
+        }
+    }
+
+    private class MeteredNonBlockingInputStream extends NonBlockingInputStream {
+
+        private final NonBlockingInputStream in;
+
+        MeteredNonBlockingInputStream(NonBlockingInputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read(long timeout, boolean isPeek) throws IOException {
+            int c = in.read(timeout, isPeek);
+            if (c >= 0 && !isPeek) {
+                metrics.bytesRead(1);
+            }
+            return c;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int nb = in.read(b, off, len);
+            if (nb > 0) {
+                metrics.bytesRead(nb);
+            }
+            return nb;
+        }
+
+        @Override
+        public int readBuffered(byte[] b) throws IOException {
+            int nb = in.readBuffered(b);
+            if (nb > 0) {
+                metrics.bytesRead(nb);
+            }
+            return nb;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return in.available();
+        }
+
+        @Override
+        public void shutdown() {
+            in.shutdown();
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private class MeteredReader extends NonBlockingReader {
+
+        private final NonBlockingReader reader;
+
+        MeteredReader(NonBlockingReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        protected int read(long timeout, boolean isPeek) throws IOException {
+            TerminalMetrics m = metrics;
+            if (m == TerminalMetrics.NONE) {
+                return isPeek ? reader.peek(timeout) : reader.read(timeout);
+            }
+            long start = System.nanoTime();
+            try {
+                return isPeek ? reader.peek(timeout) : reader.read(timeout);
+            } finally {
+                m.readBlocked(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public int readBuffered(char[] b) throws IOException {
+            TerminalMetrics m = metrics;
+            if (m == TerminalMetrics.NONE) {
+                return reader.readBuffered(b);
+            }
+            long start = System.nanoTime();
+            try {
+                return reader.readBuffered(b);
+            } finally {
+                m.readBlocked(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public int read(CharBuffer target) throws IOException {
+            TerminalMetrics m = metrics;
+            if (m == TerminalMetrics.NONE) {
+                return reader.read(target);
+            }
+            long start = System.nanoTime();
+            try {
+                return reader.read(target);
+            } finally {
+                m.readBlocked(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public boolean ready() throws IOException {
+            return reader.ready();
+        }
+
+        @Override
+        public int available() {
+            return reader.available();
+        }
+
+        @Override
+        public void shutdown() {
+            reader.shutdown();
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2002-2019, the original author or authors.
+ * Copyright (c) 2002-2021, the original author or authors.
  *
  * This software is distributable under the BSD license. See the terms of the
  * BSD license in the documentation provided with this software.
@@ -19,6 +19,7 @@ import org.jline.utils.NonBlockingPumpReader;
 import org.jline.utils.NonBlockingReader;
 import org.jline.utils.ShutdownHooks;
 import org.jline.utils.Signals;
+import org.jline.utils.Threads;
 import org.jline.utils.WriterOutputStream;
 
 import java.io.IOException;
@@ -84,7 +85,7 @@ public abstract class AbstractWindowsTerminal extends AbstractTerminal {
         super(name, type, selectCharset(encoding, codepage), signalHandler);
         NonBlockingPumpReader reader = NonBlocking.nonBlockingPumpReader();
         this.slaveInputPipe = reader.getWriter();
-        this.reader = reader;
+        this.reader = metered(reader);
         this.input = NonBlocking.nonBlockingStream(reader, encoding());
         this.writer = new PrintWriter(writer);
         this.output = new WriterOutputStream(writer, encoding());
@@ -434,8 +435,7 @@ public abstract class AbstractWindowsTerminal extends AbstractTerminal {
         synchronized (lock) {
             paused = false;
             if (pump == null) {
-                pump = new Thread(this::pump, "WindowsStreamPump");
-                pump.setDaemon(true);
+                pump = Threads.newDaemonThread(this::pump, "WindowsStreamPump");
                 pump.start();
             }
         }
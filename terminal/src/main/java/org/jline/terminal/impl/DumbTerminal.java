@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2002-2018, the original author or authors.
+ * Copyright (c) 2002-2021, the original author or authors.
  *
  * This software is distributable under the BSD license. See the terms of the
  * BSD license in the documentation provided with this software.
@@ -41,7 +41,7 @@ public class DumbTerminal extends AbstractTerminal {
 
     public DumbTerminal(String name, String type, InputStream in, OutputStream out, Charset encoding, SignalHandler signalHandler) throws IOException {
         super(name, type, encoding, signalHandler);
-        NonBlockingInputStream nbis = NonBlocking.nonBlocking(getName(), in);
+        NonBlockingInputStream nbis = NonBlocking.nonBlocking(getName(), metered(in));
         this.input = new NonBlockingInputStream() {
             @Override
             public int read(long timeout, boolean isPeek) throws IOException {
@@ -75,9 +75,14 @@ public class DumbTerminal extends AbstractTerminal {
                     return c;
                 }
             }
+
+            @Override
+            public int available() throws IOException {
+                return nbis.available();
+            }
         };
-        this.output = out;
-        this.reader = NonBlocking.nonBlocking(getName(), input, encoding());
+        this.output = metered(out);
+        this.reader = metered(NonBlocking.nonBlocking(getName(), input, encoding()));
         this.writer = new PrintWriter(new OutputStreamWriter(output, encoding()));
         this.attributes = new Attributes();
         this.attributes.setControlChar(ControlChar.VERASE,  (char) 127);
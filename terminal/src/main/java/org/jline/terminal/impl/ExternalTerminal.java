@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2002-2018, the original author or authors.
+ * Copyright (c) 2002-2021, the original author or authors.
  *
  * This software is distributable under the BSD license. See the terms of the
  * BSD license in the documentation provided with this software.
@@ -11,6 +11,7 @@ package org.jline.terminal.impl;
 import org.jline.terminal.Attributes;
 import org.jline.terminal.Cursor;
 import org.jline.terminal.Size;
+import org.jline.utils.Threads;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -70,7 +71,19 @@ public class ExternalTerminal extends LineDisciplineTerminal {
                             boolean paused,
                             Attributes attributes,
                             Size size) throws IOException {
-        super(name, type, masterOutput, encoding, signalHandler);
+        this(name, type, masterInput, masterOutput, encoding, signalHandler, paused, attributes, size, false);
+    }
+
+    public ExternalTerminal(String name, String type,
+                            InputStream masterInput,
+                            OutputStream masterOutput,
+                            Charset encoding,
+                            SignalHandler signalHandler,
+                            boolean paused,
+                            Attributes attributes,
+                            Size size,
+                            boolean lockFreePump) throws IOException {
+        super(name, type, masterOutput, encoding, signalHandler, lockFreePump);
         this.masterInput = masterInput;
         if (attributes != null) {
             setAttributes(attributes);
@@ -120,8 +133,7 @@ public class ExternalTerminal extends LineDisciplineTerminal {
         synchronized (lock) {
             paused = false;
             if (pumpThread == null) {
-                pumpThread = new Thread(this::pump, toString() + " input pump thread");
-                pumpThread.setDaemon(true);
+                pumpThread = Threads.newDaemonThread(this::pump, toString() + " input pump thread");
                 pumpThread.start();
             }
         }
@@ -160,7 +172,7 @@ public class ExternalTerminal extends LineDisciplineTerminal {
             }
         }
         try {
-            slaveInput.close();
+            input().close();
         } catch (IOException e) {
             // ignore
         }
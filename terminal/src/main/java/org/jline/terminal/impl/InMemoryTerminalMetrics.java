@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.terminal.impl;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jline.terminal.spi.TerminalMetrics;
+import org.jline.utils.InfoCmp.Capability;
+
+/**
+ * Terminal metrics keeping counters in memory.
+ *
+ * <p>The counters can be read directly, or exported to JMX by registering
+ * the metrics as a {@link TerminalMetricsMXBean} in an MBean server, which
+ * is left to the application so that this module only depends on the
+ * <code>compact1</code> profile.</p>
+ */
+public class InMemoryTerminalMetrics implements TerminalMetrics, TerminalMetricsMXBean {
+
+    private static final Capability[] CAPABILITIES = Capability.values();
+
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder resizes = new LongAdder();
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder readBlockedNanos = new LongAdder();
+    private final AtomicLongArray capabilities = new AtomicLongArray(CAPABILITIES.length);
+
+    @Override
+    public void bytesRead(int count) {
+        bytesRead.add(count);
+    }
+
+    @Override
+    public void bytesWritten(int count) {
+        bytesWritten.add(count);
+    }
+
+    @Override
+    public void flushed() {
+        flushes.increment();
+    }
+
+    @Override
+    public void capabilityUsed(Capability capability) {
+        capabilities.incrementAndGet(capability.ordinal());
+    }
+
+    @Override
+    public void resized() {
+        resizes.increment();
+    }
+
+    @Override
+    public void readBlocked(long nanos) {
+        reads.increment();
+        readBlockedNanos.add(nanos);
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    @Override
+    public long getFlushes() {
+        return flushes.sum();
+    }
+
+    @Override
+    public long getResizes() {
+        return resizes.sum();
+    }
+
+    @Override
+    public long getReads() {
+        return reads.sum();
+    }
+
+    public long getReadBlockedNanos() {
+        return readBlockedNanos.sum();
+    }
+
+    @Override
+    public long getReadBlockedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(getReadBlockedNanos());
+    }
+
+    public long getCapabilityCount(Capability capability) {
+        return capabilities.get(capability.ordinal());
+    }
+
+    /**
+     * Returns the number of times each capability has been output,
+     * omitting the capabilities which have not been used.
+     *
+     * @return the counts keyed by capability name
+     */
+    @Override
+    public Map<String, Long> getCapabilities() {
+        Map<String, Long> counts = new TreeMap<>();
+        for (int i = 0; i < CAPABILITIES.length; i++) {
+            long count = capabilities.get(i);
+            if (count > 0) {
+                counts.put(CAPABILITIES[i].name(), count);
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public void reset() {
+        bytesRead.reset();
+        bytesWritten.reset();
+        flushes.reset();
+        resizes.reset();
+        reads.reset();
+        readBlockedNanos.reset();
+        for (int i = 0; i < CAPABILITIES.length; i++) {
+            capabilities.set(i, 0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TerminalMetrics["
+                + "bytesRead=" + getBytesRead()
+                + ", bytesWritten=" + getBytesWritten()
+                + ", flushes=" + getFlushes()
+                + ", resizes=" + getResizes()
+                + ", reads=" + getReads()
+                + ", readBlockedMillis=" + getReadBlockedMillis()
+                + ", capabilities=" + getCapabilities()
+                + "]";
+    }
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2002-2018, the original author or authors.
+ * Copyright (c) 2002-2021, the original author or authors.
  *
  * This software is distributable under the BSD license. See the terms of the
  * BSD license in the documentation provided with this software.
@@ -23,9 +23,12 @@ import org.jline.terminal.Attributes.LocalFlag;
 import org.jline.terminal.Attributes.OutputFlag;
 import org.jline.terminal.Size;
 import org.jline.terminal.Terminal;
+import org.jline.utils.LockFreePumpReader;
 import org.jline.utils.NonBlocking;
+import org.jline.utils.NonBlockingInputStream;
 import org.jline.utils.NonBlockingPumpInputStream;
 import org.jline.utils.NonBlockingReader;
+import org.jline.utils.WriterOutputStream;
 
 /**
  * Abstract terminal with support for line discipline.
@@ -73,7 +76,7 @@ public class LineDisciplineTerminal extends AbstractTerminal {
     protected final OutputStream slaveInputPipe;
 
     /*
-     * Slave streams
+     * Slave streams, the input being null when a lock-free pump is used
      */
     protected final NonBlockingPumpInputStream slaveInput;
     protected final NonBlockingReader slaveReader;
@@ -86,6 +89,17 @@ public class LineDisciplineTerminal extends AbstractTerminal {
     protected final Attributes attributes;
     protected final Size size;
 
+    /*
+     * Whether the per byte processing methods can be bypassed for plain input
+     */
+    private final boolean bulkInput;
+
+    /*
+     * Lock-free pump, if used
+     */
+    private final LockFreePumpReader lockFreeReader;
+    private final NonBlockingInputStream lockFreeInput;
+
     public LineDisciplineTerminal(String name,
                                   String type,
                                   OutputStream masterOutput,
@@ -98,19 +112,69 @@ public class LineDisciplineTerminal extends AbstractTerminal {
                                   OutputStream masterOutput,
                                   Charset encoding,
                                   SignalHandler signalHandler) throws IOException {
+        this(name, type, masterOutput, encoding, signalHandler, false);
+    }
+
+    /**
+     * Creates a terminal, optionally using a {@link LockFreePumpReader} to pass
+     * the input to the slave side.  In such a case, the input must be processed
+     * by a single thread at a time.
+     *
+     * @param name the terminal name
+     * @param type the terminal type
+     * @param masterOutput the master output stream
+     * @param encoding the encoding
+     * @param signalHandler the default signal handler
+     * @param lockFreePump whether to use a lock-free pump for the input
+     * @throws IOException if anything wrong happens
+     */
+    public LineDisciplineTerminal(String name,
+                                  String type,
+                                  OutputStream masterOutput,
+                                  Charset encoding,
+                                  SignalHandler signalHandler,
+                                  boolean lockFreePump) throws IOException {
         super(name, type, encoding, signalHandler);
-        NonBlockingPumpInputStream input = NonBlocking.nonBlockingPumpInputStream(PIPE_SIZE);
-        this.slaveInputPipe = input.getOutputStream();
-        this.slaveInput = input;
-        this.slaveReader = NonBlocking.nonBlocking(getName(), slaveInput, encoding());
-        this.slaveOutput = new FilteringOutputStream();
+        if (lockFreePump) {
+            LockFreePumpReader reader = NonBlocking.lockFreePumpReader(PIPE_SIZE);
+            this.slaveInputPipe = new WriterOutputStream(reader.getWriter(), encoding());
+            this.slaveInput = null;
+            this.slaveReader = metered(reader);
+            this.lockFreeReader = reader;
+            this.lockFreeInput = reader.createInputStream(encoding());
+        } else {
+            NonBlockingPumpInputStream input = NonBlocking.nonBlockingPumpInputStream(PIPE_SIZE);
+            this.slaveInputPipe = input.getOutputStream();
+            this.slaveInput = input;
+            this.slaveReader = metered(NonBlocking.nonBlocking(getName(), slaveInput, encoding()));
+            this.lockFreeReader = null;
+            this.lockFreeInput = null;
+        }
+        this.slaveOutput = framed(new FilteringOutputStream());
         this.slaveWriter = new PrintWriter(new OutputStreamWriter(slaveOutput, encoding()));
-        this.masterOutput = masterOutput;
+        this.masterOutput = metered(masterOutput);
         this.attributes = ExecPty.doGetAttr(DEFAULT_TERMINAL_ATTRIBUTES);
         this.size = new Size(160, 50);
+        this.bulkInput = !isOverridden("doProcessInputByte") && !isOverridden("processOutputByte");
         parseInfoCmp();
     }
 
+    private boolean isOverridden(String method) {
+        try {
+            for (Class<?> c = getClass(); c != LineDisciplineTerminal.class; c = c.getSuperclass()) {
+                try {
+                    c.getDeclaredMethod(method, int.class);
+                    return true;
+                } catch (NoSuchMethodException e) {
+                    // continue with the super class
+                }
+            }
+            return false;
+        } catch (SecurityException e) {
+            return true;
+        }
+    }
+
     public NonBlockingReader reader() {
         return slaveReader;
     }
@@ -121,7 +185,7 @@ public class LineDisciplineTerminal extends AbstractTerminal {
 
     @Override
     public InputStream input() {
-        return slaveInput;
+        return lockFreeInput != null ? lockFreeInput : slaveInput;
     }
 
     @Override
@@ -177,6 +241,7 @@ public class LineDisciplineTerminal extends AbstractTerminal {
      * @throws IOException if anything wrong happens
      */
     public void processInputByte(int c) throws IOException {
+        metrics.bytesRead(1);
         boolean flushOut = doProcessInputByte(c);
         slaveInputPipe.flush();
         if (flushOut) {
@@ -189,9 +254,14 @@ public class LineDisciplineTerminal extends AbstractTerminal {
     }
 
     public void processInputBytes(byte[] input, int offset, int length) throws IOException {
+        metrics.bytesRead(length);
         boolean flushOut = false;
-        for (int i = 0; i < length; i++) {
-            flushOut |= doProcessInputByte(input[offset + i]);
+        if (bulkInput) {
+            flushOut = doProcessInputBytes(input, offset, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                flushOut |= doProcessInputByte(input[offset + i]);
+            }
         }
         slaveInputPipe.flush();
         if (flushOut) {
@@ -199,6 +269,54 @@ public class LineDisciplineTerminal extends AbstractTerminal {
         }
     }
 
+    /**
+     * Bulk version of {@link #doProcessInputByte(int)}: bytes which need
+     * some processing (signals, CR and NL) are processed one at a time,
+     * while the runs of plain bytes between them are passed to the slave
+     * and echoed in a single write.
+     */
+    private boolean doProcessInputBytes(byte[] input, int offset, int length) throws IOException {
+        boolean flushOut = false;
+        int start = offset;
+        int end = offset + length;
+        while (start < end) {
+            // the attributes may be changed by a signal handler, so they
+            // are read again after each special byte
+            boolean isig = attributes.getLocalFlag(LocalFlag.ISIG);
+            int vintr = isig ? attributes.getControlChar(ControlChar.VINTR) : '\n';
+            int vquit = isig ? attributes.getControlChar(ControlChar.VQUIT) : '\n';
+            int vsusp = isig ? attributes.getControlChar(ControlChar.VSUSP) : '\n';
+            int vstatus = isig ? attributes.getControlChar(ControlChar.VSTATUS) : '\n';
+            int i = start;
+            int c = 0;
+            while (i < end) {
+                c = input[i];
+                if (c == '\r' || c == '\n' || c == vintr || c == vquit || c == vsusp || c == vstatus) {
+                    break;
+                }
+                i++;
+            }
+            if (i > start) {
+                flushOut |= doProcessPlainBytes(input, start, i - start);
+            }
+            if (i < end) {
+                flushOut |= doProcessInputByte(c);
+            }
+            start = i + 1;
+        }
+        return flushOut;
+    }
+
+    private boolean doProcessPlainBytes(byte[] input, int offset, int length) throws IOException {
+        boolean flushOut = false;
+        if (attributes.getLocalFlag(LocalFlag.ECHO)) {
+            masterOutput.write(input, offset, length);
+            flushOut = true;
+        }
+        slaveInputPipe.write(input, offset, length);
+        return flushOut;
+    }
+
     protected boolean doProcessInputByte(int c) throws IOException {
         if (attributes.getLocalFlag(LocalFlag.ISIG)) {
             if (c == attributes.getControlChar(ControlChar.VINTR)) {
@@ -254,7 +372,11 @@ public class LineDisciplineTerminal extends AbstractTerminal {
     }
 
     protected void processIOException(IOException ioException) {
-        this.slaveInput.setIoException(ioException);
+        if (lockFreeReader != null) {
+            lockFreeReader.setIoException(ioException);
+        } else {
+            slaveInput.setIoException(ioException);
+        }
     }
 
     protected void doClose() throws IOException {
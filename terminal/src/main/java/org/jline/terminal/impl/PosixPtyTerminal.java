@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2002-2018, the original author or authors.
+ * Copyright (c) 2002-2021, the original author or authors.
  *
  * This software is distributable under the BSD license. See the terms of the
  * BSD license in the documentation provided with this software.
@@ -22,6 +22,7 @@ import org.jline.utils.ClosedException;
 import org.jline.utils.NonBlocking;
 import org.jline.utils.NonBlockingInputStream;
 import org.jline.utils.NonBlockingReader;
+import org.jline.utils.Threads;
 
 public class PosixPtyTerminal extends AbstractPosixTerminal {
 
@@ -53,9 +54,9 @@ public class PosixPtyTerminal extends AbstractPosixTerminal {
         this.out = Objects.requireNonNull(out);
         this.masterInput = pty.getMasterInput();
         this.masterOutput = pty.getMasterOutput();
-        this.input = new InputStreamWrapper(NonBlocking.nonBlocking(name, pty.getSlaveInput()));
-        this.output = pty.getSlaveOutput();
-        this.reader = NonBlocking.nonBlocking(name, input, encoding());
+        this.input = new InputStreamWrapper(NonBlocking.nonBlocking(name, metered(pty.getSlaveInput())));
+        this.output = framed(metered(pty.getSlaveOutput()));
+        this.reader = metered(NonBlocking.nonBlocking(name, input, encoding()));
         this.writer = new PrintWriter(new OutputStreamWriter(output, encoding()));
         parseInfoCmp();
         if (!paused) {
@@ -124,13 +125,11 @@ public class PosixPtyTerminal extends AbstractPosixTerminal {
         synchronized (lock) {
             paused = false;
             if (inputPumpThread == null) {
-                inputPumpThread = new Thread(this::pumpIn, toString() + " input pump thread");
-                inputPumpThread.setDaemon(true);
+                inputPumpThread = Threads.newDaemonThread(this::pumpIn, toString() + " input pump thread");
                 inputPumpThread.start();
             }
             if (outputPumpThread == null) {
-                outputPumpThread = new Thread(this::pumpOut, toString() + " output pump thread");
-                outputPumpThread.setDaemon(true);
+                outputPumpThread = Threads.newDaemonThread(this::pumpOut, toString() + " output pump thread");
                 outputPumpThread.start();
             }
         }
@@ -160,6 +159,11 @@ public class PosixPtyTerminal extends AbstractPosixTerminal {
             return in.read(timeout, isPeek);
         }
 
+        @Override
+        public int available() throws IOException {
+            return closed.get() ? 0 : in.available();
+        }
+
         @Override
         public void close() throws IOException {
             closed.set(true);
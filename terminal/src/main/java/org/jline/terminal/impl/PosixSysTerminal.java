@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2002-2018, the original author or authors.
+ * Copyright (c) 2002-2021, the original author or authors.
  *
  * This software is distributable under the BSD license. See the terms of the
  * BSD license in the documentation provided with this software.
@@ -37,9 +37,9 @@ public class PosixSysTerminal extends AbstractPosixTerminal {
     public PosixSysTerminal(String name, String type, Pty pty, Charset encoding,
                             boolean nativeSignals, SignalHandler signalHandler) throws IOException {
         super(name, type, pty, encoding, signalHandler);
-        this.input = NonBlocking.nonBlocking(getName(), pty.getSlaveInput());
-        this.output = pty.getSlaveOutput();
-        this.reader = NonBlocking.nonBlocking(getName(), input, encoding());
+        this.input = NonBlocking.nonBlocking(getName(), metered(pty.getSlaveInput()));
+        this.output = framed(metered(pty.getSlaveOutput()));
+        this.reader = metered(NonBlocking.nonBlocking(getName(), input, encoding()));
         this.writer = new PrintWriter(new OutputStreamWriter(output, encoding()));
         parseInfoCmp();
         if (nativeSignals) {
@@ -68,6 +68,11 @@ public class PosixSysTerminal extends AbstractPosixTerminal {
         return prev;
     }
 
+    @Override
+    protected boolean isSizeChangeSignaled() {
+        return !nativeHandlers.isEmpty() && handlers.get(Signal.WINCH) != SignalHandler.SIG_DFL;
+    }
+
     public NonBlockingReader reader() {
         return reader;
     }
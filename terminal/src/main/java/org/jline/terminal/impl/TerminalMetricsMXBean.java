@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.terminal.impl;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link InMemoryTerminalMetrics}.
+ */
+public interface TerminalMetricsMXBean {
+
+    long getBytesRead();
+
+    long getBytesWritten();
+
+    long getFlushes();
+
+    long getResizes();
+
+    long getReads();
+
+    long getReadBlockedMillis();
+
+    Map<String, Long> getCapabilities();
+
+    void reset();
+
+}
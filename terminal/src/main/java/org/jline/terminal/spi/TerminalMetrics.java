@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.terminal.spi;
+
+import org.jline.utils.InfoCmp.Capability;
+
+/**
+ * Receives the I/O events of a terminal, so that its activity can be observed.
+ *
+ * <p>Metrics are set on a terminal using
+ * {@link org.jline.terminal.impl.AbstractTerminal#setMetrics(TerminalMetrics)}
+ * or {@link org.jline.terminal.TerminalBuilder#metrics(TerminalMetrics)}.
+ * All methods do nothing by default, and {@link #NONE}, which is used when
+ * no metrics are set, is recognized by terminals so that no measure is taken.
+ * Methods can be called from several threads at the same time and should
+ * return quickly.</p>
+ *
+ * <p>Terminals which do not exchange bytes, such as the Windows console
+ * terminals, do not report the number of bytes read or written.</p>
+ *
+ * @see org.jline.terminal.impl.InMemoryTerminalMetrics
+ */
+public interface TerminalMetrics {
+
+    /**
+     * Metrics ignoring all events.
+     */
+    TerminalMetrics NONE = new TerminalMetrics() {
+    };
+
+    /**
+     * Called when bytes are received from the terminal device or the remote side.
+     *
+     * @param count the number of bytes
+     */
+    default void bytesRead(int count) {
+    }
+
+    /**
+     * Called when bytes are written to the terminal device or the remote side.
+     *
+     * @param count the number of bytes
+     */
+    default void bytesWritten(int count) {
+    }
+
+    /**
+     * Called when the terminal output is flushed.
+     */
+    default void flushed() {
+    }
+
+    /**
+     * Called when a capability is output using one of the <code>puts</code> methods.
+     *
+     * @param capability the capability
+     */
+    default void capabilityUsed(Capability capability) {
+    }
+
+    /**
+     * Called when the terminal is resized, i.e. when the
+     * {@link org.jline.terminal.Terminal.Signal#WINCH} signal is raised.
+     */
+    default void resized() {
+    }
+
+    /**
+     * Called after a read or a peek on the terminal reader returned.
+     *
+     * @param nanos the time spent in the call, in nanoseconds
+     */
+    default void readBlocked(long nanos) {
+    }
+
+}
@@ -356,9 +356,12 @@ public abstract class AttributedCharSequence implements CharSequence {
     }
 
     public int columnLength() {
+        return columnLength(0, length());
+    }
+
+    int columnLength(int start, int end) {
         int cols = 0;
-        int len = length();
-        for (int cur = 0; cur < len; ) {
+        for (int cur = start; cur < end; ) {
             int cp = codePointAt(cur);
             if (!isHidden(cur))
                 cols += WCWidth.wcwidth(cp);
@@ -28,6 +28,7 @@ public class AttributedString extends AttributedCharSequence {
     final long[] style;
     final int start;
     final int end;
+    private int hash;
     public static final AttributedString EMPTY = new AttributedString("");
     public static final AttributedString NEWLINE = new AttributedString("\n");
 
@@ -172,6 +173,9 @@ public class AttributedString extends AttributedCharSequence {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         AttributedString that = (AttributedString) o;
+        if (hash != 0 && that.hash != 0 && hash != that.hash) {
+            return false;
+        }
         return end - start == that.end - that.start
                 && arrEq(buffer, that.buffer, start, that.start, end - start)
                 && arrEq(style, that.style, start, that.start, end - start);
@@ -194,13 +198,23 @@ public class AttributedString extends AttributedCharSequence {
         return true;
     }
 
+    /**
+     * Returns a hash code computed on the characters and styles of this string,
+     * consistent with {@link #equals(Object)}.
+     * As instances are immutable, the value is computed once and cached,
+     * which allows using it as a cheap fingerprint when comparing lines.
+     */
     @Override
     public int hashCode() {
-        int result = Arrays.hashCode(buffer);
-        result = 31 * result + Arrays.hashCode(style);
-        result = 31 * result + start;
-        result = 31 * result + end;
-        return result;
+        int h = hash;
+        if (h == 0 && end > start) {
+            for (int i = start; i < end; i++) {
+                h = 31 * h + buffer[i];
+                h = 31 * h + Long.hashCode(style[i]);
+            }
+            hash = h;
+        }
+        return h;
     }
 
     public static AttributedString join(AttributedString delimiter, AttributedString... elements) {
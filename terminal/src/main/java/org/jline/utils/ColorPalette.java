@@ -28,6 +28,7 @@ public class ColorPalette {
     private final Terminal terminal;
     private String distanceName;
     private Colors.Distance distance;
+    private Colors.Rounder rounder;
     private boolean osc4;
     private int[] palette;
 
@@ -61,6 +62,8 @@ public class ColorPalette {
      */
     public void setDistance(String name) {
         this.distanceName = name;
+        this.distance = null;
+        this.rounder = null;
     }
 
     /**
@@ -86,6 +89,7 @@ public class ColorPalette {
     }
 
     protected void loadPalette(boolean doLoad) throws IOException {
+        this.rounder = null;
         if (terminal != null) {
             int[] pal = doLoad ? doLoad(terminal) : null;
             if (pal != null) {
@@ -134,6 +138,8 @@ public class ColorPalette {
      */
     public void setColor(int index, int color) {
         palette[index] = color;
+        rounder = null;
+        Colors.paletteChanged(palette);
         if (canChange()) {
             String initc = terminal.getStringCapability(InfoCmp.Capability.initialize_color);
             if (initc != null || osc4) {
@@ -156,16 +162,25 @@ public class ColorPalette {
     }
 
     public int round(int r, int g, int b) {
-        return Colors.roundColor((r << 16) + (g << 8) + b, palette, palette.length, getDist());
+        return getRounder().round((r << 16) + (g << 8) + b);
     }
 
     public int round(int col) {
         if (col >= palette.length) {
-            col = Colors.roundColor(DEFAULT.getColor(col), palette, palette.length, getDist());
+            col = getRounder().round(DEFAULT.getColor(col));
         }
         return col;
     }
 
+    private Colors.Rounder getRounder() {
+        Colors.Rounder r = rounder;
+        if (r == null) {
+            r = new Colors.Rounder(palette, palette.length, getDist());
+            rounder = r;
+        }
+        return r;
+    }
+
     protected Colors.Distance getDist() {
         if (distance == null) {
             distance = Colors.getDistance(distanceName);
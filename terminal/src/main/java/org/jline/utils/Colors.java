@@ -13,8 +13,12 @@ import java.io.IOError;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+import java.util.function.ToDoubleBiFunction;
 import java.util.stream.Stream;
 
 import static org.jline.terminal.TerminalBuilder.PROP_COLOR_DISTANCE;
@@ -134,6 +138,8 @@ public class Colors {
 
     private static Map<String, Integer> COLOR_NAMES;
 
+    private static final Map<String, Rounder[]> ROUNDERS = new ConcurrentHashMap<>();
+
     public static void setRgbColors(int[] colors) {
         if (colors == null || colors.length != 256) {
             throw new IllegalArgumentException();
@@ -141,6 +147,15 @@ public class Colors {
         COLORS_256 = colors;
     }
 
+    /**
+     * Discard cached rounding results after a palette has been modified in place.
+     */
+    static void paletteChanged(int[] colors) {
+        if (colors == COLORS_256) {
+            ROUNDERS.clear();
+        }
+    }
+
     public static int rgbColor(int col) {
         return COLORS_256[col];
     }
@@ -181,7 +196,19 @@ public class Colors {
     }
 
     static int roundColor(int color, int[] colors, int max, String dist) {
-        return roundColor(color, colors, max, getDistance(dist));
+        if (colors != COLORS_256 || max < 0 || max > 256) {
+            return roundColor(color, colors, max, getDistance(dist));
+        }
+        if (dist == null) {
+            dist = System.getProperty(PROP_COLOR_DISTANCE, "cie76");
+        }
+        Rounder[] rounders = ROUNDERS.computeIfAbsent(dist, d -> new Rounder[257]);
+        Rounder rounder = rounders[max];
+        if (rounder == null || rounder.colors != colors) {
+            rounder = new Rounder(colors, max, getDistance(dist));
+            rounders[max] = rounder;
+        }
+        return rounder.round(color);
     }
 
     @FunctionalInterface
@@ -189,6 +216,102 @@ public class Colors {
         double compute(int c1, int c2);
     }
 
+    /**
+     * A distance computed by converting both colors into a given
+     * color space and comparing the resulting coordinates.
+     * This allows the coordinates of the palette to be computed
+     * only once, see {@link Rounder}.
+     */
+    static class SpaceDistance implements Distance {
+        final IntFunction<double[]> space;
+        final ToDoubleBiFunction<double[], double[]> metric;
+
+        SpaceDistance(IntFunction<double[]> space, ToDoubleBiFunction<double[], double[]> metric) {
+            this.space = space;
+            this.metric = metric;
+        }
+
+        @Override
+        public double compute(int c1, int c2) {
+            return metric.applyAsDouble(space.apply(c1), space.apply(c2));
+        }
+    }
+
+    /**
+     * Rounds colors to a given palette.
+     * The coordinates of the palette colors are precomputed when the distance
+     * is a {@link SpaceDistance}, and the results are kept in a small
+     * direct-mapped cache, so that rounding a color which has already been
+     * seen does not involve any color space conversion.
+     * The cache is lock-free and can be used concurrently: each slot is a
+     * single <code>int</code> holding the 24 bits rgb color and the 8 bits
+     * palette index, so concurrent writes can at worst evict an entry.
+     */
+    static class Rounder {
+        private static final int CACHE_BITS = 12;
+        private static final int CACHE_SIZE = 1 << CACHE_BITS;
+        private static final int EMPTY = -1;
+
+        final int[] colors;
+        final int max;
+        final Distance distance;
+        private final double[][] coords;
+        private final int[] cache;
+
+        Rounder(int[] colors, int max, Distance distance) {
+            this.colors = colors;
+            this.max = max;
+            this.distance = distance;
+            if (distance instanceof SpaceDistance) {
+                IntFunction<double[]> space = ((SpaceDistance) distance).space;
+                coords = new double[max][];
+                for (int idx = 0; idx < max; idx++) {
+                    coords[idx] = space.apply(colors[idx]);
+                }
+            } else {
+                coords = null;
+            }
+            if (max <= 256) {
+                cache = new int[CACHE_SIZE];
+                Arrays.fill(cache, EMPTY);
+            } else {
+                cache = null;
+            }
+        }
+
+        int round(int color) {
+            boolean cacheable = cache != null && (color & ~0xFFFFFF) == 0;
+            int slot = 0;
+            if (cacheable) {
+                slot = (color * 0x9E3779B1) >>> (32 - CACHE_BITS);
+                int entry = cache[slot];
+                if (entry != EMPTY && (entry >>> 8) == color) {
+                    return entry & 0xFF;
+                }
+            }
+            int index = coords != null ? roundSpace(color) : roundColor(color, colors, max, distance);
+            if (cacheable && index < max) {
+                cache[slot] = (color << 8) | index;
+            }
+            return index;
+        }
+
+        private int roundSpace(int color) {
+            SpaceDistance sd = (SpaceDistance) distance;
+            double[] c = sd.space.apply(color);
+            double best_distance = Integer.MAX_VALUE;
+            int best_index = Integer.MAX_VALUE;
+            for (int idx = 0; idx < max; idx++) {
+                double d = sd.metric.applyAsDouble(c, coords[idx]);
+                if (d <= best_distance) {
+                    best_index = idx;
+                    best_distance = d;
+                }
+            }
+            return best_index;
+        }
+    }
+
     static int roundColor(int color, int[] colors, int max, Distance distance) {
         double best_distance = Integer.MAX_VALUE;
         int best_index = Integer.MAX_VALUE;
@@ -211,63 +334,48 @@ public class Colors {
 
     private static Distance doGetDistance(String dist) {
         if (dist.equals("rgb")) {
-            return (p1, p2) -> {
+            return new SpaceDistance(Colors::rgb, (c1, c2) -> {
                 // rgb: see https://www.compuphase.com/cmetric.htm
-                double[] c1 = rgb(p1);
-                double[] c2 = rgb(p2);
                 double rmean = (c1[0] + c2[0]) / 2.0;
                 double[] w = { 2.0 + rmean, 4.0, 3.0 - rmean };
                 return scalar(c1, c2, w);
-            };
+            });
         }
         if (dist.matches("rgb\\(([0-9]+(\\.[0-9]+)?),([0-9]+(\\.[0-9]+)?),([0-9]+(\\.[0-9]+)?)\\)")) {
-            return (p1, p2) -> scalar(rgb(p1), rgb(p2), getWeights(dist));
+            double[] w = getWeights(dist);
+            return new SpaceDistance(Colors::rgb, (c1, c2) -> scalar(c1, c2, w));
         }
         if (dist.equals("lab") || dist.equals("cie76")) {
-            return (p1, p2) -> scalar(rgb2cielab(p1), rgb2cielab(p2));
+            return new SpaceDistance(Colors::rgb2cielab, Colors::scalar);
         }
         if (dist.matches("lab\\(([0-9]+(\\.[0-9]+)?),([0-9]+(\\.[0-9]+)?)\\)")) {
             double[] w = getWeights(dist);
-            return (p1, p2) -> scalar(rgb2cielab(p1), rgb2cielab(p2), new double[] { w[0], w[1], w[1] });
+            double[] lw = new double[] { w[0], w[1], w[1] };
+            return new SpaceDistance(Colors::rgb2cielab, (c1, c2) -> scalar(c1, c2, lw));
         }
         if (dist.equals("cie94")) {
-            return (p1, p2) -> cie94(rgb2cielab(p1), rgb2cielab(p2));
+            return new SpaceDistance(Colors::rgb2cielab, Colors::cie94);
         }
         if (dist.equals("cie00") || dist.equals("cie2000")) {
-            return (p1, p2) -> cie00(rgb2cielab(p1), rgb2cielab(p2));
+            return new SpaceDistance(Colors::rgb2cielab, Colors::cie00);
         }
         if (dist.equals("cam02")) {
-            return (p1, p2) -> cam02(p1, p2, sRGB_typical_environment);
+            return new SpaceDistance(c -> jmh2ucs(camlch(c, sRGB_typical_environment)), Colors::scalar);
         }
         if (dist.equals("camlab")) {
-            return (p1, p2) -> {
-                double[] c1 = camlab(p1, sRGB_typical_environment);
-                double[] c2 = camlab(p2, sRGB_typical_environment);
-                return scalar(c1, c2);
-            };
+            return new SpaceDistance(c -> camlab(c, sRGB_typical_environment), Colors::scalar);
         }
         if (dist.matches("camlab\\(([0-9]+(\\.[0-9]+)?),([0-9]+(\\.[0-9]+)?)\\)")) {
-            return (p1, p2) -> {
-                double[] c1 = camlab(p1, sRGB_typical_environment);
-                double[] c2 = camlab(p2, sRGB_typical_environment);
-                double[] w = getWeights(dist);
-                return scalar(c1, c2, new double[] { w[0], w[1], w[1] });
-            };
+            double[] w = getWeights(dist);
+            double[] lw = new double[] { w[0], w[1], w[1] };
+            return new SpaceDistance(c -> camlab(c, sRGB_typical_environment), (c1, c2) -> scalar(c1, c2, lw));
         }
         if (dist.matches("camlch")) {
-            return (p1, p2) -> {
-                double[] c1 = camlch(p1, sRGB_typical_environment);
-                double[] c2 = camlch(p2, sRGB_typical_environment);
-                return camlch(c1, c2);
-            };
+            return new SpaceDistance(c -> camlch(c, sRGB_typical_environment), (c1, c2) -> camlch(c1, c2));
         }
         if (dist.matches("camlch\\(([0-9]+(\\.[0-9]+)?),([0-9]+(\\.[0-9]+)?),([0-9]+(\\.[0-9]+)?)\\)")) {
-            return (p1, p2) -> {
-                double[] c1 = camlch(p1, sRGB_typical_environment);
-                double[] c2 = camlch(p2, sRGB_typical_environment);
-                double[] w = getWeights(dist);
-                return camlch(c1, c2, w);
-            };
+            double[] w = getWeights(dist);
+            return new SpaceDistance(c -> camlch(c, sRGB_typical_environment), (c1, c2) -> camlch(c1, c2, w));
         }
         throw new IllegalArgumentException("Unsupported distance function: " + dist);
     }
@@ -381,12 +489,6 @@ public class Colors {
         return dLKlsl * dLKlsl + dCkcsc * dCkcsc + dHkhsh * dHkhsh + R_T * dCkcsc * dHkhsh;
     }
 
-    private static double cam02(int p1, int p2, double[] vc) {
-        double[] c1 = jmh2ucs(camlch(p1, vc));
-        double[] c2 = jmh2ucs(camlch(p2, vc));
-        return scalar(c1, c2);
-    }
-
     private static double[] jmh2ucs(double[] lch) {
         double sJ = ((1.0 + 100 * 0.007) * lch[0]) / (1.0 + 0.007 * lch[0]);
         double sM = ((1.0 / 0.0228) * Math.log(1.0 + 0.0228 * lch[1]));
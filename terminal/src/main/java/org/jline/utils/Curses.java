@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2002-2018, the original author or authors.
+ * Copyright (c) 2002-2021, the original author or authors.
  *
  * This software is distributable under the BSD license. See the terms of the
  * BSD license in the documentation provided with this software.
@@ -12,7 +12,11 @@ import java.io.Flushable;
 import java.io.IOError;
 import java.io.IOException;
 import java.io.StringWriter;
-import java.util.Stack;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
 
 /**
  * Curses helper methods.
@@ -21,13 +25,38 @@ import java.util.Stack;
  */
 public final class Curses {
 
-    private static Object[] sv = new Object[26];
-    private static Object[] dv = new Object[26];
+    private static final Object[] sv = new Object[26];
 
-    private static final int IFTE_NONE = 0;
-    private static final int IFTE_IF = 1;
-    private static final int IFTE_THEN = 2;
-    private static final int IFTE_ELSE = 3;
+    // operations of compiled templates
+    private static final int TEXT = 0;
+    private static final int PARAM = 1;
+    private static final int CONST = 2;
+    private static final int SET_DYNAMIC = 3;
+    private static final int GET_DYNAMIC = 4;
+    private static final int SET_STATIC = 5;
+    private static final int GET_STATIC = 6;
+    private static final int LENGTH = 7;
+    private static final int ADD = 8;
+    private static final int SUB = 9;
+    private static final int MUL = 10;
+    private static final int DIV = 11;
+    private static final int MOD = 12;
+    private static final int BIT_AND = 13;
+    private static final int BIT_OR = 14;
+    private static final int BIT_XOR = 15;
+    private static final int EQ = 16;
+    private static final int GT = 17;
+    private static final int LT = 18;
+    private static final int AND = 19;
+    private static final int OR = 20;
+    private static final int NOT = 21;
+    private static final int COMPLEMENT = 22;
+    private static final int JUMP = 23;
+    private static final int JUMP_IF_FALSE = 24;
+    private static final int INCREMENT = 25;
+    private static final int PRINT_INT = 26;
+    private static final int FORMAT = 27;
+    private static final int DELAY = 28;
 
     private Curses() {
     }
@@ -56,411 +85,668 @@ public final class Curses {
      * @param params optional parameters
      */
     public static void tputs(Appendable out, String str, Object... params) {
+        compile(str).tputs(out, params);
+    }
+
+    /**
+     * Compile the given terminal capability into a {@link Template}
+     * which can be evaluated repeatedly without being parsed again.
+     *
+     * @param str the capability to compile
+     * @return the compiled capability
+     */
+    public static Template compile(String str) {
         try {
-            doTputs(out, str, params);
+            return new Compiler(str).compile();
         } catch (Exception e) {
             throw new IOError(e);
         }
     }
 
-    private static void doTputs(Appendable out, String str, Object... params) throws IOException {
-        int index = 0;
-        int length = str.length();
-        int ifte = IFTE_NONE;
-        boolean exec = true;
-        Stack<Object> stack = new Stack<>();
-        while (index < length) {
-            char ch = str.charAt(index++);
-            switch (ch) {
-                case '\\':
-                    ch = str.charAt(index++);
-                    if (ch >= '0' && ch <= '7') {
-                        int val = ch - '0';
-                        for (int i = 0; i < 2; i++) {
-                            ch = str.charAt(index++);
-                            if (ch < '0' || ch > '7') {
-                                throw new IllegalStateException();
-                            }
-                            val = val * 8 + (ch - '0');
-                        }
-                        out.append((char) val);
-                    } else {
-                        switch (ch) {
-                            case 'e':
-                            case 'E':
-                                if (exec) {
-                                    out.append((char) 27); // escape
-                                }
-                                break;
-                            case 'n':
-                                out.append('\n');
-                                break;
-//                        case 'l':
-//                            rawPrint('\l');
-//                            break;
-                            case 'r':
-                                if (exec) {
-                                    out.append('\r');
-                                }
-                                break;
-                            case 't':
-                                if (exec) {
-                                    out.append('\t');
-                                }
-                                break;
-                            case 'b':
-                                if (exec) {
-                                    out.append('\b');
-                                }
-                                break;
-                            case 'f':
-                                if (exec) {
-                                    out.append('\f');
-                                }
-                                break;
-                            case 's':
-                                if (exec) {
-                                    out.append(' ');
-                                }
-                                break;
-                            case ':':
-                            case '^':
-                            case '\\':
-                                if (exec) {
-                                    out.append(ch);
-                                }
-                                break;
-                            default:
-                                throw new IllegalArgumentException();
+    /**
+     * A compiled terminal capability.
+     */
+    public static final class Template {
+
+        private static final int NB_PARAMS = 9;
+        private static final int NB_VARS = 26;
+
+        private final String source;
+        private final int[] code;
+        private final String[] strings;
+        private final int maxStack;
+        private final boolean variables;
+
+        Template(String source, int[] code, String[] strings, int maxStack, boolean variables) {
+            this.source = source;
+            this.code = code;
+            this.strings = strings;
+            this.maxStack = maxStack;
+            this.variables = variables;
+        }
+
+        /**
+         * The capability string this template has been compiled from.
+         *
+         * @return the source capability
+         */
+        public String getSource() {
+            return source;
+        }
+
+        /**
+         * Evaluate the capability with no parameters
+         *
+         * @param out the output stream
+         */
+        public void tputs(Appendable out) {
+            execute(out, newRegisters(), null);
+        }
+
+        /**
+         * Evaluate the capability with one integer parameter
+         *
+         * @param out the output stream
+         * @param param the parameter
+         */
+        public void tputs(Appendable out, int param) {
+            int[] regs = newRegisters();
+            regs[0] = param;
+            execute(out, regs, null);
+        }
+
+        /**
+         * Evaluate the capability with two integer parameters
+         *
+         * @param out the output stream
+         * @param param1 the first parameter
+         * @param param2 the second parameter
+         */
+        public void tputs(Appendable out, int param1, int param2) {
+            int[] regs = newRegisters();
+            regs[0] = param1;
+            regs[1] = param2;
+            execute(out, regs, null);
+        }
+
+        /**
+         * Evaluate the capability
+         *
+         * @param out the output stream
+         * @param params optional parameters
+         */
+        public void tputs(Appendable out, Object... params) {
+            int[] regs = newRegisters();
+            Object[] objs = null;
+            if (params != null) {
+                for (int i = 0; i < params.length && i < NB_PARAMS; i++) {
+                    Object param = params[i];
+                    if (param instanceof Number) {
+                        regs[i] = ((Number) param).intValue();
+                    } else if (param instanceof Boolean) {
+                        regs[i] = (Boolean) param ? 1 : 0;
+                    } else if (param != null) {
+                        if (objs == null) {
+                            objs = new Object[regs.length];
                         }
+                        objs[i] = param;
                     }
-                    break;
-                case '^':
-                    ch = str.charAt(index++);
-                    if (exec) {
-                        out.append((char)(ch - '@'));
-                    }
-                    break;
-                case '%':
-                    ch = str.charAt(index++);
-                    switch (ch) {
-                        case '%':
-                            if (exec) {
-                                out.append('%');
-                            }
-                            break;
-                        case 'p':
-                            ch = str.charAt(index++);
-                            if (exec) {
-                                stack.push(params[ch - '1']);
-                            }
-                            break;
-                        case 'P':
-                            ch = str.charAt(index++);
-                            if (ch >= 'a' && ch <= 'z') {
-                                if (exec) {
-                                    dv[ch - 'a'] = stack.pop();
-                                }
-                            } else if (ch >= 'A' && ch <= 'Z') {
-                                if (exec) {
-                                    sv[ch - 'A'] = stack.pop();
-                                }
-                            } else {
-                                throw new IllegalArgumentException();
-                            }
-                            break;
-                        case 'g':
-                            ch = str.charAt(index++);
-                            if (ch >= 'a' && ch <= 'z') {
-                                if (exec) {
-                                    stack.push(dv[ch - 'a']);
-                                }
-                            } else if (ch >= 'A' && ch <= 'Z') {
-                                if (exec) {
-                                    stack.push(sv[ch - 'A']);
-                                }
-                            } else {
-                                throw new IllegalArgumentException();
-                            }
-                            break;
-                        case '\'':
-                            ch = str.charAt(index++);
-                            if (exec) {
-                                stack.push((int) ch);
-                            }
-                            ch = str.charAt(index++);
-                            if (ch != '\'') {
-                                throw new IllegalArgumentException();
-                            }
-                            break;
-                        case '{':
-                            int start = index;
-                            while (str.charAt(index++) != '}') ;
-                            if (exec) {
-                                int v = Integer.valueOf(str.substring(start, index - 1));
-                                stack.push(v);
-                            }
-                            break;
-                        case 'l':
-                            if (exec) {
-                                stack.push(stack.pop().toString().length());
-                            }
-                            break;
-                        case '+':
-                            if (exec) {
-                                int v2 = toInteger(stack.pop());
-                                int v1 = toInteger(stack.pop());
-                                stack.push(v1 + v2);
-                            }
-                            break;
-                        case '-':
-                            if (exec) {
-                                int v2 = toInteger(stack.pop());
-                                int v1 = toInteger(stack.pop());
-                                stack.push(v1 - v2);
-                            }
-                            break;
-                        case '*':
-                            if (exec) {
-                                int v2 = toInteger(stack.pop());
-                                int v1 = toInteger(stack.pop());
-                                stack.push(v1 * v2);
-                            }
+                }
+            }
+            execute(out, regs, objs);
+        }
+
+        private int[] newRegisters() {
+            // parameters, then the stack, then the dynamic variables
+            return new int[NB_PARAMS + maxStack + (variables ? NB_VARS : 0)];
+        }
+
+        /**
+         * Run the compiled operations.  The integer values live in {@code regs},
+         * while {@code objs}, when not <code>null</code>, holds the non numeric
+         * values (i.e. strings) at the same indices.
+         */
+        private void execute(Appendable out, int[] regs, Object[] objs) {
+            try {
+                final int[] code = this.code;
+                final int base = NB_PARAMS - 1;
+                final int vars = NB_PARAMS + maxStack;
+                int sp = base;
+                int pc = 0;
+                while (pc < code.length) {
+                    int op = code[pc++];
+                    switch (op) {
+                        case TEXT:
+                            out.append(strings[code[pc++]]);
                             break;
-                        case '/':
-                            if (exec) {
-                                int v2 = toInteger(stack.pop());
-                                int v1 = toInteger(stack.pop());
-                                stack.push(v1 / v2);
+                        case PARAM: {
+                            int idx = code[pc++];
+                            regs[++sp] = regs[idx];
+                            if (objs != null) {
+                                objs[sp] = objs[idx];
                             }
                             break;
-                        case 'm':
-                            if (exec) {
-                                int v2 = toInteger(stack.pop());
-                                int v1 = toInteger(stack.pop());
-                                stack.push(v1 % v2);
+                        }
+                        case CONST:
+                            regs[++sp] = code[pc++];
+                            if (objs != null) {
+                                objs[sp] = null;
                             }
                             break;
-                        case '&':
-                            if (exec) {
-                                int v2 = toInteger(stack.pop());
-                                int v1 = toInteger(stack.pop());
-                                stack.push(v1 & v2);
+                        case SET_DYNAMIC: {
+                            int idx = vars + code[pc++];
+                            regs[idx] = regs[sp];
+                            if (objs != null) {
+                                objs[idx] = objs[sp];
                             }
+                            sp--;
                             break;
-                        case '|':
-                            if (exec) {
-                                int v2 = toInteger(stack.pop());
-                                int v1 = toInteger(stack.pop());
-                                stack.push(v1 | v2);
+                        }
+                        case GET_DYNAMIC: {
+                            int idx = vars + code[pc++];
+                            regs[++sp] = regs[idx];
+                            if (objs != null) {
+                                objs[sp] = objs[idx];
                             }
                             break;
-                        case '^':
-                            if (exec) {
-                                int v2 = toInteger(stack.pop());
-                                int v1 = toInteger(stack.pop());
-                                stack.push(v1 ^ v2);
-                            }
+                        }
+                        case SET_STATIC:
+                            sv[code[pc++]] = objs != null && objs[sp] != null ? objs[sp] : (Object) regs[sp];
+                            sp--;
                             break;
-                        case '=':
-                            if (exec) {
-                                int v2 = toInteger(stack.pop());
-                                int v1 = toInteger(stack.pop());
-                                stack.push(v1 == v2);
+                        case GET_STATIC: {
+                            Object v = sv[code[pc++]];
+                            if (v instanceof Number || v instanceof Boolean || v == null) {
+                                regs[++sp] = v != null ? Curses.toInteger(v) : 0;
+                                if (objs != null) {
+                                    objs[sp] = null;
+                                }
+                            } else {
+                                if (objs == null) {
+                                    objs = new Object[regs.length];
+                                }
+                                objs[++sp] = v;
                             }
                             break;
-                        case '>':
-                            if (exec) {
-                                int v2 = toInteger(stack.pop());
-                                int v1 = toInteger(stack.pop());
-                                stack.push(v1 > v2);
+                        }
+                        case LENGTH:
+                            regs[sp] = stringAt(regs, objs, sp).length();
+                            if (objs != null) {
+                                objs[sp] = null;
                             }
                             break;
-                        case '<':
-                            if (exec) {
-                                int v2 = toInteger(stack.pop());
-                                int v1 = toInteger(stack.pop());
-                                stack.push(v1 < v2);
+                        case NOT:
+                            regs[sp] = intAt(regs, objs, sp) == 0 ? 1 : 0;
+                            if (objs != null) {
+                                objs[sp] = null;
                             }
                             break;
-                        case 'A':
-                            if (exec) {
-                                int v2 = toInteger(stack.pop());
-                                int v1 = toInteger(stack.pop());
-                                stack.push(v1 != 0 && v2 != 0);
+                        case COMPLEMENT:
+                            regs[sp] = ~intAt(regs, objs, sp);
+                            if (objs != null) {
+                                objs[sp] = null;
                             }
                             break;
-                        case '!':
-                            if (exec) {
-                                int v1 = toInteger(stack.pop());
-                                stack.push(v1 == 0);
-                            }
+                        case JUMP:
+                            pc = code[pc];
                             break;
-                        case '~':
-                            if (exec) {
-                                int v1 = toInteger(stack.pop());
-                                stack.push(~v1);
+                        case JUMP_IF_FALSE:
+                            if (intAt(regs, objs, sp--) == 0) {
+                                pc = code[pc];
+                            } else {
+                                pc++;
                             }
                             break;
-                        case 'O':
-                            if (exec) {
-                                int v2 = toInteger(stack.pop());
-                                int v1 = toInteger(stack.pop());
-                                stack.push(v1 != 0 || v2 != 0);
+                        case INCREMENT:
+                            for (int i = 0; i < 2; i++) {
+                                if (objs != null && objs[i] != null) {
+                                    regs[i] = Curses.toInteger(objs[i]);
+                                    objs[i] = null;
+                                }
+                                regs[i]++;
                             }
                             break;
-                        case '?':
-                            if (ifte != IFTE_NONE) {
-                                throw new IllegalArgumentException();
-                            } else {
-                                ifte = IFTE_IF;
-                            }
+                        case PRINT_INT:
+                            out.append(Integer.toString(intAt(regs, objs, sp--)));
                             break;
-                        case 't':
-                            if (ifte != IFTE_IF && ifte != IFTE_ELSE) {
-                                throw new IllegalArgumentException();
+                        case FORMAT: {
+                            String fmt = strings[code[pc++]];
+                            int width = code[pc++];
+                            int prec = code[pc++];
+                            boolean left = code[pc++] != 0;
+                            String res;
+                            if (fmt == null) {
+                                res = stringAt(regs, objs, sp--);
+                                if (prec >= 0 && prec < res.length()) {
+                                    res = res.substring(0, prec);
+                                }
                             } else {
-                                ifte = IFTE_THEN;
+                                res = String.format(fmt, intAt(regs, objs, sp--));
                             }
-                            exec = toInteger(stack.pop()) != 0;
-                            break;
-                        case 'e':
-                            if (ifte != IFTE_THEN) {
-                                throw new IllegalArgumentException();
-                            } else {
-                                ifte = IFTE_ELSE;
+                            if (!left) {
+                                pad(out, width - res.length());
                             }
-                            exec = !exec;
-                            break;
-                        case ';':
-                            if (ifte == IFTE_NONE || ifte == IFTE_IF) {
-                                throw new IllegalArgumentException();
-                            } else {
-                                ifte = IFTE_NONE;
+                            out.append(res);
+                            if (left) {
+                                pad(out, width - res.length());
                             }
-                            exec = true;
                             break;
-                        case 'i':
-                            if (params.length >= 1) {
-                                params[0] = toInteger(params[0]) + 1;
+                        }
+                        case DELAY:
+                            // We don't honour delays, just wait
+                            if (out instanceof Flushable) {
+                                ((Flushable) out).flush();
                             }
-                            if (params.length >= 2) {
-                                params[1] = toInteger(params[1]) + 1;
+                            try {
+                                Thread.sleep(code[pc++]);
+                            } catch (InterruptedException e) {
                             }
                             break;
-                        case 'd':
-                            out.append(Integer.toString(toInteger(stack.pop())));
+                        default: {
+                            int v2 = intAt(regs, objs, sp--);
+                            int v1 = intAt(regs, objs, sp);
+                            if (objs != null) {
+                                objs[sp] = null;
+                            }
+                            regs[sp] = binary(op, v1, v2);
                             break;
-                        default:
-                            if (ch == ':') {
+                        }
+                    }
+                    if (sp < base) {
+                        throw new IllegalStateException("Stack underflow evaluating " + source);
+                    }
+                }
+            } catch (Exception e) {
+                throw new IOError(e);
+            }
+        }
+
+        private static int binary(int op, int v1, int v2) {
+            switch (op) {
+                case ADD: return v1 + v2;
+                case SUB: return v1 - v2;
+                case MUL: return v1 * v2;
+                case DIV: return v1 / v2;
+                case MOD: return v1 % v2;
+                case BIT_AND: return v1 & v2;
+                case BIT_OR: return v1 | v2;
+                case BIT_XOR: return v1 ^ v2;
+                case EQ: return v1 == v2 ? 1 : 0;
+                case GT: return v1 > v2 ? 1 : 0;
+                case LT: return v1 < v2 ? 1 : 0;
+                case AND: return v1 != 0 && v2 != 0 ? 1 : 0;
+                case OR: return v1 != 0 || v2 != 0 ? 1 : 0;
+                default: throw new IllegalStateException("Unknown operation: " + op);
+            }
+        }
+
+        private static void pad(Appendable out, int nb) throws IOException {
+            for (int i = 0; i < nb; i++) {
+                out.append(' ');
+            }
+        }
+
+        private static int intAt(int[] regs, Object[] objs, int idx) {
+            return objs != null && objs[idx] != null ? Curses.toInteger(objs[idx]) : regs[idx];
+        }
+
+        private static String stringAt(int[] regs, Object[] objs, int idx) {
+            return objs != null && objs[idx] != null ? objs[idx].toString() : Integer.toString(regs[idx]);
+        }
+
+        @Override
+        public String toString() {
+            return "Template[" + source + "]";
+        }
+    }
+
+    /**
+     * Translates a terminfo capability string into the operations of a {@link Template}.
+     */
+    private static class Compiler {
+
+        private final String str;
+        private final StringBuilder text = new StringBuilder();
+        private final List<String> strings = new ArrayList<>();
+        private final Deque<int[]> conditionals = new ArrayDeque<>();
+        private int[] code = new int[16];
+        private int pc;
+        private int maxStack;
+        private boolean variables;
+        private int index;
+
+        Compiler(String str) {
+            this.str = str;
+        }
+
+        Template compile() {
+            int length = str.length();
+            while (index < length) {
+                char ch = str.charAt(index++);
+                switch (ch) {
+                    case '\\':
+                        ch = str.charAt(index++);
+                        if (ch >= '0' && ch <= '7') {
+                            int val = ch - '0';
+                            for (int i = 0; i < 2; i++) {
                                 ch = str.charAt(index++);
-                            }
-                            boolean alternate = false;
-                            boolean left = false;
-                            boolean space = false;
-                            boolean plus = false;
-                            int width = 0;
-                            int prec = -1;
-                            int cnv;
-                            while ("-+# ".indexOf(ch) >= 0) {
-                                switch (ch) {
-                                    case '-': left = true; break;
-                                    case '+': plus = true; break;
-                                    case '#': alternate = true; break;
-                                    case ' ': space = true; break;
+                                if (ch < '0' || ch > '7') {
+                                    throw new IllegalStateException();
                                 }
-                                ch = str.charAt(index++);
-                            }
-                            if ("123456789".indexOf(ch) >= 0) {
-                                do {
-                                    width = width * 10 + (ch - '0');
-                                    ch = str.charAt(index++);
-                                } while ("0123456789".indexOf(ch) >= 0);
-                            }
-                            if (ch == '.') {
-                                prec = 0;
-                                ch = str.charAt(index++);
-                            }
-                            if ("0123456789".indexOf(ch) >= 0) {
-                                do {
-                                    prec = prec * 10 + (ch - '0');
-                                    ch = str.charAt(index++);
-                                } while ("0123456789".indexOf(ch) >= 0);
+                                val = val * 8 + (ch - '0');
+                            }
+                            text.append((char) val);
+                        } else {
+                            switch (ch) {
+                                case 'e':
+                                case 'E':
+                                    text.append((char) 27); // escape
+                                    break;
+                                case 'n':
+                                    text.append('\n');
+                                    break;
+                                case 'r':
+                                    text.append('\r');
+                                    break;
+                                case 't':
+                                    text.append('\t');
+                                    break;
+                                case 'b':
+                                    text.append('\b');
+                                    break;
+                                case 'f':
+                                    text.append('\f');
+                                    break;
+                                case 's':
+                                    text.append(' ');
+                                    break;
+                                case ':':
+                                case '^':
+                                case '\\':
+                                    text.append(ch);
+                                    break;
+                                default:
+                                    throw new IllegalArgumentException();
                             }
-                            if ("cdoxXs".indexOf(ch) < 0) {
-                                throw new IllegalArgumentException();
-                            }
-                            cnv = ch;
-                            if (exec) {
-                                String res;
-                                if (cnv == 's') {
-                                    res = (String) stack.pop();
-                                    if (prec >= 0) {
-                                        res = res.substring(0, prec);
-                                    }
-                                } else {
-                                    int p = toInteger(stack.pop());
-                                    StringBuilder fmt = new StringBuilder(16);
-                                    fmt.append('%');
-                                    if (alternate) {
-                                        fmt.append('#');
-                                    }
-                                    if (plus) {
-                                        fmt.append('+');
-                                    }
-                                    if (space) {
-                                        fmt.append(' ');
-                                    }
-                                    if (prec >= 0) {
-                                        fmt.append('0');
-                                        fmt.append(prec);
-                                    }
-                                    fmt.append((char) cnv);
-                                    res = String.format(fmt.toString(), p);
-                                }
-                                if (width > res.length()) {
-                                    res = String.format("%" + (left ? "-" : "") + width + "s", res);
+                        }
+                        break;
+                    case '^':
+                        ch = str.charAt(index++);
+                        text.append((char) (ch - '@'));
+                        break;
+                    case '%':
+                        percent();
+                        break;
+                    case '$':
+                        if (index < length && str.charAt(index) == '<') {
+                            int nb = 0;
+                            while ((ch = str.charAt(++index)) != '>') {
+                                if (ch >= '0' && ch <= '9') {
+                                    nb = nb * 10 + (ch - '0');
                                 }
-                                out.append(res);
+                                // '*', '/' and anything else are ignored
                             }
-                            break;
+                            index++;
+                            emit(DELAY, nb);
+                        } else {
+                            text.append(ch);
+                        }
+                        break;
+                    default:
+                        text.append(ch);
+                        break;
+                }
+            }
+            if (!conditionals.isEmpty()) {
+                throw new IllegalArgumentException("Unterminated conditional");
+            }
+            flushText();
+            return new Template(str, Arrays.copyOf(code, pc), strings.toArray(new String[0]),
+                    maxStack, variables);
+        }
+
+        private void percent() {
+            char ch = str.charAt(index++);
+            switch (ch) {
+                case '%':
+                    text.append('%');
+                    break;
+                case 'p':
+                    ch = str.charAt(index++);
+                    if (ch < '1' || ch > '9') {
+                        throw new IllegalArgumentException();
                     }
+                    push(PARAM, ch - '1');
                     break;
-                case '$':
-                    if (index < length && str.charAt(index) == '<') {
-                        // We don't honour delays, just skip
-                        int nb = 0;
-                        while ((ch = str.charAt(++index)) != '>') {
-                            if (ch >= '0' && ch <= '9') {
-                                nb = nb * 10 + (ch - '0');
-                            } else if (ch == '*') {
-                                // ignore
-                            } else if (ch == '/') {
-                                // ignore
-                            } else {
-                                // illegal, but ...
-                            }
-                        }
-                        index++;
-                        try {
-                            if (out instanceof Flushable) {
-                                ((Flushable) out).flush();
-                            }
-                            Thread.sleep(nb);
-                        } catch (InterruptedException e) {
-                        }
+                case 'P':
+                    ch = str.charAt(index++);
+                    if (ch >= 'a' && ch <= 'z') {
+                        variables = true;
+                        emit(SET_DYNAMIC, ch - 'a');
+                    } else if (ch >= 'A' && ch <= 'Z') {
+                        emit(SET_STATIC, ch - 'A');
                     } else {
-                        if (exec) {
-                            out.append(ch);
-                        }
+                        throw new IllegalArgumentException();
                     }
                     break;
-                default:
-                    if (exec) {
-                        out.append(ch);
+                case 'g':
+                    ch = str.charAt(index++);
+                    if (ch >= 'a' && ch <= 'z') {
+                        variables = true;
+                        push(GET_DYNAMIC, ch - 'a');
+                    } else if (ch >= 'A' && ch <= 'Z') {
+                        push(GET_STATIC, ch - 'A');
+                    } else {
+                        throw new IllegalArgumentException();
                     }
                     break;
+                case '\'':
+                    ch = str.charAt(index++);
+                    push(CONST, ch);
+                    if (str.charAt(index++) != '\'') {
+                        throw new IllegalArgumentException();
+                    }
+                    break;
+                case '{':
+                    int start = index;
+                    while (str.charAt(index++) != '}') ;
+                    push(CONST, Integer.parseInt(str.substring(start, index - 1)));
+                    break;
+                case 'l':
+                    emit(LENGTH);
+                    break;
+                case '+':
+                    emit(ADD);
+                    break;
+                case '-':
+                    emit(SUB);
+                    break;
+                case '*':
+                    emit(MUL);
+                    break;
+                case '/':
+                    emit(DIV);
+                    break;
+                case 'm':
+                    emit(MOD);
+                    break;
+                case '&':
+                    emit(BIT_AND);
+                    break;
+                case '|':
+                    emit(BIT_OR);
+                    break;
+                case '^':
+                    emit(BIT_XOR);
+                    break;
+                case '=':
+                    emit(EQ);
+                    break;
+                case '>':
+                    emit(GT);
+                    break;
+                case '<':
+                    emit(LT);
+                    break;
+                case 'A':
+                    emit(AND);
+                    break;
+                case 'O':
+                    emit(OR);
+                    break;
+                case '!':
+                    emit(NOT);
+                    break;
+                case '~':
+                    emit(COMPLEMENT);
+                    break;
+                case '?':
+                    // the pending false jump and the first jump to the end
+                    conditionals.push(new int[] { -1, -1 });
+                    break;
+                case 't': {
+                    int[] cond = conditionals.peek();
+                    if (cond == null || cond[0] >= 0) {
+                        throw new IllegalArgumentException();
+                    }
+                    emit(JUMP_IF_FALSE, -1);
+                    cond[0] = pc - 1;
+                    break;
+                }
+                case 'e': {
+                    int[] cond = conditionals.peek();
+                    if (cond == null || cond[0] < 0) {
+                        throw new IllegalArgumentException();
+                    }
+                    // chain the jumps to the end through their operand
+                    emit(JUMP, cond[1]);
+                    cond[1] = pc - 1;
+                    code[cond[0]] = pc;
+                    cond[0] = -1;
+                    break;
+                }
+                case ';': {
+                    int[] cond = conditionals.poll();
+                    if (cond == null || (cond[0] < 0 && cond[1] < 0)) {
+                        throw new IllegalArgumentException();
+                    }
+                    flushText();
+                    if (cond[0] >= 0) {
+                        code[cond[0]] = pc;
+                    }
+                    for (int jump = cond[1]; jump >= 0; ) {
+                        int next = code[jump];
+                        code[jump] = pc;
+                        jump = next;
+                    }
+                    break;
+                }
+                case 'i':
+                    emit(INCREMENT);
+                    break;
+                case 'd':
+                    emit(PRINT_INT);
+                    break;
+                default:
+                    format(ch);
+                    break;
+            }
+        }
+
+        private void format(char ch) {
+            if (ch == ':') {
+                ch = str.charAt(index++);
+            }
+            boolean alternate = false;
+            boolean left = false;
+            boolean space = false;
+            boolean plus = false;
+            int width = 0;
+            int prec = -1;
+            while ("-+# ".indexOf(ch) >= 0) {
+                switch (ch) {
+                    case '-': left = true; break;
+                    case '+': plus = true; break;
+                    case '#': alternate = true; break;
+                    case ' ': space = true; break;
+                }
+                ch = str.charAt(index++);
+            }
+            if ("123456789".indexOf(ch) >= 0) {
+                do {
+                    width = width * 10 + (ch - '0');
+                    ch = str.charAt(index++);
+                } while ("0123456789".indexOf(ch) >= 0);
+            }
+            if (ch == '.') {
+                prec = 0;
+                ch = str.charAt(index++);
+            }
+            if ("0123456789".indexOf(ch) >= 0) {
+                do {
+                    prec = prec * 10 + (ch - '0');
+                    ch = str.charAt(index++);
+                } while ("0123456789".indexOf(ch) >= 0);
+            }
+            if ("cdoxXs".indexOf(ch) < 0) {
+                throw new IllegalArgumentException();
+            }
+            String fmt = null;
+            if (ch != 's') {
+                StringBuilder sb = new StringBuilder(16);
+                sb.append('%');
+                if (alternate) {
+                    sb.append('#');
+                }
+                if (plus) {
+                    sb.append('+');
+                }
+                if (space) {
+                    sb.append(' ');
+                }
+                if (prec >= 0) {
+                    sb.append('0');
+                    sb.append(prec);
+                }
+                sb.append(ch);
+                fmt = sb.toString();
+            }
+            if ("%d".equals(fmt) && width == 0) {
+                emit(PRINT_INT);
+            } else {
+                flushText();
+                strings.add(fmt);
+                emit(FORMAT, strings.size() - 1, width, prec, left ? 1 : 0);
+            }
+        }
+
+        private void push(int op, int arg) {
+            emit(op, arg);
+            maxStack++;
+        }
+
+        private void emit(int op, int... args) {
+            flushText();
+            append(op);
+            for (int arg : args) {
+                append(arg);
+            }
+        }
+
+        private void flushText() {
+            if (text.length() > 0) {
+                strings.add(text.toString());
+                text.setLength(0);
+                append(TEXT);
+                append(strings.size() - 1);
+            }
+        }
+
+        private void append(int v) {
+            if (pc == code.length) {
+                code = Arrays.copyOf(code, pc * 2);
             }
+            code[pc++] = v;
         }
     }
 
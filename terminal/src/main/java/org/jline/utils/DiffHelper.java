@@ -74,18 +74,61 @@ public class DiffHelper {
      * @return a list of Diff
      */
     public static List<Diff> diff(AttributedString text1, AttributedString text2) {
+        int l1 = text1.length();
+        int l2 = text2.length();
+        int commonStart = commonStart(text1, text2);
+        int commonEnd = commonEnd(text1, text2, commonStart);
+        LinkedList<Diff> diffs = new LinkedList<>();
+        if (commonStart > 0) {
+            diffs.add(new Diff(DiffHelper.Operation.EQUAL,
+                    text1.subSequence(0, commonStart)));
+        }
+        if (l2 > commonStart + commonEnd) {
+            diffs.add(new Diff(DiffHelper.Operation.INSERT,
+                    text2.subSequence(commonStart, l2 - commonEnd)));
+        }
+        if (l1 > commonStart + commonEnd) {
+            diffs.add(new Diff(DiffHelper.Operation.DELETE,
+                    text1.subSequence(commonStart, l1 - commonEnd)));
+        }
+        if (commonEnd > 0) {
+            diffs.add(new Diff(DiffHelper.Operation.EQUAL,
+                    text1.subSequence(l1 - commonEnd, l1)));
+        }
+        return diffs;
+    }
+
+    /**
+     * Compute the length of the common prefix of two lines, comparing
+     * both the characters and their attributes.
+     * Given a run of contiguous "hidden" characters (which are sequences
+     * of uninterrupted escape sequences) we always want to print either
+     * the entire run or none of it - never a part of it, so the prefix
+     * never ends inside such a run.
+     *
+     * This method works directly on the underlying arrays and does not
+     * allocate any object.
+     *
+     * @param text1 the old line
+     * @param text2 the new line
+     * @return the number of leading characters common to both lines
+     */
+    public static int commonStart(AttributedString text1, AttributedString text2) {
         int l1 = text1.length();
         int l2 = text2.length();
         int n = Math.min(l1, l2);
+        char[] b1 = text1.buffer;
+        char[] b2 = text2.buffer;
+        long[] s1 = text1.style;
+        long[] s2 = text2.style;
+        int o1 = text1.start;
+        int o2 = text2.start;
         int commonStart = 0;
-        // Given a run of contiguous "hidden" characters (which are
-        // sequences of uninterrupted escape sequences) we always want to
-        // print either the entire run or none of it - never a part of it.
         int startHiddenRange = -1;
         while (commonStart < n
-                && text1.charAt(commonStart) == text2.charAt(commonStart)
-                && text1.styleAt(commonStart).equals(text2.styleAt(commonStart))) {
-            if (text1.isHidden(commonStart)) {
+                && b1[o1 + commonStart] == b2[o2 + commonStart]
+                && s1[o1 + commonStart] == s2[o2 + commonStart]) {
+            if ((s1[o1 + commonStart] & AttributedStyle.F_HIDDEN) != 0) {
                 if (startHiddenRange < 0)
                     startHiddenRange = commonStart;
             } else
@@ -96,13 +139,36 @@ public class DiffHelper {
             && ((l1 > commonStart && text1.isHidden(commonStart))
                 || (l2 > commonStart && text2.isHidden(commonStart))))
             commonStart = startHiddenRange;
+        return commonStart;
+    }
 
-        startHiddenRange = -1;
+    /**
+     * Compute the length of the common suffix of two lines, not overlapping
+     * the given common prefix.  As for {@link #commonStart(AttributedString, AttributedString)},
+     * the suffix never starts inside a run of hidden characters, and no
+     * object is allocated.
+     *
+     * @param text1 the old line
+     * @param text2 the new line
+     * @param commonStart the length of the common prefix
+     * @return the number of trailing characters common to both lines
+     */
+    public static int commonEnd(AttributedString text1, AttributedString text2, int commonStart) {
+        int l1 = text1.length();
+        int l2 = text2.length();
+        int n = Math.min(l1, l2);
+        char[] b1 = text1.buffer;
+        char[] b2 = text2.buffer;
+        long[] s1 = text1.style;
+        long[] s2 = text2.style;
+        int e1 = text1.end - 1;
+        int e2 = text2.end - 1;
         int commonEnd = 0;
+        int startHiddenRange = -1;
         while (commonEnd < n - commonStart
-                && text1.charAt(l1 - commonEnd - 1) == text2.charAt(l2 - commonEnd - 1)
-                && text1.styleAt(l1 - commonEnd - 1).equals(text2.styleAt(l2 - commonEnd - 1))) {
-            if (text1.isHidden(l1 - commonEnd - 1)) {
+                && b1[e1 - commonEnd] == b2[e2 - commonEnd]
+                && s1[e1 - commonEnd] == s2[e2 - commonEnd]) {
+            if ((s1[e1 - commonEnd] & AttributedStyle.F_HIDDEN) != 0) {
                 if (startHiddenRange < 0)
                     startHiddenRange = commonEnd;
             } else
@@ -111,24 +177,7 @@ public class DiffHelper {
         }
         if (startHiddenRange >= 0)
             commonEnd = startHiddenRange;
-        LinkedList<Diff> diffs = new LinkedList<>();
-        if (commonStart > 0) {
-            diffs.add(new Diff(DiffHelper.Operation.EQUAL,
-                    text1.subSequence(0, commonStart)));
-        }
-        if (l2 > commonStart + commonEnd) {
-            diffs.add(new Diff(DiffHelper.Operation.INSERT,
-                    text2.subSequence(commonStart, l2 - commonEnd)));
-        }
-        if (l1 > commonStart + commonEnd) {
-            diffs.add(new Diff(DiffHelper.Operation.DELETE,
-                    text1.subSequence(commonStart, l1 - commonEnd)));
-        }
-        if (commonEnd > 0) {
-            diffs.add(new Diff(DiffHelper.Operation.EQUAL,
-                    text1.subSequence(l1 - commonEnd, l1)));
-        }
-        return diffs;
+        return commonEnd;
     }
 
 }
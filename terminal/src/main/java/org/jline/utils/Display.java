@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2002-2020, the original author or authors.
+ * Copyright (c) 2002-2021, the original author or authors.
  *
  * This software is distributable under the BSD license. See the terms of the
  * BSD license in the documentation provided with this software.
@@ -8,6 +8,7 @@
  */
 package org.jline.utils;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -110,6 +111,16 @@ public class Display {
      * @param flush whether the output should be flushed or not
      */
     public void update(List<AttributedString> newLines, int targetCursorPos, boolean flush) {
+        // Write the whole update in a single frame
+        terminal.beginFrame();
+        try {
+            doUpdate(newLines, targetCursorPos, flush);
+        } finally {
+            terminal.endFrame();
+        }
+    }
+
+    private void doUpdate(List<AttributedString> newLines, int targetCursorPos, boolean flush) {
         if (reset) {
             terminal.puts(Capability.clear_screen);
             oldLines.clear();
@@ -224,76 +235,69 @@ public class Display {
                     currentPos = cursorPos;
                 }
             }
-            List<DiffHelper.Diff> diffs = DiffHelper.diff(oldLine, newLine);
+            // The diff is made of (optionally) a common prefix, inserted text,
+            // deleted text and a common suffix, see DiffHelper#diff
+            int commonStart = DiffHelper.commonStart(oldLine, newLine);
+            int commonEnd = DiffHelper.commonEnd(oldLine, newLine, commonStart);
+            int oldEnd = oldLength - commonEnd;
+            int newEnd = newLength - commonEnd;
+            boolean hasInsert = newEnd > commonStart;
+            boolean hasDelete = oldEnd > commonStart;
             boolean ident = true;
             boolean cleared = false;
-            for (int i = 0; i < diffs.size(); i++) {
-                DiffHelper.Diff diff = diffs.get(i);
-                int width = diff.text.columnLength();
-                switch (diff.operation) {
-                    case EQUAL:
-                        if (!ident) {
-                            cursorPos = moveVisualCursorTo(currentPos);
-                            rawPrint(diff.text);
-                            cursorPos += width;
-                            currentPos = cursorPos;
-                        } else {
-                            currentPos += width;
-                        }
-                        break;
-                    case INSERT:
-                        if (i <= diffs.size() - 2
-                                && diffs.get(i + 1).operation == DiffHelper.Operation.EQUAL) {
-                            cursorPos = moveVisualCursorTo(currentPos);
-                            if (insertChars(width)) {
-                                rawPrint(diff.text);
-                                cursorPos += width;
-                                currentPos = cursorPos;
-                                break;
-                            }
-                        } else if (i <= diffs.size() - 2
-                                && diffs.get(i + 1).operation == DiffHelper.Operation.DELETE
-                                && width == diffs.get(i + 1).text.columnLength()) {
-                            moveVisualCursorTo(currentPos);
-                            rawPrint(diff.text);
-                            cursorPos += width;
-                            currentPos = cursorPos;
-                            i++; // skip delete
-                            break;
-                        }
-                        moveVisualCursorTo(currentPos);
-                        rawPrint(diff.text);
-                        cursorPos += width;
-                        currentPos = cursorPos;
-                        ident = false;
-                        break;
-                    case DELETE:
-                        if (cleared) {
-                            continue;
-                        }
-                        if (currentPos - curCol >= columns) {
-                            continue;
-                        }
-                        if (i <= diffs.size() - 2
-                                && diffs.get(i + 1).operation == DiffHelper.Operation.EQUAL) {
-                            if (currentPos + diffs.get(i + 1).text.columnLength() < columns) {
-                                moveVisualCursorTo(currentPos);
-                                if (deleteChars(width)) {
-                                    break;
-                                }
-                            }
-                        }
-                        int oldLen = oldLine.columnLength();
-                        int newLen = newLine.columnLength();
-                        int nb = Math.max(oldLen, newLen) - (currentPos - curCol);
-                        moveVisualCursorTo(currentPos);
-                        if (!terminal.puts(Capability.clr_eol)) {
-                            rawPrint(' ', nb);
-                            cursorPos += nb;
-                        }
-                        cleared = true;
-                        ident = false;
-                        break;
+            if (commonStart > 0) {
+                currentPos += newLine.columnLength(0, commonStart);
+            }
+            if (hasInsert) {
+                AttributedString text = newLine.subSequence(commonStart, newEnd);
+                int width = text.columnLength();
+                boolean done = false;
+                if (!hasDelete && commonEnd > 0) {
+                    cursorPos = moveVisualCursorTo(currentPos);
+                    done = insertChars(width);
+                } else if (hasDelete && width == oldLine.columnLength(commonStart, oldEnd)) {
+                    moveVisualCursorTo(currentPos);
+                    // the deleted text is overwritten
+                    hasDelete = false;
+                    done = true;
+                }
+                if (!done) {
+                    moveVisualCursorTo(currentPos);
+                    ident = false;
+                }
+                rawPrint(text);
+                cursorPos += width;
+                currentPos = cursorPos;
+            }
+            if (hasDelete && currentPos - curCol < columns) {
+                int width = oldLine.columnLength(commonStart, oldEnd);
+                boolean done = false;
+                if (commonEnd > 0
+                        && currentPos + oldLine.columnLength(oldEnd, oldLength) < columns) {
+                    moveVisualCursorTo(currentPos);
+                    done = deleteChars(width);
+                }
+                if (!done) {
+                    int oldLen = oldLine.columnLength();
+                    int newLen = newLine.columnLength();
+                    int nb = Math.max(oldLen, newLen) - (currentPos - curCol);
+                    moveVisualCursorTo(currentPos);
+                    if (!terminal.puts(Capability.clr_eol)) {
+                        rawPrint(' ', nb);
+                        cursorPos += nb;
+                    }
+                    cleared = true;
+                    ident = false;
+                }
+            }
+            if (commonEnd > 0) {
+                if (!ident) {
+                    cursorPos = moveVisualCursorTo(currentPos);
+                    rawPrint(oldLine.subSequence(oldEnd, oldLength));
+                    cursorPos += oldLine.columnLength(oldEnd, oldLength);
+                    currentPos = cursorPos;
+                } else {
+                    currentPos += oldLine.columnLength(oldEnd, oldLength);
                 }
             }
             lineIndex++;
@@ -379,25 +383,151 @@ public class Display {
         return s != null ? s.length() : Integer.MAX_VALUE;
     }
 
-    private static int[] longestCommon(List<AttributedString> l1, List<AttributedString> l2) {
-        int start1 = 0;
-        int start2 = 0;
-        int max = 0;
-        for (int i = 0; i < l1.size(); i++) {
-            for (int j = 0; j < l2.size(); j++) {
-                int x = 0;
-                while (Objects.equals(l1.get(i + x), l2.get(j + x))) {
-                    x++;
-                    if (((i + x) >= l1.size()) || ((j + x) >= l2.size())) break;
-                }
-                if (x > max) {
-                    max = x;
-                    start1 = i;
-                    start2 = j;
+    /**
+     * Find the longest run of identical lines between the two lists.
+     * Lines are compared using their (cached) hash codes, and runs using a
+     * rolling hash over those, so that a binary search on the run length
+     * gives a O(n log n) complexity.  Among the longest runs, the one with
+     * the lowest index in <code>l1</code>, then in <code>l2</code> is returned.
+     *
+     * @return <code>{ start1, start2, length }</code> or <code>null</code>
+     *         if the lists have no line in common
+     */
+    static int[] longestCommon(List<AttributedString> l1, List<AttributedString> l2) {
+        int[] h1 = hashes(l1);
+        int[] h2 = hashes(l2);
+        WindowTable windows = new WindowTable(h2.length);
+        int[] best = null;
+        int lo = 0;
+        int hi = Math.min(h1.length, h2.length);
+        while (lo < hi) {
+            int len = (lo + hi + 1) >>> 1;
+            int[] common = commonRun(l1, h1, l2, h2, len, windows);
+            if (common != null) {
+                best = common;
+                lo = len;
+            } else {
+                hi = len - 1;
+            }
+        }
+        return best;
+    }
+
+    private static int[] hashes(List<AttributedString> lines) {
+        int[] hashes = new int[lines.size()];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = Objects.hashCode(lines.get(i));
+        }
+        return hashes;
+    }
+
+    private static final long HASH_BASE = 1_000_000_007L;
+
+    /*
+     * Find the first run of len lines of l1 which also appears in l2.
+     */
+    private static int[] commonRun(List<AttributedString> l1, int[] h1,
+                                   List<AttributedString> l2, int[] h2,
+                                   int len, WindowTable windows) {
+        long pow = 1;
+        for (int k = 0; k < len; k++) {
+            pow *= HASH_BASE;
+        }
+        windows.clear();
+        long h = 0;
+        for (int j = 0; j < h2.length; j++) {
+            h = h * HASH_BASE + h2[j];
+            if (j >= len) {
+                h -= pow * h2[j - len];
+            }
+            if (j >= len - 1) {
+                windows.add(h, j - len + 1);
+            }
+        }
+        h = 0;
+        for (int i = 0; i < h1.length; i++) {
+            h = h * HASH_BASE + h1[i];
+            if (i >= len) {
+                h -= pow * h1[i - len];
+            }
+            if (i >= len - 1) {
+                // different windows may have the same hash
+                for (int j = windows.first(h); j >= 0; j = windows.next(j)) {
+                    if (sameLines(l1, i - len + 1, l2, j, len)) {
+                        return new int[] { i - len + 1, j, len };
+                    }
                 }
             }
         }
-        return max != 0 ? new int[] { start1, start2, max } : null;
+        return null;
+    }
+
+    /*
+     * Hash table from the rolling hashes of the windows of l2 to their start
+     * indices, keeping all the windows with the same hash in increasing order.
+     * It is reused for each run length tried by the binary search.
+     */
+    private static final class WindowTable {
+
+        private final long[] keys;
+        private final int[] heads;
+        private final int[] tails;
+        private final int[] next;
+
+        WindowTable(int size) {
+            int capacity = 2;
+            while (capacity < size * 2) {
+                capacity <<= 1;
+            }
+            keys = new long[capacity];
+            heads = new int[capacity];
+            tails = new int[capacity];
+            next = new int[size];
+        }
+
+        void clear() {
+            Arrays.fill(heads, -1);
+        }
+
+        void add(long hash, int index) {
+            int slot = slot(hash);
+            if (heads[slot] < 0) {
+                keys[slot] = hash;
+                heads[slot] = index;
+            } else {
+                next[tails[slot]] = index;
+            }
+            tails[slot] = index;
+            next[index] = -1;
+        }
+
+        int first(long hash) {
+            return heads[slot(hash)];
+        }
+
+        int next(int index) {
+            return next[index];
+        }
+
+        private int slot(long hash) {
+            int mask = keys.length - 1;
+            int slot = (int) ((hash * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+            while (heads[slot] >= 0 && keys[slot] != hash) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+
+    private static boolean sameLines(List<AttributedString> l1, int s1,
+                                     List<AttributedString> l2, int s2,
+                                     int len) {
+        for (int k = 0; k < len; k++) {
+            if (!Objects.equals(l1.get(s1 + k), l2.get(s2 + k))) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /*
@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.utils;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * An output stream coalescing the output of a whole frame into a single write.
+ *
+ * <p>When enabled, all data written is accumulated in a reusable buffer
+ * which is only written to the underlying stream when flushed.  Flushes
+ * requested between {@link #beginFrame()} and {@link #endFrame()} are
+ * deferred until the end of the outermost frame, so that a screen update
+ * made of several flushing components results in a single write.
+ * When disabled, which is the default, all calls are passed through.</p>
+ *
+ * <p>When synchronized output is enabled, each outermost frame is wrapped
+ * in the begin / end synchronized update sequences (DEC private mode 2026),
+ * so that terminals supporting it render the frame atomically.  Frames
+ * in which nothing has been written are dropped.</p>
+ */
+public class FrameOutputStream extends FilterOutputStream {
+
+    private static final int INITIAL_SIZE = 8192;
+    private static final int MAX_RETAINED_SIZE = 256 * 1024;
+    private static final int MAX_FRAME_SIZE = 4 * 1024 * 1024;
+
+    /** Begin synchronized update */
+    public static final String BSU = "\033[?2026h";
+    /** End synchronized update */
+    public static final String ESU = "\033[?2026l";
+
+    private static final byte[] BSU_BYTES = BSU.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ESU_BYTES = ESU.getBytes(StandardCharsets.US_ASCII);
+
+    private volatile boolean enabled;
+    private byte[] buf = new byte[0];
+    private int count;
+    private int depth;
+    private boolean pendingFlush;
+    private volatile boolean synchronizedOutput;
+    // Position in the buffer after the begin synchronized update sequence,
+    // or -1 if the frame content has been partially written
+    private int frameStart = -1;
+
+    private long frames;
+    private long flushes;
+    private long bytes;
+
+    public FrameOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized void setEnabled(boolean enabled) throws IOException {
+        if (!enabled && this.enabled) {
+            if (depth > 0) {
+                endSynchronizedUpdate();
+            }
+            depth = 0;
+            writeFrame();
+        }
+        this.enabled = enabled;
+    }
+
+    public boolean isSynchronizedOutput() {
+        return synchronizedOutput;
+    }
+
+    /**
+     * Enable or disable the wrapping of frames in synchronized updates.
+     * This only has an effect when this stream is enabled.
+     *
+     * @param synchronizedOutput whether frames should be synchronized updates
+     */
+    public synchronized void setSynchronizedOutput(boolean synchronizedOutput) {
+        this.synchronizedOutput = synchronizedOutput;
+    }
+
+    /**
+     * Returns the nesting depth of the current frame.
+     *
+     * @return the depth, or <code>0</code> if no frame has been started
+     */
+    public synchronized int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Start a frame, deferring flushes until the matching {@link #endFrame()}.
+     * Frames can be nested.
+     */
+    public synchronized void beginFrame() throws IOException {
+        if (enabled && depth++ == 0 && synchronizedOutput) {
+            ensureCapacity(BSU_BYTES.length);
+            System.arraycopy(BSU_BYTES, 0, buf, count, BSU_BYTES.length);
+            count += BSU_BYTES.length;
+            frameStart = count;
+        }
+    }
+
+    /**
+     * End a frame.  If this ends the outermost frame and a flush has been
+     * requested during the frame, the caller is expected to flush this stream,
+     * or the writer wrapping it, to write the frame.
+     *
+     * @return <code>true</code> if the frame needs to be flushed
+     */
+    public synchronized boolean endFrame() throws IOException {
+        if (depth > 0 && --depth == 0) {
+            endSynchronizedUpdate();
+            return pendingFlush;
+        }
+        return false;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (!enabled) {
+            out.write(b);
+            return;
+        }
+        synchronized (this) {
+            ensureCapacity(1);
+            buf[count++] = (byte) b;
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (!enabled) {
+            out.write(b, off, len);
+            return;
+        }
+        synchronized (this) {
+            if (count + len > MAX_FRAME_SIZE) {
+                // do not let a frame which is never ended grow forever
+                out.write(buf, 0, count);
+                out.write(b, off, len);
+                bytes += count + len;
+                count = 0;
+                frameStart = -1;
+                return;
+            }
+            ensureCapacity(len);
+            System.arraycopy(b, off, buf, count, len);
+            count += len;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (!enabled) {
+            out.flush();
+            return;
+        }
+        synchronized (this) {
+            if (depth > 0) {
+                flushes++;
+                pendingFlush = true;
+            } else {
+                // a pending flush has already been counted when deferred
+                if (!pendingFlush) {
+                    flushes++;
+                }
+                writeFrame();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (depth > 0) {
+                endSynchronizedUpdate();
+            }
+            depth = 0;
+            enabled = false;
+            if (count > 0) {
+                out.write(buf, 0, count);
+                count = 0;
+            }
+        }
+        super.close();
+    }
+
+    /**
+     * Number of frames written to the underlying stream.
+     *
+     * @return the number of frames
+     */
+    public synchronized long getFrames() {
+        return frames;
+    }
+
+    /**
+     * Number of flushes requested while enabled.  Compared to the number of
+     * frames, this gives the number of flushes coalesced in each frame.
+     *
+     * @return the number of flushes
+     */
+    public synchronized long getFlushes() {
+        return flushes;
+    }
+
+    /**
+     * Number of bytes written to the underlying stream in frames.
+     *
+     * @return the number of bytes
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    private void ensureCapacity(int len) throws IOException {
+        if (count + len > buf.length) {
+            if (count + len > MAX_FRAME_SIZE) {
+                // do not let a frame which is never ended grow forever
+                out.write(buf, 0, count);
+                bytes += count;
+                count = 0;
+                frameStart = -1;
+                return;
+            }
+            int size = Math.max(Math.max(buf.length * 2, INITIAL_SIZE), count + len);
+            buf = Arrays.copyOf(buf, size);
+        }
+    }
+
+    private void endSynchronizedUpdate() throws IOException {
+        if (!synchronizedOutput || !enabled) {
+            return;
+        }
+        if (count == frameStart) {
+            // nothing has been written in this frame
+            count -= BSU_BYTES.length;
+        } else {
+            ensureCapacity(ESU_BYTES.length);
+            System.arraycopy(ESU_BYTES, 0, buf, count, ESU_BYTES.length);
+            count += ESU_BYTES.length;
+        }
+        frameStart = -1;
+    }
+
+    private void writeFrame() throws IOException {
+        pendingFlush = false;
+        if (count > 0) {
+            out.write(buf, 0, count);
+            frames++;
+            bytes += count;
+            count = 0;
+            if (buf.length > MAX_RETAINED_SIZE) {
+                buf = new byte[INITIAL_SIZE];
+            }
+        }
+        out.flush();
+    }
+
+}
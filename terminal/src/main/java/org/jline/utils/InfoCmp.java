@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2002-2019, the original author or authors.
+ * Copyright (c) 2002-2021, the original author or authors.
  *
  * This software is distributable under the BSD license. See the terms of the
  * BSD license in the documentation provided with this software.
@@ -13,12 +13,19 @@ import java.io.IOError;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
+import static org.jline.terminal.TerminalBuilder.PROP_INFOCMP_CACHE_DIR;
+
 /**
  * Infocmp helper methods.
  *
@@ -26,7 +33,12 @@ import java.util.stream.Collectors;
  */
 public final class InfoCmp {
 
-    private static final Map<String, Object> CAPS = new HashMap<>();
+    private static final Map<String, Object> CAPS = new ConcurrentHashMap<>();
+
+    private static final int MAX_PARSED = 32;
+    private static final Map<String, ParsedInfoCmp> PARSED = new ConcurrentHashMap<>();
+    private static final Pattern CAPABILITY = Pattern.compile("\\s*(([^,]|\\\\,)+)\\s*[,$]");
+    private static volatile Map<String, Capability> capabilitiesByName;
 
     private InfoCmp() {
     }
@@ -508,11 +520,24 @@ public final class InfoCmp {
         }
 
         public static Capability byName(String name) {
-            return getCapabilitiesByName().get(name);
+            return capabilitiesByName().get(name);
         }
     }
 
     public static Map<String, Capability> getCapabilitiesByName() {
+        return new LinkedHashMap<>(capabilitiesByName());
+    }
+
+    private static Map<String, Capability> capabilitiesByName() {
+        Map<String, Capability> capabilities = capabilitiesByName;
+        if (capabilities == null) {
+            capabilities = Collections.unmodifiableMap(loadCapabilitiesByName());
+            capabilitiesByName = capabilities;
+        }
+        return capabilities;
+    }
+
+    private static Map<String, Capability> loadCapabilitiesByName() {
         Map<String, Capability> capabilities = new LinkedHashMap<>();
         try (InputStream is = InfoCmp.class.getResourceAsStream("capabilities.txt");
              BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
@@ -544,31 +569,119 @@ public final class InfoCmp {
     ) throws IOException, InterruptedException {
         String caps = getLoadedInfoCmp(terminal);
         if (caps == null) {
-            Process p = new ProcessBuilder(OSUtils.INFOCMP_COMMAND, terminal).start();
-            caps = ExecHelper.waitAndCapture(p);
+            Path cache = getCacheFile(terminal);
+            caps = cache != null ? readCache(cache) : null;
+            if (caps == null) {
+                Process p = new ProcessBuilder(OSUtils.INFOCMP_COMMAND, terminal).start();
+                caps = ExecHelper.waitAndCapture(p);
+                if (cache != null && p.exitValue() == 0 && !caps.isEmpty()) {
+                    writeCache(cache, caps);
+                }
+            }
             CAPS.put(terminal, caps);
         }
         return caps;
     }
 
+    /**
+     * Forget the capabilities loaded for the given terminal.
+     */
+    static void removeInfoCmp(String terminal) {
+        CAPS.remove(terminal);
+    }
+
     public static String getLoadedInfoCmp(String terminal) {
         Object caps = CAPS.get(terminal);
         if (caps instanceof Supplier) {
+            Object supplier = caps;
             caps = ((Supplier) caps).get();
+            if (caps != null) {
+                CAPS.replace(terminal, supplier, caps);
+            }
         }
         return (String) caps;
     }
 
+    /**
+     * Returns the file caching the <code>infocmp</code> output for the given terminal,
+     * or <code>null</code> if the on-disk cache is disabled, which is the default.
+     * The cache is enabled by setting the {@link org.jline.terminal.TerminalBuilder#PROP_INFOCMP_CACHE_DIR}
+     * system property to a directory.  Cached entries are never refreshed, so the
+     * directory should be cleared when the system terminfo database is updated.
+     */
+    private static Path getCacheFile(String terminal) {
+        String dir = System.getProperty(PROP_INFOCMP_CACHE_DIR);
+        if (dir == null || dir.isEmpty() || terminal == null || terminal.isEmpty()) {
+            return null;
+        }
+        return Paths.get(dir).resolve(terminal.replaceAll("[^A-Za-z0-9.+_-]", "_") + ".caps");
+    }
+
+    private static String readCache(Path cache) {
+        try {
+            if (Files.isRegularFile(cache)) {
+                return new String(Files.readAllBytes(cache), StandardCharsets.UTF_8);
+            }
+        } catch (IOException e) {
+            Log.debug("Unable to read infocmp cache " + cache, e);
+        }
+        return null;
+    }
+
+    private static void writeCache(Path cache, String caps) {
+        try {
+            Files.createDirectories(cache.getParent());
+            Path temp = Files.createTempFile(cache.getParent(), cache.getFileName().toString(), ".tmp");
+            try {
+                Files.write(temp, caps.getBytes(StandardCharsets.UTF_8));
+                Files.move(temp, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            Log.debug("Unable to write infocmp cache " + cache, e);
+        }
+    }
+
+    /**
+     * Parse the given capabilities.  The parsed capabilities are cached,
+     * so that creating several terminals of the same type only parses
+     * them once.
+     *
+     * @param capabilities the infocmp output
+     * @param bools the set to add the boolean capabilities to
+     * @param ints the map to add the numeric capabilities to
+     * @param strings the map to add the string capabilities to
+     */
     public static void parseInfoCmp(
             String capabilities,
             Set<Capability> bools,
             Map<Capability, Integer> ints,
             Map<Capability, String> strings
     ) {
-        Map<String, Capability> capsByName = getCapabilitiesByName();
+        ParsedInfoCmp parsed = PARSED.get(capabilities);
+        if (parsed == null) {
+            parsed = new ParsedInfoCmp(capabilities);
+            if (PARSED.size() >= MAX_PARSED) {
+                PARSED.clear();
+            }
+            PARSED.put(capabilities, parsed);
+        }
+        bools.addAll(parsed.bools);
+        ints.putAll(parsed.ints);
+        strings.putAll(parsed.strings);
+    }
+
+    private static void doParseInfoCmp(
+            String capabilities,
+            Set<Capability> bools,
+            Map<Capability, Integer> ints,
+            Map<Capability, String> strings
+    ) {
+        Map<String, Capability> capsByName = capabilitiesByName();
         String[] lines = capabilities.split("\n");
         for (int i = 1; i < lines.length; i++) {
-            Matcher m = Pattern.compile("\\s*(([^,]|\\\\,)+)\\s*[,$]").matcher(lines[i]);
+            Matcher m = CAPABILITY.matcher(lines[i]);
             while (m.find()) {
                 String cap = m.group(1);
                 if (cap.contains("#")) {
@@ -607,6 +720,25 @@ public final class InfoCmp {
         }
     }
 
+    /**
+     * Immutable parsed capabilities, shared by all terminals of the same type.
+     */
+    private static final class ParsedInfoCmp {
+        final Set<Capability> bools;
+        final Map<Capability, Integer> ints;
+        final Map<Capability, String> strings;
+
+        ParsedInfoCmp(String capabilities) {
+            Set<Capability> bools = EnumSet.noneOf(Capability.class);
+            Map<Capability, Integer> ints = new EnumMap<>(Capability.class);
+            Map<Capability, String> strings = new EnumMap<>(Capability.class);
+            doParseInfoCmp(capabilities, bools, ints, strings);
+            this.bools = Collections.unmodifiableSet(bools);
+            this.ints = Collections.unmodifiableMap(ints);
+            this.strings = Collections.unmodifiableMap(strings);
+        }
+    }
+
     static String loadDefaultInfoCmp(String name) {
         try (InputStream is = InfoCmp.class.getResourceAsStream(name + ".caps");
              BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
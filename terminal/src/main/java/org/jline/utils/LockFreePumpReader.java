@@ -0,0 +1,390 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.utils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A lock-free variant of {@link NonBlockingPumpReader}.
+ *
+ * <p>Characters written to the {@link #getWriter() writer} by a single thread
+ * are read by a single other thread through a power-of-two ring buffer.
+ * The read and write positions are volatile and only updated by their owner,
+ * so no lock is needed to exchange data.  The reader is parked only when the
+ * buffer is empty and the writer only when it is full, until the other side
+ * unparks it.</p>
+ *
+ * <p>VERY IMPORTANT NOTES
+ * <ul>
+ *   <li> At most one thread may read and at most one thread may write at a time.
+ *   <li> Reading from the reader and from an input stream created by
+ *          {@link #createInputStream(Charset)} must not be mixed.
+ * </ul>
+ */
+public class LockFreePumpReader extends NonBlockingReader {
+
+    private static final int DEFAULT_BUFFER_SIZE = 4096;
+
+    private final char[] buffer;
+    private final int mask;
+    private volatile long head;             // Next char to read, only written by the reader
+    private volatile long tail;             // Next char to write, only written by the writer
+
+    private volatile Thread waitingReader;
+    private volatile Thread waitingWriter;
+    private volatile boolean closed;
+    private volatile IOException ioException;
+
+    private final Writer writer;
+
+    public LockFreePumpReader() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    public LockFreePumpReader(int bufferSize) {
+        int size = Integer.highestOneBit(Math.max(bufferSize, 2) - 1) << 1;
+        this.buffer = new char[size];
+        this.mask = size - 1;
+        this.writer = new LfpWriter();
+    }
+
+    public Writer getWriter() {
+        return this.writer;
+    }
+
+    /**
+     * Creates an input stream encoding the characters of this reader
+     * using the given charset.
+     * @param charset the charset
+     * @return the input stream
+     */
+    public NonBlockingInputStream createInputStream(Charset charset) {
+        return new LfpInputStream(charset);
+    }
+
+    @Override
+    public boolean ready() {
+        return head != tail;
+    }
+
+    @Override
+    public int available() {
+        return (int) (tail - head);
+    }
+
+    public void setIoException(IOException exception) {
+        this.ioException = exception;
+        LockSupport.unpark(waitingReader);
+    }
+
+    protected void checkIoException() throws IOException {
+        IOException exception = ioException;
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    @Override
+    protected int read(long timeout, boolean isPeek) throws IOException {
+        if (!waitForInput(timeout)) {
+            return closed ? EOF : READ_EXPIRED;
+        }
+        long h = head;
+        int c = buffer[(int) h & mask];
+        if (!isPeek) {
+            head = h + 1;
+            wakeWriter();
+        }
+        return c;
+    }
+
+    @Override
+    public int readBuffered(char[] b) throws IOException {
+        if (b == null) {
+            throw new NullPointerException();
+        } else if (b.length == 0) {
+            return 0;
+        } else if (!waitForInput(0L)) {
+            return EOF;
+        } else {
+            return take(b, 0, b.length);
+        }
+    }
+
+    @Override
+    public int read(CharBuffer target) throws IOException {
+        if (!target.hasRemaining()) {
+            return 0;
+        } else if (!waitForInput(0L)) {
+            return EOF;
+        }
+        long h = head;
+        int count = (int) Math.min(tail - h, target.remaining());
+        int idx = (int) h & mask;
+        int first = Math.min(count, buffer.length - idx);
+        target.put(buffer, idx, first);
+        target.put(buffer, 0, count - first);
+        head = h + count;
+        wakeWriter();
+        return count;
+    }
+
+    /**
+     * Copies the available characters, which must not be empty.
+     */
+    private int take(char[] b, int off, int len) {
+        long h = head;
+        int count = (int) Math.min(tail - h, len);
+        int idx = (int) h & mask;
+        int first = Math.min(count, buffer.length - idx);
+        System.arraycopy(buffer, idx, b, off, first);
+        System.arraycopy(buffer, 0, b, off + first, count - first);
+        head = h + count;
+        wakeWriter();
+        return count;
+    }
+
+    /**
+     * Wakes up the writer once half of the buffer is free, so that a full
+     * buffer does not cause a context switch for each char read.
+     */
+    private void wakeWriter() {
+        Thread writer = waitingWriter;
+        if (writer != null && tail - head <= buffer.length / 2) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Blocks until more input is available, the reader is closed or the timeout expires.
+     *
+     * @param timeout the timeout in milliseconds, 0 to wait forever
+     * @return true if more input is available
+     * @throws IOException if an exception has been set or the thread is interrupted
+     */
+    private boolean waitForInput(long timeout) throws IOException {
+        if (head != tail) {
+            return true;
+        }
+        boolean isInfinite = (timeout <= 0L);
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        // Publish the waiting thread before checking the buffer again, so that
+        // the writer either sees it or we see the written data.
+        waitingReader = Thread.currentThread();
+        try {
+            while (head == tail) {
+                checkIoException();
+                if (closed) {
+                    return false;
+                }
+                if (isInfinite) {
+                    LockSupport.park(this);
+                } else {
+                    long nanos = end - System.nanoTime();
+                    if (nanos <= 0L) {
+                        return false;
+                    }
+                    LockSupport.parkNanos(this, nanos);
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedIOException();
+                }
+            }
+            return true;
+        } finally {
+            waitingReader = null;
+        }
+    }
+
+    /**
+     * Blocks until there is new space available for buffering.
+     * When the buffer is full, waits until half of it is free.
+     *
+     * @param t the current write position
+     * @return the number of chars which can be written
+     * @throws IOException if the reader is closed or the thread is interrupted
+     */
+    private int waitForBufferSpace(long t) throws IOException {
+        if (closed) {
+            throw new ClosedException();
+        }
+        int free = buffer.length - (int) (t - head);
+        if (free > 0) {
+            return free;
+        }
+        waitingWriter = Thread.currentThread();
+        try {
+            while ((free = buffer.length - (int) (t - head)) < buffer.length / 2) {
+                if (closed) {
+                    throw new ClosedException();
+                }
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    throw new InterruptedIOException();
+                }
+            }
+            return free;
+        } finally {
+            waitingWriter = null;
+        }
+    }
+
+    void write(char c) throws IOException {
+        long t = tail;
+        waitForBufferSpace(t);
+        buffer[(int) t & mask] = c;
+        tail = t + 1;
+        LockSupport.unpark(waitingReader);
+    }
+
+    void write(char[] cbuf, int off, int len) throws IOException {
+        while (len > 0) {
+            long t = tail;
+            int idx = (int) t & mask;
+            int count = Math.min(len, Math.min(waitForBufferSpace(t), buffer.length - idx));
+            System.arraycopy(cbuf, off, buffer, idx, count);
+            tail = t + count;
+            LockSupport.unpark(waitingReader);
+            off += count;
+            len -= count;
+        }
+    }
+
+    void write(String str, int off, int len) throws IOException {
+        while (len > 0) {
+            long t = tail;
+            int idx = (int) t & mask;
+            int count = Math.min(len, Math.min(waitForBufferSpace(t), buffer.length - idx));
+            str.getChars(off, off + count, buffer, idx);
+            tail = t + count;
+            LockSupport.unpark(waitingReader);
+            off += count;
+            len -= count;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.closed = true;
+        LockSupport.unpark(waitingReader);
+        LockSupport.unpark(waitingWriter);
+    }
+
+    private class LfpWriter extends Writer {
+
+        @Override
+        public void write(int c) throws IOException {
+            LockFreePumpReader.this.write((char) c);
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            LockFreePumpReader.this.write(cbuf, off, len);
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            LockFreePumpReader.this.write(str, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+        }
+
+        @Override
+        public void close() throws IOException {
+            LockFreePumpReader.this.close();
+        }
+
+    }
+
+    private class LfpInputStream extends NonBlockingInputStream {
+
+        private static final int CHUNK_SIZE = 1024;
+
+        private final CharsetEncoder encoder;
+        private final CharBuffer chars;
+        private final ByteBuffer bytes;
+
+        private LfpInputStream(Charset charset) {
+            this.encoder = charset.newEncoder()
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                    .onMalformedInput(CodingErrorAction.REPLACE);
+            this.chars = CharBuffer.allocate(CHUNK_SIZE);
+            this.bytes = ByteBuffer.allocate(CHUNK_SIZE * (int) Math.ceil(encoder.maxBytesPerChar()));
+            // No input available after initialization
+            this.chars.limit(0);
+            this.bytes.limit(0);
+        }
+
+        @Override
+        public int available() {
+            return (int) (LockFreePumpReader.this.available() * encoder.averageBytesPerChar())
+                    + bytes.remaining();
+        }
+
+        @Override
+        public int read(long timeout, boolean isPeek) throws IOException {
+            if (!bytes.hasRemaining() && !fill(timeout)) {
+                return closed ? EOF : READ_EXPIRED;
+            }
+            return (isPeek ? bytes.get(bytes.position()) : bytes.get()) & 0x00FF;
+        }
+
+        @Override
+        public int readBuffered(byte[] b) throws IOException {
+            if (b == null) {
+                throw new NullPointerException();
+            } else if (b.length == 0) {
+                return 0;
+            } else if (!bytes.hasRemaining() && !fill(0L)) {
+                return EOF;
+            }
+            int count = Math.min(b.length, bytes.remaining());
+            bytes.get(b, 0, count);
+            return count;
+        }
+
+        /**
+         * Encodes the available characters, keeping an incomplete
+         * surrogate pair for the next round.
+         */
+        private boolean fill(long timeout) throws IOException {
+            while (waitForInput(timeout)) {
+                chars.compact();
+                int count = take(chars.array(), chars.position(), chars.remaining());
+                chars.position(chars.position() + count);
+                chars.flip();
+                bytes.clear();
+                encoder.encode(chars, bytes, false);
+                bytes.flip();
+                if (bytes.hasRemaining()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            LockFreePumpReader.this.close();
+        }
+
+    }
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2002-2018, the original author or authors.
+ * Copyright (c) 2002-2021, the original author or authors.
  *
  * This software is distributable under the BSD license. See the terms of the
  * BSD license in the documentation provided with this software.
@@ -28,6 +28,14 @@ public class NonBlocking {
         return new NonBlockingPumpReader(size);
     }
 
+    public static LockFreePumpReader lockFreePumpReader() {
+        return new LockFreePumpReader();
+    }
+
+    public static LockFreePumpReader lockFreePumpReader(int size) {
+        return new LockFreePumpReader(size);
+    }
+
     public static NonBlockingPumpInputStream nonBlockingPumpInputStream() {
         return new NonBlockingPumpInputStream();
     }
@@ -224,6 +232,16 @@ public class NonBlocking {
             }
         }
 
+        @Override
+        public int available() {
+            try {
+                // approximation assuming one char per byte
+                return chars.remaining() + input.available();
+            } catch (IOException e) {
+                return chars.remaining();
+            }
+        }
+
         @Override
         public void shutdown() {
             input.shutdown();
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2002-2018, the original author or authors.
+ * Copyright (c) 2002-2021, the original author or authors.
  *
  * This software is distributable under the BSD license. See the terms of the
  * BSD license in the documentation provided with this software.
@@ -17,8 +17,13 @@ import java.io.InterruptedIOException;
  * is non-blocking; that is, reads can be performed against it that timeout
  * if no data is seen for a period of time.  This effect is achieved by having
  * a separate thread perform all non-blocking read requests and then
- * waiting on the thread to complete.  
- * 
+ * waiting on the thread to complete.
+ *
+ * <p>Bytes are read in bulk into a single-producer / single-consumer ring
+ * buffer.  As long as the buffer holds some data, reads and peeks are
+ * served from it without any locking; the monitor is only used to hand
+ * a read request over to the thread when the buffer is empty.</p>
+ *
  * <p>VERY IMPORTANT NOTES
  * <ul>
  *   <li> This class is not thread safe. It expects at most one reader.
@@ -29,8 +34,14 @@ import java.io.InterruptedIOException;
 public class NonBlockingInputStreamImpl
     extends NonBlockingInputStream
 {
+    private static final int BUFFER_SIZE = 4096;    // Must be a power of two
+    private static final int MASK = BUFFER_SIZE - 1;
+
     private InputStream in;                  // The actual input stream
-    private int         b = READ_EXPIRED;    // Recently read byte
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private volatile long head;              // Next byte to read, only written by the reader
+    private volatile long tail;              // Next byte to write, only written when the buffer is empty
+    private boolean     eof;                 // End of stream reached and not yet consumed
 
     private String      name;
     private boolean     threadIsReading      = false;
@@ -53,9 +64,7 @@ public class NonBlockingInputStreamImpl
 
     private synchronized void startReadingThreadIfNeeded() {
         if (thread == null) {
-            thread = new Thread(this::run);
-            thread.setName(name + " non blocking reader thread");
-            thread.setDaemon(true);
+            thread = Threads.newDaemonThread(this::run, name + " non blocking reader thread");
             thread.start();
         }
     }
@@ -81,6 +90,11 @@ public class NonBlockingInputStreamImpl
         shutdown();
     }
 
+    @Override
+    public int available() {
+        return (int) (tail - head);
+    }
+
     /**
      * Attempts to read a byte from the input stream for a specific
      * period of time.
@@ -90,12 +104,73 @@ public class NonBlockingInputStreamImpl
      *   read timed out.
      * @throws IOException if anything wrong happens
      */
-    public synchronized int read(long timeout, boolean isPeek) throws IOException {
+    public int read(long timeout, boolean isPeek) throws IOException {
+        /*
+         * Fast path: serve buffered bytes without locking.
+         */
+        long h = head;
+        if (h != tail) {
+            int ret = buffer[(int) h & MASK] & 0xFF;
+            if (!isPeek) {
+                head = h + 1;
+            }
+            return ret;
+        }
+        return fill(timeout, isPeek) ? read(0L, isPeek) : endOfData(isPeek);
+    }
+
+    /**
+     * Reads buffered bytes, blocking until at least one byte is available.
+     * @param b the buffer
+     * @return the number of bytes read, or -1 if EOF is reached
+     * @throws IOException if anything wrong happens
+     */
+    @Override
+    public int readBuffered(byte[] b) throws IOException {
+        if (b == null) {
+            throw new NullPointerException();
+        } else if (b.length == 0) {
+            return 0;
+        }
+        if (head == tail && !fill(0L, false)) {
+            return endOfData(false);
+        }
+        long h = head;
+        int nb = (int) Math.min(tail - h, b.length);
+        int idx = (int) h & MASK;
+        int first = Math.min(nb, BUFFER_SIZE - idx);
+        System.arraycopy(buffer, idx, b, 0, first);
+        System.arraycopy(buffer, 0, b, first, nb - first);
+        head = h + nb;
+        return nb;
+    }
+
+    /**
+     * Reports, and consumes unless peeking, the end of stream.  Only called
+     * when the buffer is empty.
+     */
+    private synchronized int endOfData(boolean isPeek) {
+        if (eof) {
+            if (!isPeek) {
+                eof = false;
+            }
+            return EOF;
+        }
+        return READ_EXPIRED;
+    }
+
+    /**
+     * Waits until the buffer is filled with some data.
+     * @return <code>true</code> if the buffer contains some data,
+     *   <code>false</code> if the end of stream has been reached or
+     *   the timeout has expired
+     */
+    private synchronized boolean fill(long timeout, boolean isPeek) throws IOException {
         /*
          * If the thread hit an IOException, we report it.
          */
         if (exception != null) {
-            assert b == READ_EXPIRED;
+            assert head == tail;
             IOException toBeThrown = exception;
             if (!isPeek)
                 exception = null;
@@ -103,15 +178,21 @@ public class NonBlockingInputStreamImpl
         }
 
         /*
-         * If there was a pending character from the thread, then
-         * we send it. If the timeout is 0L or the thread was shut down
-         * then do a local read.
+         * If some data or the end of stream was delivered by the thread in the
+         * mean time, then we send it. If the timeout is 0L or the thread was
+         * shut down then do a local read.
          */
-        if (b >= -1) {
+        if (head != tail || eof) {
             assert exception == null;
         }
         else if (!isPeek && timeout <= 0L && !threadIsReading) {
-            b = in.read();
+            long t = tail;
+            int nb = in.read(buffer, (int) t & MASK, BUFFER_SIZE - ((int) t & MASK));
+            if (nb < 0) {
+                eof = true;
+            } else {
+                tail = t + nb;
+            }
         }
         else {
             /*
@@ -143,7 +224,7 @@ public class NonBlockingInputStreamImpl
                 }
 
                 if (exception != null) {
-                    assert b == READ_EXPIRED;
+                    assert head == tail;
 
                     IOException toBeThrown = exception;
                     if (!isPeek)
@@ -151,7 +232,7 @@ public class NonBlockingInputStreamImpl
                     throw toBeThrown;
                 }
 
-                if (b >= -1) {
+                if (head != tail || eof) {
                     assert exception == null;
                     break;
                 }
@@ -161,18 +242,7 @@ public class NonBlockingInputStreamImpl
                 }
             }
         }
-
-        /*
-         * b is the character that was just read. Either we set it because
-         * a local read was performed or the read thread set it (or failed to
-         * change it).  We will return it's value, but if this was a peek
-         * operation, then we leave it in place.
-         */
-        int ret = b;
-        if (!isPeek) {
-            b = READ_EXPIRED;
-        }
-        return ret;
+        return head != tail;
     }
 
     private void run () {
@@ -209,11 +279,15 @@ public class NonBlockingInputStreamImpl
                 /*
                  * We're not shutting down, but we need to read. This cannot
                  * happen while we are holding the lock (which we aren't now).
+                 * The reader only asks for more data once the buffer is empty,
+                 * so we can fill it up to its end without any check.
                  */
-                int byteRead = READ_EXPIRED;
+                long t = tail;
+                int off = (int) t & MASK;
+                int nb = 0;
                 IOException failure = null;
                 try {
-                    byteRead = in.read();
+                    nb = in.read(buffer, off, BUFFER_SIZE - off);
                 } catch (IOException e) {
                     failure = e;
                 }
@@ -222,14 +296,21 @@ public class NonBlockingInputStreamImpl
                  * Re-grab the lock to update the state.
                  */
                 synchronized (this) {
-                    exception = failure;
-                    b = byteRead;
+                    if (failure != null) {
+                        exception = failure;
+                    } else if (nb < 0) {
+                        eof = true;
+                    } else if (nb == 0) {
+                        continue;
+                    } else {
+                        tail = t + nb;
+                    }
                     threadIsReading = false;
                     notify();
                 }
 
                 // If end of stream, exit the loop thread
-                if (byteRead < 0) {
+                if (nb < 0) {
                     return;
                 }
             }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2002-2018, the original author or authors.
+ * Copyright (c) 2002-2021, the original author or authors.
  *
  * This software is distributable under the BSD license. See the terms of the
  * BSD license in the documentation provided with this software.
@@ -17,7 +17,12 @@ import java.io.Reader;
  * is non-blocking; that is, reads can be performed against it that timeout
  * if no data is seen for a period of time.  This effect is achieved by having
  * a separate thread perform all non-blocking read requests and then
- * waiting on the thread to complete.  
+ * waiting on the thread to complete.
+ *
+ * <p>Characters are read in bulk into a single-producer / single-consumer
+ * ring buffer.  As long as the buffer holds some data, reads and peeks are
+ * served from it without any locking; the monitor is only used to hand
+ * a read request over to the thread when the buffer is empty.</p>
  * 
  * <p>VERY IMPORTANT NOTES
  * <ul>
@@ -33,8 +38,14 @@ public class NonBlockingReaderImpl
 {
     public static final int READ_EXPIRED = -2;
 
-    private Reader in;                  // The actual input stream
-    private int    ch   = READ_EXPIRED; // Recently read character
+    private static final int BUFFER_SIZE = 4096;    // Must be a power of two
+    private static final int MASK = BUFFER_SIZE - 1;
+
+    private Reader in;                       // The actual input stream
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private volatile long head;              // Next char to read, only written by the reader
+    private volatile long tail;              // Next char to write, only written when the buffer is empty
+    private boolean     eof;                 // End of stream reached and not yet consumed
 
     private String      name;
     private boolean     threadIsReading      = false;
@@ -57,9 +68,7 @@ public class NonBlockingReaderImpl
 
     private synchronized void startReadingThreadIfNeeded() {
         if (thread == null) {
-            thread = new Thread(this::run);
-            thread.setName(name + " non blocking reader thread");
-            thread.setDaemon(true);
+            thread = Threads.newDaemonThread(this::run, name + " non blocking reader thread");
             thread.start();
         }
     }
@@ -86,8 +95,35 @@ public class NonBlockingReaderImpl
     }
 
     @Override
-    public synchronized boolean ready() throws IOException {
-        return ch >= 0 || in.ready();
+    public int available() {
+        return (int) (tail - head);
+    }
+
+    @Override
+    public boolean ready() throws IOException {
+        return head != tail || in.ready();
+    }
+
+    /**
+     * Attempts to read a character from the input stream for a specific
+     * period of time.
+     * @param timeout The amount of time to wait for the character
+     * @return The character read, -1 if EOF is reached, or -2 if the
+     *   read timed out.
+     */
+    protected int read(long timeout, boolean isPeek) throws IOException {
+        /*
+         * Fast path: serve buffered characters without locking.
+         */
+        long h = head;
+        if (h != tail) {
+            int ret = buffer[(int) h & MASK];
+            if (!isPeek) {
+                head = h + 1;
+            }
+            return ret;
+        }
+        return fill(timeout, isPeek) ? read(0L, isPeek) : endOfData(isPeek);
     }
 
     @Override
@@ -96,41 +132,46 @@ public class NonBlockingReaderImpl
             throw new NullPointerException();
         } else if (b.length == 0) {
             return 0;
-        } else if (exception != null) {
-            assert ch == READ_EXPIRED;
-            IOException toBeThrown = exception;
-            exception = null;
-            throw toBeThrown;
-        } else if (ch >= -1) {
-            b[0] = (char) ch;
-            ch = READ_EXPIRED;
-            return 1;
-        } else if (!threadIsReading) {
-            return in.read(b);
-        } else {
-            int c = read(-1, false);
-            if (c >= 0) {
-                b[0] = (char) c;
-                return 1;
-            } else {
-                return -1;
+        }
+        if (head == tail && !fill(0L, false)) {
+            return endOfData(false);
+        }
+        long h = head;
+        int nb = (int) Math.min(tail - h, b.length);
+        int idx = (int) h & MASK;
+        int first = Math.min(nb, BUFFER_SIZE - idx);
+        System.arraycopy(buffer, idx, b, 0, first);
+        System.arraycopy(buffer, 0, b, first, nb - first);
+        head = h + nb;
+        return nb;
+    }
+
+    /**
+     * Reports, and consumes unless peeking, the end of stream.  Only called
+     * when the buffer is empty.
+     */
+    private synchronized int endOfData(boolean isPeek) {
+        if (eof) {
+            if (!isPeek) {
+                eof = false;
             }
+            return EOF;
         }
+        return READ_EXPIRED;
     }
 
     /**
-     * Attempts to read a character from the input stream for a specific
-     * period of time.
-     * @param timeout The amount of time to wait for the character
-     * @return The character read, -1 if EOF is reached, or -2 if the
-     *   read timed out.
+     * Waits until the buffer is filled with some data.
+     * @return <code>true</code> if the buffer contains some data,
+     *   <code>false</code> if the end of stream has been reached or
+     *   the timeout has expired
      */
-    protected synchronized int read(long timeout, boolean isPeek) throws IOException {
+    private synchronized boolean fill(long timeout, boolean isPeek) throws IOException {
         /*
          * If the thread hit an IOException, we report it.
          */
         if (exception != null) {
-            assert ch == READ_EXPIRED;
+            assert head == tail;
             IOException toBeThrown = exception;
             if (!isPeek)
                 exception = null;
@@ -138,15 +179,21 @@ public class NonBlockingReaderImpl
         }
 
         /*
-         * If there was a pending character from the thread, then
-         * we send it. If the timeout is 0L or the thread was shut down
-         * then do a local read.
+         * If some data or the end of stream was delivered by the thread in the
+         * mean time, then we send it. If the timeout is 0L or the thread was
+         * shut down then do a local read.
          */
-        if (ch >= -1) {
+        if (head != tail || eof) {
             assert exception == null;
         }
         else if (!isPeek && timeout <= 0L && !threadIsReading) {
-            ch = in.read();
+            long t = tail;
+            int nb = in.read(buffer, (int) t & MASK, BUFFER_SIZE - ((int) t & MASK));
+            if (nb < 0) {
+                eof = true;
+            } else {
+                tail = t + nb;
+            }
         }
         else {
             /*
@@ -178,7 +225,7 @@ public class NonBlockingReaderImpl
                 }
 
                 if (exception != null) {
-                    assert ch == READ_EXPIRED;
+                    assert head == tail;
 
                     IOException toBeThrown = exception;
                     if (!isPeek)
@@ -186,7 +233,7 @@ public class NonBlockingReaderImpl
                     throw toBeThrown;
                 }
 
-                if (ch >= -1) {
+                if (head != tail || eof) {
                     assert exception == null;
                     break;
                 }
@@ -196,18 +243,7 @@ public class NonBlockingReaderImpl
                 }
             }
         }
-
-        /*
-         * ch is the character that was just read. Either we set it because
-         * a local read was performed or the read thread set it (or failed to
-         * change it).  We will return it's value, but if this was a peek
-         * operation, then we leave it in place.
-         */
-        int ret = ch;
-        if (!isPeek) {
-            ch = READ_EXPIRED;
-        }
-        return ret;
+        return head != tail;
     }
 
     private void run () {
@@ -244,25 +280,32 @@ public class NonBlockingReaderImpl
                 /*
                  * We're not shutting down, but we need to read. This cannot
                  * happen while we are holding the lock (which we aren't now).
+                 * The reader only asks for more data once the buffer is empty,
+                 * so we can fill it up to its end without any check.
                  */
-                int charRead = READ_EXPIRED;
+                long t = tail;
+                int off = (int) t & MASK;
+                int nb = 0;
                 IOException failure = null;
                 try {
-                    charRead = in.read();
-//                    if (charRead < 0) {
-//                        continue;
-//                    }
+                    nb = in.read(buffer, off, BUFFER_SIZE - off);
                 } catch (IOException e) {
                     failure = e;
-//                    charRead = -1;
                 }
 
                 /*
                  * Re-grab the lock to update the state.
                  */
                 synchronized (this) {
-                    exception = failure;
-                    ch = charRead;
+                    if (failure != null) {
+                        exception = failure;
+                    } else if (nb < 0) {
+                        eof = true;
+                    } else if (nb == 0) {
+                        continue;
+                    } else {
+                        tail = t + nb;
+                    }
                     threadIsReading = false;
                     notify();
                 }
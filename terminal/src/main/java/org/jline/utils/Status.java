@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2002-2019, the original author or authors.
+ * Copyright (c) 2002-2021, the original author or authors.
  *
  * This software is distributable under the BSD license. See the terms of the
  * BSD license in the documentation provided with this software.
@@ -115,6 +115,16 @@ public class Status {
         if (!supported) {
             return;
         }
+        // Write the whole update in a single frame
+        terminal.beginFrame();
+        try {
+            doUpdate(lines);
+        } finally {
+            terminal.endFrame();
+        }
+    }
+
+    private void doUpdate(List<AttributedString> lines) {
         if (lines == null) {
             lines = Collections.emptyList();
         }
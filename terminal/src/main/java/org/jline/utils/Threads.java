@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.utils;
+
+import java.util.concurrent.ThreadFactory;
+
+import static org.jline.terminal.TerminalBuilder.PROP_VIRTUAL_THREADS;
+
+/**
+ * Creates the background threads used by JLine, such as the input pump
+ * threads of terminals or the threads of non blocking readers.
+ *
+ * <p>By default, platform threads are created.  A {@link ThreadFactory} can be
+ * set to create them differently, for example using virtual threads
+ * when the runtime supports them, which can be enabled by setting the
+ * {@link org.jline.terminal.TerminalBuilder#PROP_VIRTUAL_THREADS} system
+ * property to <code>true</code>.</p>
+ */
+public final class Threads {
+
+    private static volatile ThreadFactory threadFactory = defaultThreadFactory();
+
+    private Threads() {
+    }
+
+    /**
+     * Returns the thread factory used to create JLine threads.
+     *
+     * @return the thread factory, or <code>null</code> if platform threads are created
+     */
+    public static ThreadFactory getThreadFactory() {
+        return threadFactory;
+    }
+
+    /**
+     * Sets the thread factory used to create JLine threads.
+     * Threads which are already running are not affected.
+     *
+     * @param factory the thread factory, or <code>null</code> to create platform threads
+     */
+    public static void setThreadFactory(ThreadFactory factory) {
+        threadFactory = factory;
+    }
+
+    /**
+     * Returns a factory creating virtual threads.
+     *
+     * @return the factory, or <code>null</code> if virtual threads are not supported
+     */
+    public static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates a new unstarted daemon thread using the configured thread factory.
+     *
+     * @param runnable the task to run
+     * @param name the thread name
+     * @return the new thread
+     */
+    public static Thread newDaemonThread(Runnable runnable, String name) {
+        Thread thread = newThread(null, runnable, name);
+        if (!thread.isDaemon()) {
+            thread.setDaemon(true);
+        }
+        return thread;
+    }
+
+    /**
+     * Creates a new unstarted thread using the configured thread factory.
+     *
+     * @param runnable the task to run
+     * @param name the thread name, or <code>null</code> to keep the default one
+     * @return the new thread
+     */
+    public static Thread newThread(Runnable runnable, String name) {
+        return newThread(null, runnable, name);
+    }
+
+    /**
+     * Creates a new unstarted thread.
+     *
+     * @param factory the thread factory to use, or <code>null</code> to use
+     *                the configured one
+     * @param runnable the task to run
+     * @param name the thread name, or <code>null</code> to keep the default one
+     * @return the new thread
+     */
+    public static Thread newThread(ThreadFactory factory, Runnable runnable, String name) {
+        if (factory == null) {
+            factory = threadFactory;
+        }
+        Thread thread = factory != null ? factory.newThread(runnable) : new Thread(runnable);
+        if (name != null) {
+            thread.setName(name);
+        }
+        return thread;
+    }
+
+    private static ThreadFactory defaultThreadFactory() {
+        if (Boolean.getBoolean(PROP_VIRTUAL_THREADS)) {
+            ThreadFactory factory = virtualThreadFactory();
+            if (factory == null) {
+                Log.debug("Virtual threads are not supported, using platform threads");
+            }
+            return factory;
+        }
+        return null;
+    }
+
+}
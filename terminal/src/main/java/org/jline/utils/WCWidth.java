@@ -8,6 +8,11 @@
  */
 package org.jline.utils;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
 public final class WCWidth {
 
     private WCWidth() {
@@ -46,37 +51,37 @@ public final class WCWidth {
      */
     public static int wcwidth(int ucs)
     {
+        if (ucs >= 0 && ucs <= Character.MAX_CODE_POINT) {
+            return BLOCKS[(PAGES[ucs >> BLOCK_BITS] << BLOCK_BITS) | (ucs & BLOCK_MASK)];
+        }
+        return ucs < 0 ? -1 : 1;
+    }
 
-        /* test for 8-bit control characters */
-        if (ucs == 0)
-            return 0;
-        if (ucs < 32 || (ucs >= 0x7f && ucs < 0xa0))
-            return -1;
+    /* the null character */
+    private static final Interval[] nul = { new Interval( 0x0000, 0x0000 ) };
 
-        /* binary search in table of non-spacing characters */
-        if (bisearch(ucs, combining, combining.length - 1))
-            return 0;
-
-        /* if we arrive here, ucs is not a combining or C0/C1 control character */
-        return 1 +
-                ((ucs >= 0x1100 &&
-                        (ucs <= 0x115f ||                           /* Hangul Jamo init. consonants */
-                                ucs == 0x2329 || ucs == 0x232a ||
-                                (ucs >= 0x2e80 && ucs <= 0xa4cf &&
-                                        ucs != 0x303f) ||           /* CJK ... Yi */
-                                (ucs >= 0xac00 && ucs <= 0xd7a3) || /* Hangul Syllables */
-                                (ucs >= 0xf900 && ucs <= 0xfaff) || /* CJK Compatibility Ideographs */
-                                (ucs >= 0xfe10 && ucs <= 0xfe19) || /* Vertical forms */
-                                (ucs >= 0xfe30 && ucs <= 0xfe6f) || /* CJK Compatibility Forms */
-                                (ucs >= 0xff00 && ucs <= 0xff60) || /* Fullwidth Forms */
-                                (ucs >= 0xffe0 && ucs <= 0xffe6) ||
-                                (ucs >= 0x20000 && ucs <= 0x2fffd) ||
-                                (ucs >= 0x30000 && ucs <= 0x3fffd))) ? 1 : 0);
-    }
+    /* C0/C1 control characters and DEL */
+    private static final Interval[] control = { new Interval( 0x0001, 0x001F ), new Interval( 0x007F, 0x009F ) };
+
+    /* sorted list of non-overlapping intervals of East Asian Wide (W) and Full-width (F) characters */
+    private static final Interval[] wide = {
+            new Interval( 0x1100, 0x115F ),   /* Hangul Jamo init. consonants */
+            new Interval( 0x2329, 0x232A ),
+            new Interval( 0x2E80, 0x303E ),   /* CJK ... Yi */
+            new Interval( 0x3040, 0xA4CF ),
+            new Interval( 0xAC00, 0xD7A3 ),   /* Hangul Syllables */
+            new Interval( 0xF900, 0xFAFF ),   /* CJK Compatibility Ideographs */
+            new Interval( 0xFE10, 0xFE19 ),   /* Vertical forms */
+            new Interval( 0xFE30, 0xFE6F ),   /* CJK Compatibility Forms */
+            new Interval( 0xFF00, 0xFF60 ),   /* Fullwidth Forms */
+            new Interval( 0xFFE0, 0xFFE6 ),
+            new Interval( 0x20000, 0x2FFFD ),
+            new Interval( 0x30000, 0x3FFFD )
+    };
 
     /* sorted list of non-overlapping intervals of non-spacing characters */
     /* generated by "uniset +cat=Me +cat=Mn +cat=Cf -00AD +1160-11FF +200B c" */
-    static Interval[] combining = {
+    private static final Interval[] combining = {
             new Interval( 0x0300, 0x036F ), new Interval( 0x0483, 0x0486 ), new Interval( 0x0488, 0x0489 ),
             new Interval( 0x0591, 0x05BD ), new Interval( 0x05BF, 0x05BF ), new Interval( 0x05C1, 0x05C2 ),
             new Interval( 0x05C4, 0x05C5 ), new Interval( 0x05C7, 0x05C7 ), new Interval( 0x0600, 0x0603 ),
@@ -127,35 +132,113 @@ public final class WCWidth {
             new Interval( 0xE0100, 0xE01EF )
     };
 
-    private static class Interval {
-        public final int first;
-        public final int last;
+    /*
+     * The widths are stored in a two-stage lookup table: the code points
+     * are split in pages of 256 characters, PAGES gives for each page the
+     * index of a block of 256 widths in BLOCKS.  Identical blocks are shared,
+     * so the whole Unicode range fits in a few kilobytes, and a lookup is
+     * two array loads.  The table is computed once from the intervals above,
+     * combining characters taking precedence over wide ones.
+     */
+    private static final int BLOCK_BITS = 8;
+    private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
 
-        public Interval(int first, int last) {
-            this.first = first;
-            this.last = last;
+    private static final char[] PAGES;
+    private static final byte[] BLOCKS;
+
+    static {
+        int nbPages = (Character.MAX_CODE_POINT + 1) >> BLOCK_BITS;
+        char[] pages = new char[nbPages];
+        byte[] blocks = new byte[BLOCK_SIZE * 16];
+        Map<String, Integer> indexes = new HashMap<>();
+        int[] uniform = { -1, -1, -1 };
+        byte[] block = new byte[BLOCK_SIZE];
+        int nbBlocks = 0;
+        for (int page = 0; page < nbPages; page++) {
+            int first = page << BLOCK_BITS;
+            int last = first + BLOCK_MASK;
+            // most pages have a single width, avoid building and comparing their block
+            int width = uniformWidth(first, last);
+            if (width >= 0 && uniform[width] >= 0) {
+                pages[page] = (char) uniform[width];
+                continue;
+            }
+            if (width >= 0) {
+                Arrays.fill(block, (byte) width);
+            } else {
+                Arrays.fill(block, (byte) 1);
+                fill(block, first, last, wide, 2);
+                fill(block, first, last, combining, 0);
+                fill(block, first, last, control, -1);
+                fill(block, first, last, nul, 0);
+            }
+            String key = new String(block, StandardCharsets.ISO_8859_1);
+            Integer index = indexes.get(key);
+            if (index == null) {
+                index = nbBlocks++;
+                indexes.put(key, index);
+                if (blocks.length < nbBlocks * BLOCK_SIZE) {
+                    blocks = Arrays.copyOf(blocks, blocks.length * 2);
+                }
+                System.arraycopy(block, 0, blocks, index * BLOCK_SIZE, BLOCK_SIZE);
+            }
+            if (width >= 0) {
+                uniform[width] = index;
+            }
+            pages[page] = (char) index.intValue();
         }
+        PAGES = pages;
+        BLOCKS = Arrays.copyOf(blocks, nbBlocks * BLOCK_SIZE);
     }
 
-    /* auxiliary function for binary search in interval table */
-    private static boolean bisearch(int ucs, Interval[] table, int max) {
-        int min = 0;
-        int mid;
+    /* width of all the characters of the page, or -1 if they do not have the same width */
+    private static int uniformWidth(int first, int last) {
+        if (first <= control[control.length - 1].last) {
+            return -1;
+        }
+        int c = find(first, combining);
+        if (c < combining.length && combining[c].first <= last) {
+            return -1;
+        }
+        int w = find(first, wide);
+        if (w < wide.length && wide[w].first <= last) {
+            return wide[w].first <= first && wide[w].last >= last ? 2 : -1;
+        }
+        return 1;
+    }
+
+    /* set the width of the characters of the block which are in the table */
+    private static void fill(byte[] block, int first, int last, Interval[] table, int width) {
+        for (int i = find(first, table); i < table.length && table[i].first <= last; i++) {
+            int from = Math.max(table[i].first, first) - first;
+            int to = Math.min(table[i].last, last) - first + 1;
+            Arrays.fill(block, from, to, (byte) width);
+        }
+    }
 
-        if (ucs < table[0].first || ucs > table[max].last)
-            return false;
-        while (max >= min) {
-            mid = (min + max) / 2;
-            if (ucs > table[mid].last)
+    /* binary search of the first interval of the table ending at or after ucs */
+    private static int find(int ucs, Interval[] table) {
+        int min = 0;
+        int max = table.length - 1;
+        while (min <= max) {
+            int mid = (min + max) / 2;
+            if (table[mid].last < ucs)
                 min = mid + 1;
-            else if (ucs < table[mid].first)
-                max = mid - 1;
             else
-                return true;
+                max = mid - 1;
         }
-
-        return false;
+        return min;
     }
 
+    private static class Interval {
+        public final int first;
+        public final int last;
+
+        public Interval(int first, int last) {
+            this.first = first;
+            this.last = last;
+        }
+    }
 
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2002-2016, the original author or authors.
+ * Copyright (c) 2002-2021, the original author or authors.
  *
  * This software is distributable under the BSD license. See the terms of the
  * BSD license in the documentation provided with this software.
@@ -9,6 +9,9 @@
 package org.jline.terminal.impl;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
 import java.util.EnumSet;
 
 import org.jline.terminal.Attributes;
@@ -18,6 +21,9 @@ import org.jline.terminal.Attributes.InputFlag;
 import org.jline.terminal.Attributes.LocalFlag;
 import org.jline.terminal.Attributes.OutputFlag;
 import org.jline.terminal.Size;
+import org.jline.terminal.spi.Pty;
+import org.jline.terminal.Terminal.Signal;
+import org.jline.utils.NonBlockingReader;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -213,4 +219,78 @@ public class ExecPtyTest {
         assertEquals(4, attributes.getControlChar(ControlChar.VMIN));
         assertEquals(0, attributes.getControlChar(ControlChar.VTIME));
     }
+
+    @Test
+    public void testCachedQueries() throws IOException {
+        int[] forks = new int[1];
+        ExecPty pty = new ExecPty("/dev/null", false) {
+            @Override
+            protected String doGetConfig() {
+                forks[0]++;
+                return linuxSttySample;
+            }
+            @Override
+            protected void doSetAttr(Attributes attr) {
+            }
+        };
+        CachingTerminal terminal = new CachingTerminal(pty);
+        assertEquals(1, forks[0]);
+
+        // the size is only cached if resize events are signaled
+        assertEquals(new Size(244, 85), terminal.getSize());
+        assertEquals(new Size(244, 85), terminal.getSize());
+        assertEquals(3, forks[0]);
+        terminal.sizeChangeSignaled = true;
+        assertEquals(new Size(244, 85), terminal.getSize());
+        assertEquals(new Size(244, 85), terminal.getSize());
+        assertEquals(4, forks[0]);
+        terminal.raise(Signal.WINCH);
+        assertEquals(new Size(244, 85), terminal.getSize());
+        assertEquals(5, forks[0]);
+
+        Attributes attr = terminal.getAttributes();
+        assertEquals(6, forks[0]);
+        // the returned attributes are a copy
+        attr.setLocalFlag(LocalFlag.ECHO, false);
+        assertEquals(true, terminal.getAttributes().getLocalFlag(LocalFlag.ECHO));
+        assertEquals(6, forks[0]);
+        terminal.setAttributes(attr);
+        terminal.getAttributes();
+        terminal.getAttributes();
+        assertEquals(7, forks[0]);
+        assertEquals(3, terminal.getForksAvoided());
+    }
+
+    static class CachingTerminal extends AbstractPosixTerminal {
+        boolean sizeChangeSignaled;
+
+        CachingTerminal(Pty pty) throws IOException {
+            super("caching", "ansi", pty);
+        }
+
+        @Override
+        protected boolean isSizeChangeSignaled() {
+            return sizeChangeSignaled;
+        }
+
+        @Override
+        public NonBlockingReader reader() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public PrintWriter writer() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public InputStream input() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public OutputStream output() {
+            throw new UnsupportedOperationException();
+        }
+    }
 }
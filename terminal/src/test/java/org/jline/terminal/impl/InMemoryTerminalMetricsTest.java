@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.terminal.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.jline.terminal.Terminal.Signal;
+import org.jline.terminal.spi.TerminalMetrics;
+import org.jline.utils.InfoCmp.Capability;
+import org.jline.utils.NonBlocking;
+import org.jline.utils.NonBlockingInputStream;
+import org.jline.utils.NonBlockingPumpInputStream;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class InMemoryTerminalMetricsTest {
+
+    @Test
+    public void testLineDisciplineTerminal() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        LineDisciplineTerminal terminal = new LineDisciplineTerminal("test", "xterm", out, StandardCharsets.UTF_8);
+        assertSame(TerminalMetrics.NONE, terminal.getMetrics());
+        InMemoryTerminalMetrics metrics = new InMemoryTerminalMetrics();
+        terminal.setMetrics(metrics);
+
+        terminal.processInputBytes("abc".getBytes(StandardCharsets.UTF_8));
+        assertEquals(3, metrics.getBytesRead());
+        assertEquals('a', terminal.reader().read(100L));
+        assertEquals('b', terminal.reader().peek(100L));
+        assertEquals(2, metrics.getReads());
+
+        long written = metrics.getBytesWritten();
+        long flushes = metrics.getFlushes();
+        terminal.writer().print("hello\n");
+        terminal.flush();
+        // the new line is written as CR LF
+        assertEquals(written + 7, metrics.getBytesWritten());
+        assertTrue(metrics.getFlushes() > flushes);
+
+        terminal.puts(Capability.clear_screen);
+        terminal.puts(Capability.clear_screen);
+        terminal.puts(Capability.cursor_address, 1, 2);
+        assertEquals(2, metrics.getCapabilityCount(Capability.clear_screen));
+        assertEquals(1, metrics.getCapabilityCount(Capability.cursor_address));
+        assertEquals(Long.valueOf(2), metrics.getCapabilities().get("clear_screen"));
+
+        terminal.raise(Signal.WINCH);
+        assertEquals(1, metrics.getResizes());
+
+        metrics.reset();
+        assertEquals(0, metrics.getBytesRead());
+        assertEquals(0, metrics.getCapabilityCount(Capability.clear_screen));
+        assertTrue(metrics.getCapabilities().isEmpty());
+
+        terminal.setMetrics(null);
+        assertSame(TerminalMetrics.NONE, terminal.getMetrics());
+        terminal.processInputBytes("abc".getBytes(StandardCharsets.UTF_8));
+        assertEquals(0, metrics.getBytesRead());
+    }
+
+    @Test
+    public void testMeteredNonBlockingInput() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        LineDisciplineTerminal terminal = new LineDisciplineTerminal("test", "xterm", out, StandardCharsets.UTF_8);
+        InMemoryTerminalMetrics metrics = new InMemoryTerminalMetrics();
+        terminal.setMetrics(metrics);
+
+        NonBlockingPumpInputStream pump = NonBlocking.nonBlockingPumpInputStream(16);
+        InputStream input = terminal.metered(pump);
+        // timed reads must still reach the wrapped stream
+        assertTrue(input instanceof NonBlockingInputStream);
+        NonBlockingInputStream nbis = (NonBlockingInputStream) input;
+        assertSame(nbis, NonBlocking.nonBlocking("test", input));
+        assertEquals(NonBlockingInputStream.READ_EXPIRED, nbis.read(10L));
+
+        pump.getOutputStream().write("ab".getBytes(StandardCharsets.UTF_8));
+        assertEquals('a', nbis.read(100L));
+        assertEquals('b', nbis.read(100L));
+        assertEquals(2, metrics.getBytesRead());
+    }
+
+}
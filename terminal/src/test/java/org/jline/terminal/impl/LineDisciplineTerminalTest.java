@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.terminal.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jline.terminal.Attributes;
+import org.jline.terminal.Attributes.InputFlag;
+import org.jline.terminal.Attributes.LocalFlag;
+import org.jline.terminal.Terminal.Signal;
+import org.jline.utils.NonBlockingInputStream;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LineDisciplineTerminalTest {
+
+    @Test
+    public void testBulkInput() throws IOException {
+        String input = "abc\r\ndef\n\u0003ghi\u001Ajkl\u0014\u001Cmno\rpéq";
+        checkBulkInput(input, a -> { });
+        checkBulkInput(input, a -> a.setLocalFlag(LocalFlag.ECHO, false));
+        checkBulkInput(input, a -> a.setLocalFlag(LocalFlag.ISIG, false));
+        checkBulkInput(input, a -> a.setInputFlag(InputFlag.ICRNL, false));
+        checkBulkInput(input, a -> a.setInputFlag(InputFlag.IGNCR, true));
+        checkBulkInput(input, a -> a.setInputFlag(InputFlag.INLCR, true));
+    }
+
+    @Test
+    public void testBulkInputSignalHandlerChangesAttributes() throws IOException {
+        String input = "abc\u0003def\u0003ghi\n";
+        String[] results = new String[2];
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            LineDisciplineTerminal terminal = i == 0
+                    ? new LineDisciplineTerminal("test", "ansi", out, StandardCharsets.UTF_8)
+                    : new PerByteTerminal(out);
+            terminal.handle(Signal.INT, s -> {
+                Attributes attributes = terminal.getAttributes();
+                attributes.setLocalFlag(LocalFlag.ISIG, false);
+                attributes.setLocalFlag(LocalFlag.ECHO, false);
+                terminal.setAttributes(attributes);
+            });
+            terminal.processInputBytes(input.getBytes(StandardCharsets.UTF_8));
+            results[i] = out.toString("UTF-8") + "|" + readAll(terminal);
+        }
+        assertEquals(results[1], results[0]);
+        assertEquals("abc|abcdef\u0003ghi\n", results[0]);
+    }
+
+    private void checkBulkInput(String input, AttributesSetter setter) throws IOException {
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream bulkOut = new ByteArrayOutputStream();
+        LineDisciplineTerminal bulk = new LineDisciplineTerminal("test", "ansi", bulkOut, StandardCharsets.UTF_8);
+        ByteArrayOutputStream slowOut = new ByteArrayOutputStream();
+        LineDisciplineTerminal slow = new PerByteTerminal(slowOut);
+        List<Signal> bulkSignals = new ArrayList<>();
+        List<Signal> slowSignals = new ArrayList<>();
+        for (Signal signal : new Signal[] { Signal.INT, Signal.QUIT, Signal.TSTP, Signal.INFO }) {
+            bulk.handle(signal, bulkSignals::add);
+            slow.handle(signal, slowSignals::add);
+        }
+        for (LineDisciplineTerminal terminal : new LineDisciplineTerminal[] { bulk, slow }) {
+            Attributes attributes = terminal.getAttributes();
+            setter.set(attributes);
+            terminal.setAttributes(attributes);
+        }
+
+        bulk.processInputBytes(bytes);
+        slow.processInputBytes(bytes);
+
+        assertEquals(slowOut.toString("UTF-8"), bulkOut.toString("UTF-8"));
+        assertEquals(slowSignals, bulkSignals);
+        assertEquals(readAll(slow), readAll(bulk));
+    }
+
+    private static String readAll(LineDisciplineTerminal terminal) throws IOException {
+        NonBlockingInputStream in = (NonBlockingInputStream) terminal.input();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        int c;
+        while ((c = in.read(1L)) >= 0) {
+            baos.write(c);
+        }
+        return baos.toString("UTF-8");
+    }
+
+    interface AttributesSetter {
+        void set(Attributes attributes);
+    }
+
+    /**
+     * Overriding the per byte processing disables the bulk path.
+     */
+    static class PerByteTerminal extends LineDisciplineTerminal {
+
+        PerByteTerminal(ByteArrayOutputStream out) throws IOException {
+            super("test", "ansi", out, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        protected boolean doProcessInputByte(int c) throws IOException {
+            return super.doProcessInputByte(c);
+        }
+    }
+
+}
@@ -10,6 +10,7 @@ import java.io.IOException;
 import java.nio.charset.Charset;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 public class AttributedStringTest {
 
@@ -145,4 +146,20 @@ public class AttributedStringTest {
         assertEquals("👍", messageAgain.toString());
     }
 
+    @Test
+    public void testHashCodeConsistentWithEquals() {
+        AttributedString s1 = new AttributedStringBuilder()
+                .append("foo ")
+                .append("bar", AttributedStyle.BOLD)
+                .toAttributedString();
+        AttributedString s2 = new AttributedStringBuilder()
+                .append("xx foo ")
+                .append("bar", AttributedStyle.BOLD)
+                .toAttributedString()
+                .subSequence(3, 10);
+        assertEquals(s1, s2);
+        assertEquals(s1.hashCode(), s2.hashCode());
+        assertFalse(s1.equals(new AttributedString("foo bar")));
+    }
+
 }
@@ -8,6 +8,8 @@
  */
 package org.jline.utils;
 
+import java.util.Random;
+
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
@@ -30,4 +32,38 @@ public class ColorsTest {
     public void testRgb() {
         assertEquals(2, Colors.roundRgbColor(0, 128, 0, 16));
     }
+
+    @Test
+    public void testCachedRounding() {
+        Random random = new Random(0);
+        for (String dist : new String[] { "rgb", "rgb(2,4,3)", "cie76", "lab(1,2)", "cie94", "cie00",
+                                          "cam02", "camlab", "camlab(1,2)", "camlch", "camlch(1,2,3)" }) {
+            Colors.Distance distance = Colors.getDistance(dist);
+            for (int i = 0; i < 200; i++) {
+                // use a small set of colors so that some lookups hit the cache
+                int color = random.nextInt(64) * 0x040404 + random.nextInt(4);
+                int expected = Colors.roundColor(color, Colors.DEFAULT_COLORS_256, 256, distance);
+                assertEquals(dist, expected, Colors.roundColor(color, Colors.DEFAULT_COLORS_256, 256, dist));
+                assertEquals(dist, Colors.roundColor(color, Colors.DEFAULT_COLORS_256, 16, distance),
+                        Colors.roundColor(color, Colors.DEFAULT_COLORS_256, 16, dist));
+            }
+        }
+    }
+
+    @Test
+    public void testPaletteChange() {
+        ColorPalette palette = new ColorPalette();
+        int color = 0x123456;
+        int index = palette.round(0x12, 0x34, 0x56);
+        assertEquals(index, palette.round(0x12, 0x34, 0x56));
+        int old = palette.getColor(200);
+        try {
+            palette.setColor(200, color);
+            assertEquals(200, palette.round(0x12, 0x34, 0x56));
+            assertEquals(200, Colors.roundRgbColor(0x12, 0x34, 0x56, 256));
+        } finally {
+            palette.setColor(200, old);
+        }
+        assertEquals(index, palette.round(0x12, 0x34, 0x56));
+    }
 }
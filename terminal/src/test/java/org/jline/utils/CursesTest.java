@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2002-2016, the original author or authors.
+ * Copyright (c) 2002-2021, the original author or authors.
  *
  * This software is distributable under the BSD license. See the terms of the
  * BSD license in the documentation provided with this software.
@@ -8,7 +8,13 @@
  */
 package org.jline.utils;
 
+import java.io.ByteArrayOutputStream;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import org.jline.terminal.Terminal;
+import org.jline.terminal.impl.LineDisciplineTerminal;
+import org.jline.utils.InfoCmp.Capability;
 
 import org.junit.Test;
 
@@ -33,4 +39,42 @@ public class CursesTest {
                 Curses.tputs("\\E]4;%p1%d;rgb\\:%p2%{255}%*%{1000}%/%2.2X/%p3%{255}%*%{1000}%/%2.2X/%p4%{255}%*%{1000}%/%2.2X\\E\\\\", 123, 0xfa, 0x00, 0x89));
     }
 
+    @Test
+    public void testConditionals() throws Exception {
+        String setaf = "\\E[%?%p1%{8}%<%t3%p1%d%e%p1%{16}%<%t9%p1%{8}%-%d%e38;5;%p1%d%;m";
+        assertEquals("\033[31m", Curses.tputs(setaf, 1));
+        assertEquals("\033[91m", Curses.tputs(setaf, 9));
+        assertEquals("\033[38;5;100m", Curses.tputs(setaf, 100));
+
+        String sgr = "\\E[0%?%p6%t;1%;%?%p1%t;3%;m%?%p9%t\\016%e\\017%;";
+        assertEquals("\033[0;1;3m\016", Curses.tputs(sgr, 1, 0, 0, 0, 0, 1, 0, 0, 1));
+        assertEquals("\033[0m\017", Curses.tputs(sgr, 0, 0, 0, 0, 0, 0, 0, 0, 0));
+    }
+
+    @Test
+    public void testTemplate() throws Exception {
+        Curses.Template template = Curses.compile("\\E[%i%p1%d;%p2%dH");
+        StringWriter sw = new StringWriter();
+        template.tputs(sw, 2, 3);
+        template.tputs(sw, 9, 99);
+        template.tputs(sw, (Object) 0, 0);
+        assertEquals("\033[3;4H\033[10;100H\033[1;1H", sw.toString());
+
+        sw = new StringWriter();
+        Curses.compile("%p1%s:%p1%l%d:%p2%3d:%p2%:-3d|").tputs(sw, "abc", 7);
+        assertEquals("abc:3:  7:7  |", sw.toString());
+    }
+
+    @Test
+    public void testTerminalPuts() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Terminal terminal = new LineDisciplineTerminal("test", "xterm-256color", baos, StandardCharsets.UTF_8);
+        terminal.puts(Capability.cursor_address, 2, 3);
+        terminal.puts(Capability.column_address, 5);
+        terminal.puts(Capability.cursor_address, (Object) 4, 5);
+        terminal.flush();
+        assertEquals("\033[3;4H\033[6G\033[5;6H", baos.toString("UTF-8"));
+        terminal.close();
+    }
+
 }
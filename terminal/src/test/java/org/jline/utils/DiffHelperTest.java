@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.utils;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class DiffHelperTest {
+
+    @Test
+    public void testCommonStartAndEnd() {
+        AttributedString s1 = new AttributedString("hello world");
+        AttributedString s2 = new AttributedString("xx hello wide world").subSequence(3, 19);
+        int start = DiffHelper.commonStart(s1, s2);
+        assertEquals(7, start);
+        assertEquals(4, DiffHelper.commonEnd(s1, s2, start));
+    }
+
+    @Test
+    public void testStyleDifference() {
+        AttributedString s1 = new AttributedString("abc");
+        AttributedString s2 = new AttributedStringBuilder()
+                .append("a")
+                .append("b", AttributedStyle.BOLD)
+                .append("c")
+                .toAttributedString();
+        assertEquals(1, DiffHelper.commonStart(s1, s2));
+        assertEquals(1, DiffHelper.commonEnd(s1, s2, 1));
+
+        List<DiffHelper.Diff> diffs = DiffHelper.diff(s1, s2);
+        assertEquals(4, diffs.size());
+        assertEquals(DiffHelper.Operation.INSERT, diffs.get(1).operation);
+        assertEquals(s2.subSequence(1, 2), diffs.get(1).text);
+    }
+
+    @Test
+    public void testHiddenRange() {
+        AttributedString s1 = new AttributedStringBuilder()
+                .append("ab")
+                .append("\033[1m", AttributedStyle.HIDDEN)
+                .append("c")
+                .toAttributedString();
+        AttributedString s2 = new AttributedStringBuilder()
+                .append("ab")
+                .append("\033[2m", AttributedStyle.HIDDEN)
+                .append("c")
+                .toAttributedString();
+        // the common prefix must not end inside the hidden run
+        assertEquals(2, DiffHelper.commonStart(s1, s2));
+        // neither must the common suffix start inside it
+        assertEquals(1, DiffHelper.commonEnd(s1, s2, 2));
+    }
+
+}
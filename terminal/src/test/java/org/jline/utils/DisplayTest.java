@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jline.terminal.Size;
+import org.jline.terminal.impl.LineDisciplineTerminal;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DisplayTest {
+
+    private ByteArrayOutputStream out;
+    private LineDisciplineTerminal terminal;
+    private Display display;
+
+    @Before
+    public void setUp() throws IOException {
+        out = new ByteArrayOutputStream();
+        terminal = new LineDisciplineTerminal("test", "xterm-256color", out, StandardCharsets.UTF_8);
+        terminal.setSize(new Size(80, 10));
+        display = new Display(terminal, true);
+        display.resize(10, 80);
+    }
+
+    @Test
+    public void testScrollUp() {
+        display.update(lines(0, 10, null), 0);
+        out.reset();
+
+        display.update(lines(1, 11, null), 0);
+        String output = output();
+        assertTrue(output.contains("\033[M"));
+        assertTrue(output.contains("line 10"));
+        assertFalse(output.contains("line 5"));
+    }
+
+    @Test
+    public void testScrollDownWithFooter() {
+        display.update(lines(0, 9, "status"), 0);
+        out.reset();
+
+        display.update(lines(-1, 8, "status"), 0);
+        String output = output();
+        assertTrue(output.contains("\033[M"));
+        assertTrue(output.contains("\033[L"));
+        assertTrue(output.contains("line -1"));
+        assertFalse(output.contains("line 5"));
+        assertFalse(output.contains("status"));
+    }
+
+    @Test
+    public void testLongestCommonWithHashCollision() {
+        // both lines have the same hash code
+        AttributedString a = new AttributedString("A\u03e8");
+        AttributedString b = new AttributedString("B'");
+        assertEquals(a.hashCode(), b.hashCode());
+
+        List<AttributedString> l1 = Arrays.asList(b, new AttributedString("x"));
+        List<AttributedString> l2 = Arrays.asList(a, b, new AttributedString("x"));
+        assertArrayEquals(new int[] { 0, 1, 2 }, Display.longestCommon(l1, l2));
+    }
+
+    private List<AttributedString> lines(int from, int to, String footer) {
+        List<AttributedString> lines = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            lines.add(new AttributedString("line " + i));
+        }
+        if (footer != null) {
+            lines.add(new AttributedString(footer));
+        }
+        return lines;
+    }
+
+    private String output() {
+        terminal.flush();
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+}
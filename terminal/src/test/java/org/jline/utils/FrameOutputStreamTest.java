@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import org.jline.terminal.impl.AbstractTerminal;
+import org.jline.terminal.impl.LineDisciplineTerminal;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FrameOutputStreamTest {
+
+    @Test
+    public void testDisabled() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        FrameOutputStream fos = new FrameOutputStream(out);
+        fos.beginFrame();
+        fos.write("abc".getBytes());
+        fos.flush();
+        assertFalse(fos.endFrame());
+        assertEquals("abc", out.toString());
+        assertEquals(1, out.flushes);
+        assertEquals(0, fos.getFrames());
+    }
+
+    @Test
+    public void testFrames() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        FrameOutputStream fos = new FrameOutputStream(out);
+        fos.setEnabled(true);
+        fos.write('a');
+        assertEquals("", out.toString());
+        fos.flush();
+        assertEquals("a", out.toString());
+        assertEquals(1, out.flushes);
+
+        fos.beginFrame();
+        fos.write("bc".getBytes());
+        fos.flush();
+        fos.beginFrame();
+        fos.write("de".getBytes());
+        fos.flush();
+        assertFalse(fos.endFrame());
+        assertEquals("a", out.toString());
+        assertTrue(fos.endFrame());
+        fos.flush();
+        assertEquals("abcde", out.toString());
+        assertEquals(2, out.flushes);
+
+        // no flush requested during the frame
+        fos.beginFrame();
+        fos.write('f');
+        assertFalse(fos.endFrame());
+        assertEquals("abcde", out.toString());
+
+        assertEquals(2, fos.getFrames());
+        assertEquals(3, fos.getFlushes());
+        assertEquals(5, fos.getBytes());
+
+        fos.setEnabled(false);
+        assertEquals("abcdef", out.toString());
+    }
+
+    @Test
+    public void testTerminalFrame() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        AbstractTerminal terminal = new LineDisciplineTerminal("test", "xterm", out, StandardCharsets.UTF_8);
+        assertTrue(terminal.setFrameOutput(true));
+        terminal.beginFrame();
+        terminal.writer().write("status");
+        terminal.flush();
+        terminal.writer().write(" line");
+        terminal.flush();
+        assertEquals("", out.toString());
+        terminal.endFrame();
+        assertEquals("status line", out.toString());
+        // the line discipline flushes the master after each write, then once for the flush
+        assertEquals(2, out.flushes);
+        assertEquals(1, terminal.getFrameOutput().getFrames());
+        assertEquals(2, terminal.getFrameOutput().getFlushes());
+        terminal.close();
+    }
+
+    @Test
+    public void testSynchronizedOutput() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        FrameOutputStream fos = new FrameOutputStream(out);
+        fos.setEnabled(true);
+        fos.setSynchronizedOutput(true);
+
+        fos.beginFrame();
+        fos.write('a');
+        fos.beginFrame();
+        fos.write('b');
+        fos.flush();
+        assertFalse(fos.endFrame());
+        assertTrue(fos.endFrame());
+        fos.flush();
+        assertEquals(FrameOutputStream.BSU + "ab" + FrameOutputStream.ESU, out.toString());
+
+        // empty frames are dropped
+        out.reset();
+        fos.beginFrame();
+        fos.flush();
+        assertTrue(fos.endFrame());
+        fos.flush();
+        assertEquals("", out.toString());
+
+        // output outside frames is not wrapped
+        fos.write('c');
+        fos.flush();
+        assertEquals("c", out.toString());
+    }
+
+    @Test
+    public void testTerminalSynchronizedOutput() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        AbstractTerminal terminal = new LineDisciplineTerminal("test", "xterm", out, StandardCharsets.UTF_8);
+        assertTrue(terminal.setSynchronizedOutput(true));
+        assertTrue(terminal.getFrameOutput().isEnabled());
+
+        // the frame content is still buffered by the writer when the frame ends
+        terminal.beginFrame();
+        terminal.writer().write("frame");
+        terminal.endFrame();
+        terminal.flush();
+        assertEquals(FrameOutputStream.BSU + "frame" + FrameOutputStream.ESU, out.toString());
+
+        out.reset();
+        Display display = new Display(terminal, false);
+        display.resize(24, 80);
+        display.update(Collections.singletonList(new AttributedString("line")), 4);
+        assertEquals(FrameOutputStream.BSU + "line" + FrameOutputStream.ESU, out.toString());
+        terminal.close();
+    }
+
+    private static class CountingOutputStream extends ByteArrayOutputStream {
+        int flushes;
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2002-2016, the original author or authors.
+ * Copyright (c) 2002-2021, the original author or authors.
  *
  * This software is distributable under the BSD license. See the terms of the
  * BSD license in the documentation provided with this software.
@@ -31,7 +31,9 @@ import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static org.jline.terminal.TerminalBuilder.PROP_INFOCMP_CACHE_DIR;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -78,6 +80,43 @@ public class InfoCmpTest {
         assertEquals("\\E[J", strings.get(Capability.clr_eos));
     }
 
+    @Test
+    public void testParsedInfoCmpCache() {
+        String infocmp = InfoCmp.getLoadedInfoCmp("xterm-256color");
+        Set<Capability> bools1 = new HashSet<>();
+        Map<Capability, String> strings1 = new HashMap<>();
+        InfoCmp.parseInfoCmp(infocmp, bools1, new HashMap<>(), strings1);
+        Set<Capability> bools2 = new HashSet<>();
+        Map<Capability, String> strings2 = new HashMap<>();
+        InfoCmp.parseInfoCmp(infocmp, bools2, new HashMap<>(), strings2);
+        assertEquals(bools1, bools2);
+        assertEquals(strings1, strings2);
+        // each terminal gets its own copy
+        strings1.remove(Capability.clr_eos);
+        assertFalse(strings1.containsKey(Capability.clr_eos));
+        assertTrue(strings2.containsKey(Capability.clr_eos));
+    }
+
+    @Test
+    public void testInfoCmpCacheDir() throws Exception {
+        Path dir = Files.createTempDirectory("infocmp");
+        String caps = "jline-test|cached terminal,\n\tam, cols#80,\n\tbel=^G,\n";
+        Files.write(dir.resolve("jline-test_1.caps"), caps.getBytes("UTF-8"));
+        String old = System.setProperty(PROP_INFOCMP_CACHE_DIR, dir.toString());
+        try {
+            assertEquals(caps, InfoCmp.getInfoCmp("jline-test/1"));
+        } finally {
+            if (old != null) {
+                System.setProperty(PROP_INFOCMP_CACHE_DIR, old);
+            } else {
+                System.clearProperty(PROP_INFOCMP_CACHE_DIR);
+            }
+            InfoCmp.removeInfoCmp("jline-test/1");
+            Files.deleteIfExists(dir.resolve("jline-test_1.caps"));
+            Files.deleteIfExists(dir);
+        }
+    }
+
     @Test
     public void testAllCapsFile() throws IOException {
         String packagePath = InfoCmp.class.getPackage().getName().replace(".", "/");
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LockFreePumpReaderTest {
+
+    private LockFreePumpReader writeInput() {
+        LockFreePumpReader pump = new LockFreePumpReader();
+        PrintWriter writer = new PrintWriter(pump.getWriter());
+
+        // Write some input
+        writer.println("Hello world!");
+        writer.println("㐀");
+
+        return pump;
+    }
+
+    @Test
+    public void testReader() throws IOException {
+        LockFreePumpReader pump = writeInput();
+
+        // Read it again
+        BufferedReader reader = new BufferedReader(pump);
+        assertEquals("Hello world!", reader.readLine());
+        assertEquals("㐀", reader.readLine());
+    }
+
+    @Test
+    public void testInputStream() throws IOException {
+        LockFreePumpReader pump = writeInput();
+
+        // Read it using an input stream
+        BufferedReader reader = new BufferedReader(new InputStreamReader(pump.createInputStream(StandardCharsets.UTF_8), StandardCharsets.UTF_8));
+        assertEquals("Hello world!", reader.readLine());
+        assertEquals("㐀", reader.readLine());
+    }
+
+    @Test
+    public void testPeekAndTimeout() throws IOException {
+        LockFreePumpReader pump = new LockFreePumpReader(8);
+        Writer writer = pump.getWriter();
+
+        assertEquals(NonBlockingReader.READ_EXPIRED, pump.peek(50));
+        writer.write("ab");
+        assertEquals('a', pump.peek(50));
+        assertEquals('a', pump.read(50));
+        assertEquals(1, pump.available());
+        assertEquals('b', pump.read(50));
+        assertEquals(NonBlockingReader.READ_EXPIRED, pump.read(50));
+
+        long t0 = System.currentTimeMillis();
+        new Thread(() -> {
+            try {
+                Thread.sleep(100);
+                writer.write('中');
+            } catch (Exception e) {
+                fail();
+            }
+        }).start();
+        assertEquals('中', pump.read(0L));
+        assertTrue(System.currentTimeMillis() - t0 >= 100);
+
+        writer.write("xyz");
+        writer.close();
+        CharBuffer cb = CharBuffer.allocate(8);
+        assertEquals(3, pump.read(cb));
+        assertEquals("xyz", cb.flip().toString());
+        assertEquals(NonBlockingReader.EOF, pump.read(50));
+        try {
+            writer.write('a');
+            fail("Expected ClosedException");
+        } catch (ClosedException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testProducerConsumer() throws Exception {
+        LockFreePumpReader pump = new LockFreePumpReader(16);
+        int total = 100000;
+        Thread producer = new Thread(() -> {
+            try {
+                Writer writer = pump.getWriter();
+                char[] chunk = new char[7];
+                for (int i = 0; i < total; ) {
+                    int l = Math.min(chunk.length, total - i);
+                    for (int j = 0; j < l; j++) {
+                        chunk[j] = (char) ('a' + (i + j) % 26);
+                    }
+                    writer.write(chunk, 0, l);
+                    i += l;
+                }
+                writer.close();
+            } catch (IOException e) {
+                fail();
+            }
+        });
+        producer.start();
+        char[] buf = new char[5];
+        int nb = 0;
+        while (true) {
+            int c = pump.peek(1000);
+            if (c == NonBlockingReader.EOF) {
+                break;
+            }
+            assertEquals('a' + nb % 26, c);
+            int l = pump.readBuffered(buf);
+            for (int i = 0; i < l; i++) {
+                assertEquals("Mismatch at " + nb, 'a' + nb % 26, buf[i]);
+                nb++;
+            }
+        }
+        assertEquals(total, nb);
+        producer.join();
+    }
+
+}
@@ -4,6 +4,10 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.io.InterruptedIOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PipedReader;
+import java.io.PipedWriter;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 
@@ -107,4 +111,83 @@ public class NonBlockingTest {
         }
         assertEquals(NonBlockingInputStream.READ_EXPIRED, is.read(100));
     }
+
+    @Test
+    public void testNonBlockingInputStreamImpl() throws IOException {
+        PipedOutputStream pos = new PipedOutputStream();
+        NonBlockingInputStream is = NonBlocking.nonBlocking("name", new PipedInputStream(pos, 8192));
+
+        assertEquals(NonBlockingInputStream.READ_EXPIRED, is.peek(50));
+        assertEquals(NonBlockingInputStream.READ_EXPIRED, is.read(50));
+        pos.write("abc".getBytes());
+        pos.flush();
+        assertEquals('a', is.peek(100));
+        assertEquals('a', is.read(100));
+        assertEquals(2, is.available());
+        assertEquals('b', is.peek(0));
+        assertEquals('b', is.read(0));
+        assertEquals('c', is.read(0));
+        assertEquals(NonBlockingInputStream.READ_EXPIRED, is.read(50));
+
+        // bulk reads are served from the buffer, wrapping around it
+        byte[] data = new byte[10000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        byte[] buf = new byte[3000];
+        int nb = 0;
+        for (int i = 0; i < 3; i++) {
+            pos.write(data, i * data.length / 3, data.length / 3);
+            pos.flush();
+            assertEquals(data[nb] & 0xFF, is.peek(100));
+            int l;
+            while (is.available() > 0 || nb < (i + 1) * (data.length / 3)) {
+                l = is.readBuffered(buf);
+                assertTrue(l > 0);
+                for (int j = 0; j < l; j++) {
+                    assertEquals("Mismatch at " + nb, data[nb++], buf[j]);
+                }
+            }
+        }
+
+        pos.close();
+        assertEquals(NonBlockingInputStream.EOF, is.peek(100));
+        assertEquals(NonBlockingInputStream.EOF, is.read(100));
+        is.close();
+    }
+
+    @Test
+    public void testNonBlockingReaderImpl() throws IOException {
+        PipedWriter writer = new PipedWriter();
+        NonBlockingReader reader = NonBlocking.nonBlocking("name", new PipedReader(writer, 8192));
+
+        assertEquals(NonBlockingReader.READ_EXPIRED, reader.peek(50));
+        writer.write("中英字典");
+        writer.flush();
+        assertEquals('中', reader.peek(100));
+        assertEquals('中', reader.read(100));
+        assertTrue(reader.ready());
+        assertEquals('英', reader.peek(0));
+        char[] buf = new char[2];
+        assertEquals(2, reader.readBuffered(buf));
+        assertEquals("英字", new String(buf));
+        assertEquals('典', reader.read(0L));
+        assertEquals(NonBlockingReader.READ_EXPIRED, reader.read(50));
+
+        long t0 = System.currentTimeMillis();
+        new Thread(() -> {
+            try {
+                Thread.sleep(100);
+                writer.write("abc");
+                writer.flush();
+            } catch (Exception e) {
+                fail();
+            }
+        }).start();
+        assertEquals('a', reader.read(1000));
+        assertTrue(System.currentTimeMillis() - t0 >= 100);
+        buf = new char[8];
+        assertEquals(2, reader.readBuffered(buf));
+        reader.close();
+    }
 }
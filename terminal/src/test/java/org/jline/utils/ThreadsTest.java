@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ThreadsTest {
+
+    @Test
+    public void testPlatformThreads() {
+        assertNull(Threads.getThreadFactory());
+        Thread thread = Threads.newDaemonThread(() -> { }, "test");
+        assertEquals("test", thread.getName());
+        assertTrue(thread.isDaemon());
+        assertEquals(Thread.State.NEW, thread.getState());
+    }
+
+    @Test
+    public void testThreadFactory() throws IOException {
+        AtomicInteger created = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            created.incrementAndGet();
+            Thread thread = new Thread(r);
+            thread.setDaemon(false);
+            return thread;
+        };
+        Threads.setThreadFactory(factory);
+        try {
+            Thread thread = Threads.newDaemonThread(() -> { }, "test");
+            assertEquals(1, created.get());
+            assertTrue(thread.isDaemon());
+            assertFalse(Threads.newThread(() -> { }, null).isDaemon());
+
+            NonBlockingInputStream input = NonBlocking.nonBlocking("test",
+                    new ByteArrayInputStream("a".getBytes(StandardCharsets.UTF_8)));
+            assertEquals('a', input.read(1000L));
+            assertEquals(3, created.get());
+            input.close();
+        } finally {
+            Threads.setThreadFactory(null);
+        }
+    }
+
+    @Test
+    public void testVirtualThreads() {
+        ThreadFactory factory = Threads.virtualThreadFactory();
+        boolean supported;
+        try {
+            Thread.class.getMethod("ofVirtual");
+            supported = true;
+        } catch (NoSuchMethodException e) {
+            supported = false;
+        }
+        assertEquals(supported, factory != null);
+        if (factory != null) {
+            Threads.setThreadFactory(factory);
+            try {
+                // virtual threads are always daemon threads
+                assertTrue(Threads.newDaemonThread(() -> { }, "test").isDaemon());
+                assertTrue(Threads.newThread(() -> { }, "test").isDaemon());
+            } finally {
+                Threads.setThreadFactory(null);
+            }
+        }
+    }
+
+}
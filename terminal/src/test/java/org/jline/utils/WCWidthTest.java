@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2002-2021, the original author or authors.
+ *
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ */
+package org.jline.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class WCWidthTest {
+
+    @Test
+    public void testWidths() {
+        assertEquals(0, WCWidth.wcwidth(0));
+        assertEquals(-1, WCWidth.wcwidth(0x1b));
+        assertEquals(-1, WCWidth.wcwidth(0x7f));
+        assertEquals(-1, WCWidth.wcwidth(0x9f));
+        assertEquals(1, WCWidth.wcwidth('a'));
+        assertEquals(1, WCWidth.wcwidth(0xad));
+        // combining
+        assertEquals(0, WCWidth.wcwidth(0x0301));
+        assertEquals(0, WCWidth.wcwidth(0x200b));
+        assertEquals(0, WCWidth.wcwidth(0xe0100));
+        // wide
+        assertEquals(2, WCWidth.wcwidth(0x1100));
+        assertEquals(2, WCWidth.wcwidth(0x4e2d));
+        assertEquals(2, WCWidth.wcwidth(0xac00));
+        assertEquals(2, WCWidth.wcwidth(0x20000));
+        assertEquals(1, WCWidth.wcwidth(0x2fffe));
+        // exceptions in the CJK range
+        assertEquals(1, WCWidth.wcwidth(0x303f));
+        assertEquals(0, WCWidth.wcwidth(0x302a));
+        // out of range
+        assertEquals(-1, WCWidth.wcwidth(-1));
+        assertEquals(1, WCWidth.wcwidth(Character.MAX_CODE_POINT + 1));
+    }
+
+}